@@ -251,8 +251,12 @@ public class ClassicPluginStrategy implements PluginStrategy {
         ClassLoader dependencyLoader = new DependencyClassLoader(coreClassLoader, archive, Util.join(dependencies,optionalDependencies));
         dependencyLoader = getBaseClassLoader(atts, dependencyLoader);
 
-        return new PluginWrapper(pluginManager, archive, manifest, baseResourceURL,
+        PluginWrapper wrapper = new PluginWrapper(pluginManager, archive, manifest, baseResourceURL,
                 createClassLoader(paths, dependencyLoader, atts), disableFile, dependencies, optionalDependencies);
+        if (expandDir != null) {
+            wrapper.classIndex = PluginClassIndex.load(expandDir, paths);
+        }
+        return wrapper;
     }
 
     private void fix(Attributes atts, List<PluginWrapper.Dependency> optionalDependencies) {
@@ -53,6 +53,7 @@ import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.springframework.util.ClassUtils;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.PostConstruct;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
@@ -67,8 +68,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -254,6 +255,12 @@ public abstract class ExtensionFinder implements ExtensionPoint {
         private List<IndexItem<?,Object>> sezpozIndex;
 
         private final Map<Key,Annotation> annotations = new HashMap<>();
+
+        /**
+         * For {@link #container} and its ancestors, their bindings by the types they can be found as.
+         * @see #indexByType
+         */
+        private final Map<Injector, Map<Class<?>, List<Binding<?>>>> bindingsByType = new ConcurrentHashMap<>();
         private final Sezpoz moduleFinder = new Sezpoz();
 
         /**
@@ -396,10 +403,12 @@ public abstract class ExtensionFinder implements ExtensionPoint {
         }
 
         private <U> void _find(Class<U> type, List<ExtensionComponent<U>> result, Injector container) {
-            for (Entry<Key<?>, Binding<?>> e : container.getBindings().entrySet()) {
-                if (type.isAssignableFrom(e.getKey().getTypeLiteral().getRawType())) {
-                    Annotation a = annotations.get(e.getKey());
-                    Object o = e.getValue().getProvider().get();
+            Map<Class<?>, List<Binding<?>>> index = bindingsByType.computeIfAbsent(container, GuiceFinder::indexByType);
+            for (Binding<?> b : index.getOrDefault(type, Collections.emptyList())) {
+                Key<?> key = b.getKey();
+                if (type.isAssignableFrom(key.getTypeLiteral().getRawType())) {
+                    Annotation a = annotations.get(key);
+                    Object o = b.getProvider().get();
                     if (o!=null) {
                         GuiceExtensionAnnotation gea = a!=null ? extensionAnnotations.get(a.annotationType()) : null;
                         result.add(new ExtensionComponent<>(type.cast(o), gea != null ? gea.getOrdinal(a) : 0));
@@ -408,6 +417,33 @@ public abstract class ExtensionFinder implements ExtensionPoint {
             }
         }
 
+        /**
+         * Lists the bindings of an injector under each type they can be found as, in the order of the injector.
+         * The bindings of an injector never change, and there are thousands of them, of which an extension point typically has a few.
+         */
+        private static Map<Class<?>, List<Binding<?>>> indexByType(Injector container) {
+            Map<Class<?>, List<Binding<?>>> index = new HashMap<>();
+            Set<Class<?>> types = new HashSet<>();
+            for (Binding<?> b : container.getBindings().values()) {
+                types.clear();
+                addSupertypes(b.getKey().getTypeLiteral().getRawType(), types);
+                for (Class<?> t : types) {
+                    index.computeIfAbsent(t, k -> new ArrayList<>()).add(b);
+                }
+            }
+            return index;
+        }
+
+        private static void addSupertypes(@CheckForNull Class<?> c, Set<Class<?>> types) {
+            if (c == null || !types.add(c)) {
+                return;
+            }
+            addSupertypes(c.getSuperclass(), types);
+            for (Class<?> i : c.getInterfaces()) {
+                addSupertypes(i, types);
+            }
+        }
+
         /**
          * TODO: need to learn more about concurrent access to {@link Injector} and how it interacts
          * with classloading.
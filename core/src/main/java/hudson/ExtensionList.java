@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -86,6 +87,12 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
     @CopyOnWrite
     private volatile List<ExtensionComponent<T>> extensions;
 
+    /**
+     * The instances of {@link #extensions} in the same order, which is what iterating goes through.
+     * Always set along with, and before, {@link #extensions}.
+     */
+    private volatile Object[] instances;
+
     private final List<ExtensionListListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
@@ -129,7 +136,7 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
         this.extensionType = extensionType;
         this.legacyInstances = legacyStore;
         if (jenkins == null) {
-            extensions = Collections.emptyList();
+            setExtensions(Collections.emptyList());
         }
     }
 
@@ -168,8 +175,13 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
 
     @Override
     public @Nonnull Iterator<T> iterator() {
+        List<ExtensionComponent<T>> components = ensureLoaded();
+        Object[] instances = this.instances;
+        if (instances != null) {
+            return new InstanceIterator<>(instances);
+        }
         // we need to intercept mutation, so for now don't allow Iterator.remove 
-        return new AdaptedIterator<ExtensionComponent<T>,T>(Iterators.readOnly(ensureLoaded().iterator())) {
+        return new AdaptedIterator<ExtensionComponent<T>,T>(Iterators.readOnly(components.iterator())) {
             protected T adapt(ExtensionComponent<T> item) {
                 return item.getInstance();
             }
@@ -239,7 +251,7 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
         if(extensions!=null) {
             List<ExtensionComponent<T>> r = new ArrayList<>(extensions);
             removed |= removeComponent(r,o);
-            extensions = sort(r);
+            setExtensions(sort(r));
         }
         return removed;
     }
@@ -284,7 +296,7 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
         if(extensions!=null) {
             List<ExtensionComponent<T>> r = new ArrayList<>(extensions);
             r.add(new ExtensionComponent<>(t));
-            extensions = sort(r);
+            setExtensions(sort(r));
         }
         return true;
     }
@@ -316,12 +328,47 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
             if(extensions==null) {
                 List<ExtensionComponent<T>> r = load();
                 r.addAll(legacyInstances);
-                extensions = sort(r);
+                setExtensions(sort(r));
             }
             return extensions;
         }
     }
 
+    private void setExtensions(List<ExtensionComponent<T>> sorted) {
+        Object[] r = new Object[sorted.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = sorted.get(i).getInstance();
+        }
+        instances = r;
+        extensions = sorted;
+    }
+
+    /**
+     * Goes through the instances as they were when iteration began, whatever gets added or removed meanwhile.
+     */
+    private static final class InstanceIterator<T> implements Iterator<T> {
+        private final Object[] instances;
+        private int next;
+
+        InstanceIterator(Object[] instances) {
+            this.instances = instances;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < instances.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next >= instances.length) {
+                throw new NoSuchElementException();
+            }
+            return (T) instances[next++];
+        }
+    }
+
     /**
      * Chooses the object that locks the loading of the extension instances.
      */
@@ -343,7 +390,7 @@ public class ExtensionList<T> extends AbstractList<T> implements OnMaster {
             if (!found.isEmpty()) {
                 List<ExtensionComponent<T>> l = Lists.newArrayList(extensions);
                 l.addAll(found);
-                extensions = sort(l);
+                setExtensions(sort(l));
                 fireOnChangeListeners = true;
             }
         }
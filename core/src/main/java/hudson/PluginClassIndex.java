@@ -0,0 +1,235 @@
+package hudson;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.CheckForNull;
+import jenkins.util.AntClassLoader;
+import jenkins.util.SystemProperties;
+
+/**
+ * Which class and resource names the jars of a plugin contain.
+ *
+ * <p>
+ * {@link PluginManager.UberClassLoader} otherwise asks the classloader of each plugin in turn for every class and resource it cannot find in core,
+ * each of which then looks through all of its jars, opening them as it goes;
+ * that includes reading the {@code META-INF/annotations} indexes of SezPoz, which are looked for in every plugin as extensions get discovered.
+ * With this, plugins which cannot have a given name are skipped outright.
+ *
+ * <p>
+ * Names are kept as their hash codes only, so that the index of a plugin takes a few bytes per entry;
+ * a collision merely means asking a plugin which then does not have the name after all.
+ * The index is written next to the exploded plugin, so that later startups load it rather than listing the jars again,
+ * along with a checksum of the name, size and timestamp of each jar, so that an index no longer matching them is built again.
+ * The directories of those names are kept in full, so that {@link PluginManager.UberClassLoader} can tell which plugins to ask
+ * for a name without opening their jars.
+ */
+final class PluginClassIndex {
+
+    /**
+     * Whether to do without, asking every plugin for every name.
+     */
+    static /* Script Console modifiable */ boolean DISABLED = SystemProperties.getBoolean(PluginClassIndex.class.getName() + ".disabled");
+
+    static final String FILE_NAME = ".class-index";
+
+    private static final int MAGIC = 0x4a434932;
+
+    /** Sorted, distinct. */
+    private final int[] hashes;
+
+    /** Sorted, distinct, as from {@link AntClassLoader#directoryOf}. */
+    private final String[] packages;
+
+    private PluginClassIndex(int[] hashes, String[] packages) {
+        this.hashes = hashes;
+        this.packages = packages;
+    }
+
+    /**
+     * Whether the plugin may contain a given class or resource.
+     * @param name a resource name, such as {@code hudson/Plugin.class}
+     * @return false if it definitely does not
+     */
+    boolean mayContain(String name) {
+        return Arrays.binarySearch(hashes, name.hashCode()) >= 0;
+    }
+
+    /**
+     * Whether the plugin may contain a given class.
+     * @param className a binary class name, such as {@code hudson.Plugin}
+     */
+    boolean mayContainClass(String className) {
+        return mayContain(className.replace('.', '/') + ".class");
+    }
+
+    int size() {
+        return hashes.length;
+    }
+
+    /**
+     * The directories which the jars of the plugin have entries in, such as {@code org/example} for {@code org/example/Plugin.class}.
+     */
+    List<String> getPackages() {
+        return Collections.unmodifiableList(Arrays.asList(packages));
+    }
+
+    /**
+     * Loads the index of a plugin, or builds it if there is none yet or if its jars changed since.
+     * @param dir where the plugin is exploded
+     * @param paths the classpath of the plugin
+     * @return null if disabled, or if the classpath includes anything but jars
+     */
+    static @CheckForNull PluginClassIndex load(File dir, List<File> paths) {
+        if (DISABLED) {
+            return null;
+        }
+        for (File path : paths) {
+            if (!path.isFile()) {
+                // a directory of classes, which might change anytime
+                return null;
+            }
+        }
+        long checksum = checksum(paths);
+        File file = new File(dir, FILE_NAME);
+        if (file.isFile()) {
+            try {
+                PluginClassIndex index = read(file, checksum);
+                if (index != null) {
+                    return index;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to read " + file, e);
+            }
+        }
+        try {
+            PluginClassIndex index = build(paths);
+            try {
+                index.write(file, checksum);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to write " + file, e);
+            }
+            return index;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to index " + paths, e);
+            return null;
+        }
+    }
+
+    private static long checksum(List<File> paths) {
+        CRC32 crc = new CRC32();
+        for (File path : paths) {
+            crc.update((path.getName() + '\n' + path.length() + '\n' + path.lastModified() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    static PluginClassIndex build(List<File> paths) throws IOException {
+        int[] hashes = new int[1024];
+        int size = 0;
+        SortedSet<String> packages = new TreeSet<>();
+        for (File path : paths) {
+            try (ZipFile jar = new ZipFile(path)) {
+                Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    if (size + 2 > hashes.length) {
+                        hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                    }
+                    String name = entries.nextElement().getName();
+                    hashes[size++] = name.hashCode();
+                    packages.add(AntClassLoader.directoryOf(name));
+                    if (name.endsWith("/")) {
+                        // a directory is found by its name without the slash as well
+                        hashes[size++] = name.substring(0, name.length() - 1).hashCode();
+                    }
+                }
+            }
+        }
+        Arrays.sort(hashes, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || hashes[distinct - 1] != hashes[i]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return new PluginClassIndex(Arrays.copyOf(hashes, distinct), packages.toArray(new String[0]));
+    }
+
+    /**
+     * @return null if the index is of other jars
+     */
+    private static @CheckForNull PluginClassIndex read(File file, long checksum) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath());
+             CheckedInputStream cis = new CheckedInputStream(new BufferedInputStream(is), new CRC32());
+             DataInputStream in = new DataInputStream(cis)) {
+            if (in.readInt() != MAGIC || in.readLong() != checksum) {
+                return null;
+            }
+            int size = in.readInt();
+            if (size < 0 || size > file.length() / Integer.BYTES) {
+                throw new IOException("corrupt");
+            }
+            int[] hashes = new int[size];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = in.readInt();
+            }
+            size = in.readInt();
+            if (size < 0 || size > file.length()) {
+                throw new IOException("corrupt");
+            }
+            String[] packages = new String[size];
+            for (int i = 0; i < packages.length; i++) {
+                packages[i] = in.readUTF();
+            }
+            long expected = cis.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("corrupt");
+            }
+            return new PluginClassIndex(hashes, packages);
+        }
+    }
+
+    private void write(File file, long checksum) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath());
+             CheckedOutputStream cos = new CheckedOutputStream(new BufferedOutputStream(os), new CRC32());
+             DataOutputStream out = new DataOutputStream(cos)) {
+            out.writeInt(MAGIC);
+            out.writeLong(checksum);
+            out.writeInt(hashes.length);
+            for (int hash : hashes) {
+                out.writeInt(hash);
+            }
+            out.writeInt(packages.length);
+            for (String pkg : packages) {
+                out.writeUTF(pkg);
+            }
+            out.flush();
+            out.writeLong(cos.getChecksum().getValue());
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(PluginClassIndex.class.getName());
+}
@@ -64,6 +64,7 @@ import jenkins.model.Jenkins;
 import jenkins.plugins.DetachedPluginsUtil;
 import jenkins.security.CustomClassFilter;
 import jenkins.telemetry.impl.java11.MissingClassTelemetry;
+import jenkins.util.AntClassLoader;
 import jenkins.util.SystemProperties;
 import jenkins.util.io.OnMaster;
 import jenkins.util.xml.RestrictiveEntityResolver;
@@ -126,8 +127,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -288,7 +291,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
      */
     protected final List<PluginWrapper> activePlugins = new CopyOnWriteArrayList<>();
 
-    protected final List<FailedPlugin> failedPlugins = new ArrayList<>();
+    protected final List<FailedPlugin> failedPlugins = new CopyOnWriteArrayList<>();
 
     /**
      * Plug-in root directory.
@@ -425,38 +428,52 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                             TaskGraphBuilder g = new TaskGraphBuilder();
 
                             final Map<String,File> inspectedShortNames = new HashMap<>();
-
-                            for( final File arc : archives ) {
-                                g.followedBy().notFatal().attains(PLUGINS_LISTED).add("Inspecting plugin " + arc, new Executable() {
+                            final PluginWrapper[] inspected = new PluginWrapper[archives.size()];
+                            final List<Handle> inspecting = new ArrayList<>();
+
+                            // plugins get exploded independently of one another, and registered in the order they were listed
+                            for (int i = 0; i < archives.size(); i++) {
+                                final File arc = archives.get(i);
+                                final int index = i;
+                                inspecting.add((SERIAL_PLUGIN_LOAD ? g.followedBy() : g).notFatal().attains(PLUGINS_LISTED).add("Inspecting plugin " + arc, new Executable() {
                                     public void run(Reactor session1) throws Exception {
                                         try {
-                                            PluginWrapper p = strategy.createPluginWrapper(arc);
-                                            if (isDuplicate(p)) return;
-
-                                            p.isBundled = containsHpiJpi(bundledPlugins, arc.getName());
-                                            plugins.add(p);
+                                            inspected[index] = strategy.createPluginWrapper(arc);
                                         } catch (IOException e) {
                                             failedPlugins.add(new FailedPlugin(arc.getName(),e));
                                             throw e;
                                         }
                                     }
+                                }));
+                            }
 
-                                    /**
-                                     * Inspects duplication. this happens when you run hpi:run on a bundled plugin,
-                                     * as well as putting numbered jpi files, like "cobertura-1.0.jpi" and "cobertura-1.1.jpi"
-                                     */
-                                    private boolean isDuplicate(PluginWrapper p) {
-                                        String shortName = p.getShortName();
-                                        if (inspectedShortNames.containsKey(shortName)) {
-                                            LOGGER.info("Ignoring "+arc+" because "+inspectedShortNames.get(shortName)+" is already loaded");
-                                            return true;
-                                        }
+                            g.requires(inspecting.toArray(new Handle[0])).attains(PLUGINS_LISTED).add("Registering plugins", new Executable() {
+                                public void run(Reactor session1) throws Exception {
+                                    for (int i = 0; i < inspected.length; i++) {
+                                        PluginWrapper p = inspected[i];
+                                        File arc = archives.get(i);
+                                        if (p == null || isDuplicate(p, arc)) continue;
 
-                                        inspectedShortNames.put(shortName,arc);
-                                        return false;
+                                        p.isBundled = containsHpiJpi(bundledPlugins, arc.getName());
+                                        plugins.add(p);
+                                    }
+                                }
+
+                                /**
+                                 * Inspects duplication. this happens when you run hpi:run on a bundled plugin,
+                                 * as well as putting numbered jpi files, like "cobertura-1.0.jpi" and "cobertura-1.1.jpi"
+                                 */
+                                private boolean isDuplicate(PluginWrapper p, File arc) {
+                                    String shortName = p.getShortName();
+                                    if (inspectedShortNames.containsKey(shortName)) {
+                                        LOGGER.info("Ignoring "+arc+" because "+inspectedShortNames.get(shortName)+" is already loaded");
+                                        return true;
                                     }
-                                });
-                            }
+
+                                    inspectedShortNames.put(shortName,arc);
+                                    return false;
+                                }
+                            });
 
                             g.followedBy().attains(PLUGINS_LISTED).add("Checking cyclic dependencies", new Executable() {
                                 /**
@@ -493,13 +510,17 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                                             }
 
                                         };
-                                        cgd.run(getPlugins());
+                                        // sorted so that the order plugins get loaded in does not depend on the order they were inspected in
+                                        List<PluginWrapper> byName = new ArrayList<>(getPlugins());
+                                        byName.sort(Comparator.comparing(PluginWrapper::getShortName));
+                                        cgd.run(byName);
 
                                         // obtain topologically sorted list and overwrite the list
                                         for (PluginWrapper p : cgd.getSorted()) {
                                             if(p.isActive())
                                                 activePlugins.add(p);
                                         }
+                                        activePluginsChanged();
                                     } catch (CycleDetectedException e) { // TODO this should be impossible, since we override reactOnCycle to not throw the exception
                                         stop(); // disable all plugins since classloading from them can lead to StackOverflow
                                         throw e;    // let Hudson fail
@@ -538,9 +559,12 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                     Jenkins.get().lookup.set(PluginInstanceStore.class, new PluginInstanceStore());
                     TaskGraphBuilder g = new TaskGraphBuilder();
 
-                    // schedule execution of loading plugins
-                    for (final PluginWrapper p : activePlugins.toArray(new PluginWrapper[0])) {
-                        g.followedBy().notFatal().attains(PLUGINS_PREPARED).add(String.format("Loading plugin %s v%s (%s)", p.getLongName(), p.getVersion(), p.getShortName()), new Executable() {
+                    final PluginWrapper[] sorted = activePlugins.toArray(new PluginWrapper[0]);
+
+                    // schedule execution of loading plugins, each as soon as those it depends on are loaded
+                    final Map<String, Handle> loading = new HashMap<>();
+                    for (final PluginWrapper p : sorted) {
+                        loading.put(p.getShortName(), requiresDependencies(g, p, loading).notFatal().attains(PLUGINS_PREPARED).add(String.format("Loading plugin %s v%s (%s)", p.getLongName(), p.getVersion(), p.getShortName()), new Executable() {
                             public void run(Reactor session) throws Exception {
                                 try {
                                     p.resolvePluginDependencies();
@@ -549,21 +573,41 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                                     failedPlugins.add(new FailedPlugin(p.getShortName(), e));
                                     activePlugins.remove(p);
                                     plugins.remove(p);
+                                    activePluginsChanged();
                                     LOGGER.log(Level.SEVERE, "Failed to install {0}: {1}", new Object[] { p.getShortName(), e.getMessage() });
                                     return;
                                 } catch (IOException e) {
                                     failedPlugins.add(new FailedPlugin(p.getShortName(), e));
                                     activePlugins.remove(p);
                                     plugins.remove(p);
+                                    activePluginsChanged();
                                     throw e;
                                 }
                             }
-                        });
+                        }));
                     }
 
-                    // schedule execution of initializing plugins
-                    for (final PluginWrapper p : activePlugins.toArray(new PluginWrapper[0])) {
-                        g.followedBy().notFatal().attains(PLUGINS_STARTED).add("Initializing plugin " + p.getShortName(), new Executable() {
+                    Handle loaded = (SERIAL_PLUGIN_LOAD ? g.followedBy() : g.requires(loading.values().toArray(new Handle[0]))).attains(PLUGINS_PREPARED).add("Loaded plugins", new Executable() {
+                        public void run(Reactor session) throws Exception {
+                            // plugins load in whichever order threads get to them, so sum up in dependency order
+                            List<String> failed = new ArrayList<>();
+                            for (PluginWrapper p : sorted) {
+                                if (!activePlugins.contains(p)) {
+                                    failed.add(p.getShortName());
+                                }
+                            }
+                            if (!failed.isEmpty()) {
+                                LOGGER.log(Level.WARNING, "Loaded {0} of {1} plugins; failed to load {2}", new Object[] {sorted.length - failed.size(), sorted.length, failed});
+                            } else {
+                                LOGGER.log(Level.FINE, "Loaded {0} plugins", sorted.length);
+                            }
+                        }
+                    });
+
+                    // schedule execution of initializing plugins, each once those it depends on are initialized
+                    final Map<String, Handle> initializing = new HashMap<>();
+                    for (final PluginWrapper p : sorted) {
+                        initializing.put(p.getShortName(), requiresDependencies(g.requires(loaded), p, initializing).notFatal().attains(PLUGINS_STARTED).add("Initializing plugin " + p.getShortName(), new Executable() {
                             public void run(Reactor session) throws Exception {
                                 if (!activePlugins.contains(p)) {
                                     return;
@@ -574,13 +618,14 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                                     failedPlugins.add(new FailedPlugin(p.getShortName(), e));
                                     activePlugins.remove(p);
                                     plugins.remove(p);
+                                    activePluginsChanged();
                                     throw e;
                                 }
                             }
-                        });
+                        }));
                     }
 
-                    g.followedBy().attains(PLUGINS_STARTED).add("Discovering plugin initialization tasks", new Executable() {
+                    (SERIAL_PLUGIN_LOAD ? g.followedBy() : g.requires(loaded).requires(initializing.values().toArray(new Handle[0]))).attains(PLUGINS_STARTED).add("Discovering plugin initialization tasks", new Executable() {
                         public void run(Reactor reactor) throws Exception {
                             // rescan to find plugin-contributed @Initializer
                             reactor.addAll(initializerFinder.discoverTasks(reactor));
@@ -602,7 +647,28 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         }});
     }
 
-    void considerDetachedPlugin(String shortName) {
+    /**
+     * Makes the next task require the tasks of the same kind for the plugins a given plugin depends on,
+     * or, with {@link #SERIAL_PLUGIN_LOAD}, simply the task added last.
+     * @param tasks the tasks added so far, by the short name of their plugin; plugins which are not active have none
+     */
+    private static TaskGraphBuilder requiresDependencies(TaskGraphBuilder g, PluginWrapper p, Map<String, TaskGraphBuilder.Handle> tasks) {
+        if (SERIAL_PLUGIN_LOAD) {
+            return g.followedBy();
+        }
+        for (List<Dependency> dependencies : Arrays.asList(p.getDependencies(), p.getOptionalDependencies())) {
+            for (Dependency d : dependencies) {
+                TaskGraphBuilder.Handle task = tasks.get(d.shortName);
+                if (task != null) {
+                    g.requires(task);
+                }
+            }
+        }
+        return g;
+    }
+
+    /** Plugins get inspected concurrently, and so may ask for the same detached plugin at once. */
+    synchronized void considerDetachedPlugin(String shortName) {
         if (new File(rootDir, shortName + ".jpi").isFile() ||
             new File(rootDir, shortName + ".hpi").isFile() ||
             new File(rootDir, shortName + ".jpl").isFile() ||
@@ -918,9 +984,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             plugins.add(p);
             if (p.isActive())
                 activePlugins.add(p);
-            synchronized (((UberClassLoader) uberClassLoader).loaded) {
-                ((UberClassLoader) uberClassLoader).loaded.clear();
-            }
+            activePluginsChanged();
 
             // TODO antimodular; perhaps should have a PluginListener to complement ExtensionListListener?
             CustomClassFilter.Contributed.load();
@@ -939,6 +1003,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                 failedPlugins.add(new FailedPlugin(sn, e));
                 activePlugins.remove(p);
                 plugins.remove(p);
+                activePluginsChanged();
                 throw new IOException("Failed to install "+ sn +" plugin",e);
             }
 
@@ -1336,6 +1401,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             p.releaseClassLoader();
         }
         activePlugins.clear();
+        activePluginsChanged();
         // Work around a bug in commons-logging.
         // See http://www.szegedi.org/articles/memleak.html
         LogFactory.release(uberClassLoader);
@@ -1995,6 +2061,14 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         private ConcurrentMap<String, WeakReference<Class>> generatedClasses = new ConcurrentHashMap<>();
         /** Cache of loaded, or known to be unloadable, classes. */
         private final Map<String,Class<?>> loaded = new HashMap<>();
+        /**
+         * For each directory in the jars of active plugins, the plugins with entries in it, in order.
+         * Null until needed again after the active plugins change; {@link #UNINDEXED} if some plugin cannot tell.
+         */
+        private volatile Map<String, List<PluginWrapper>> packageIndex;
+        private final Object packageIndexLock = new Object();
+        /** Resources known not to be in any plugin, as Stapler keeps looking for views which do not exist. */
+        private final Set<String> missingResources = ConcurrentHashMap.newKeySet();
 
         public UberClassLoader() {
             super(PluginManager.class.getClassLoader());
@@ -2027,7 +2101,7 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                 }
             }
             if (FAST_LOOKUP) {
-                for (PluginWrapper p : activePlugins) {
+                for (PluginWrapper p : pluginsFor(name.replace('.', '/') + ".class")) {
                     try {
                         Class<?> c = ClassLoaderReflectionToolkit._findLoadedClass(p.classLoader, name);
                         if (c != null) {
@@ -2036,6 +2110,10 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
                             }
                             return c;
                         }
+                        // a class may have been defined without being in the jars, as generated classes are
+                        if (p.classIndex != null && !p.classIndex.mayContainClass(name)) {
+                            continue;
+                        }
                         // calling findClass twice appears to cause LinkageError: duplicate class def
                         c = ClassLoaderReflectionToolkit._findClass(p.classLoader, name);
                         synchronized (loaded) {
@@ -2067,11 +2145,25 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         @Override
         protected URL findResource(String name) {
             if (FAST_LOOKUP) {
-                    for (PluginWrapper p : activePlugins) {
+                    if (missingResources.contains(name)) {
+                        return null;
+                    }
+                    for (PluginWrapper p : pluginsFor(name)) {
+                        if (p.classIndex != null && !p.classIndex.mayContain(name)) {
+                            continue;
+                        }
                         URL url = ClassLoaderReflectionToolkit._findResource(p.classLoader, name);
                         if(url!=null)
                             return url;
                     }
+                    Map<String, List<PluginWrapper>> index = packageIndex;
+                    if (index != null && index != UNINDEXED) {
+                        // only once every plugin is known not to have it, as a plugin with classes in a directory may get them anytime
+                        if (missingResources.size() >= MAX_MISSING_RESOURCES) {
+                            missingResources.clear();
+                        }
+                        missingResources.add(name);
+                    }
             } else {
                 for (PluginWrapper p : activePlugins) {
                     URL url = p.classLoader.getResource(name);
@@ -2086,7 +2178,11 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
         protected Enumeration<URL> findResources(String name) throws IOException {
             List<URL> resources = new ArrayList<>();
             if (FAST_LOOKUP) {
-                    for (PluginWrapper p : activePlugins) {
+                    for (PluginWrapper p : pluginsFor(name)) {
+                        if (p.classIndex != null && !p.classIndex.mayContain(name)) {
+                            // as for SezPoz indexes, which only some plugins have
+                            continue;
+                        }
                         resources.addAll(Collections.list(ClassLoaderReflectionToolkit._findResources(p.classLoader, name)));
                     }
             } else {
@@ -2097,14 +2193,84 @@ public abstract class PluginManager extends AbstractModelObject implements OnMas
             return Collections.enumeration(resources);
         }
 
+        /**
+         * Finds the active plugins which may have a class or resource, going by its directory.
+         */
+        private Iterable<PluginWrapper> pluginsFor(String name) {
+            Map<String, List<PluginWrapper>> index = packageIndex;
+            if (index == null) {
+                synchronized (packageIndexLock) {
+                    index = packageIndex;
+                    if (index == null) {
+                        index = buildPackageIndex();
+                        packageIndex = index;
+                    }
+                }
+            }
+            if (index == UNINDEXED) {
+                return activePlugins;
+            }
+            List<PluginWrapper> plugins = index.get(AntClassLoader.directoryOf(name));
+            return plugins != null ? plugins : Collections.emptyList();
+        }
+
+        /**
+         * Builds from the {@link PluginWrapper#classIndex} of each plugin, which is read from disk, rather than opening every jar.
+         */
+        private Map<String, List<PluginWrapper>> buildPackageIndex() {
+            Map<String, List<PluginWrapper>> index = new HashMap<>();
+            for (PluginWrapper p : activePlugins) {
+                if (p.classIndex == null) {
+                    return UNINDEXED;
+                }
+                for (String pkg : p.classIndex.getPackages()) {
+                    index.computeIfAbsent(pkg, k -> new ArrayList<>(1)).add(p);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Forgets where classes and resources were found, or that they were not, once plugins get activated or deactivated.
+         */
+        void activePluginsChanged() {
+            synchronized (packageIndexLock) {
+                packageIndex = null;
+            }
+            missingResources.clear();
+            synchronized (loaded) {
+                loaded.clear();
+            }
+        }
+
         @Override
         public String toString() {
             // only for debugging purpose
             return "classLoader " +  getClass().getName();
         }
     }
+
+    private static final Map<String, List<PluginWrapper>> UNINDEXED = Collections.unmodifiableMap(new HashMap<>());
+
+    /**
+     * How many resources {@link UberClassLoader} remembers not to be found, before starting over.
+     */
+    private static final int MAX_MISSING_RESOURCES = SystemProperties.getInteger(PluginManager.class.getName() + ".maxMissingResources", 10000);
+
+    private void activePluginsChanged() {
+        if (uberClassLoader instanceof UberClassLoader) {
+            ((UberClassLoader) uberClassLoader).activePluginsChanged();
+        }
+    }
     public static boolean FAST_LOOKUP = !SystemProperties.getBoolean(PluginManager.class.getName()+".noFastLookup");
 
+    /**
+     * Whether to inspect, load and initialize plugins one after another, as listed, rather than each as soon as those it depends on are done.
+     * Plugins with a {@link Plugin#start} which relies on plugins it does not declare a dependency on may need this.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ boolean SERIAL_PLUGIN_LOAD = SystemProperties.getBoolean(PluginManager.class.getName() + ".serialPluginLoad");
+
     /** @deprecated in Jenkins 2.222 use {@link Jenkins#ADMINISTER} instead */
     @Deprecated
     public static final Permission UPLOAD_PLUGINS = new Permission(Jenkins.PERMISSIONS, "UploadPlugins", Messages._PluginManager_UploadPluginsPermission_Description(),Jenkins.ADMINISTER,PermissionScope.JENKINS);
@@ -135,6 +135,11 @@ public class PluginWrapper implements Comparable<PluginWrapper>, ModelObject {
      */
     public final ClassLoader classLoader;
 
+    /**
+     * Names of the classes and resources {@link #classLoader} has itself, if known.
+     */
+    @CheckForNull PluginClassIndex classIndex;
+
     /**
      * Base URL for loading static resources from this plugin.
      * Null if disabled. The static resources are mapped under
@@ -29,12 +29,17 @@ import com.thoughtworks.xstream.converters.DataHolder;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
 import com.thoughtworks.xstream.io.HierarchicalStreamDriver;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.StreamException;
+import com.thoughtworks.xstream.io.xml.WstxDriver;
 import hudson.diagnosis.OldDataMonitor;
 import hudson.model.Descriptor;
 import hudson.util.AtomicFileWriter;
 import hudson.util.XStream2;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
@@ -43,6 +48,8 @@ import org.xml.sax.ext.Locator2;
 import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -52,6 +59,7 @@ import java.io.Reader;
 import java.io.Serializable;
 import java.io.Writer;
 import java.io.StringWriter;
+import java.lang.ref.SoftReference;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Map;
@@ -145,6 +153,17 @@ public final class XmlFile {
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.fine("Reading "+file);
         }
+        if (STREAMING) {
+            HierarchicalStreamReader reader = null;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                reader = STREAMING_DRIVER.createReader(in);
+                return xs.unmarshal(reader);
+            } catch (RuntimeException | Error e) {
+                fallBack(e);
+            } finally {
+                close(reader);
+            }
+        }
         try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
             return xs.fromXML(in);
         } catch (RuntimeException | Error e) {
@@ -172,39 +191,177 @@ public final class XmlFile {
     }
 
     private Object unmarshal(Object o, boolean nullOut) throws IOException {
+        if (STREAMING) {
+            HierarchicalStreamReader reader = null;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                try {
+                    reader = STREAMING_DRIVER.createReader(in);
+                } catch (RuntimeException | Error e) {
+                    // nothing has been read into o yet, so the default parser may still try
+                    fallBack(e);
+                }
+                if (reader != null) {
+                    return unmarshal(reader, o, nullOut);
+                }
+            } catch (RuntimeException | Error e) {
+                // unlike read(), no fallback from here: o may already be partly overwritten
+                throw new IOException("Unable to read "+file,e);
+            } finally {
+                close(reader);
+            }
+        }
         try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
             // TODO: expose XStream the driver from XStream
-            if (nullOut) {
-                return ((XStream2) xs).unmarshal(DEFAULT_DRIVER.createReader(in), o, null, true);
-            } else {
-                return xs.unmarshal(DEFAULT_DRIVER.createReader(in), o);
-            }
+            return unmarshal(DEFAULT_DRIVER.createReader(in), o, nullOut);
         } catch (RuntimeException | Error e) {
             throw new IOException("Unable to read "+file,e);
         }
     }
 
+    private Object unmarshal(HierarchicalStreamReader reader, Object o, boolean nullOut) {
+        if (nullOut) {
+            return ((XStream2) xs).unmarshal(reader, o, null, true);
+        } else {
+            return xs.unmarshal(reader, o);
+        }
+    }
+
+    /**
+     * Lets the file be read again with {@link #DEFAULT_DRIVER} if {@link #STREAMING_DRIVER} could not parse it,
+     * which is more lenient about what it accepts.
+     */
+    private void fallBack(Throwable e) throws IOException {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof StreamException || t instanceof XMLStreamException) {
+                LOGGER.log(Level.FINE, "Reading " + file + " again with the default parser", e);
+                return;
+            }
+        }
+        throw new IOException("Unable to read "+file,e);
+    }
+
+    private static void close(HierarchicalStreamReader reader) {
+        if (reader != null) {
+            try {
+                // lets the parser recycle its buffers
+                reader.close();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to close the parser", e);
+            }
+        }
+    }
+
     public void write( Object o ) throws IOException {
         mkdirs();
         AtomicFileWriter w = new AtomicFileWriter(file);
+        ReusableBufferWriter bw = new ReusableBufferWriter(w);
         try {
-            w.write("<?xml version='1.1' encoding='UTF-8'?>\n");
+            bw.write("<?xml version='1.1' encoding='UTF-8'?>\n");
             beingWritten.put(o, null);
             writing.set(file);
             try {
-                xs.toXML(o, w);
+                xs.toXML(o, bw);
             } finally {
                 beingWritten.remove(o);
                 writing.set(null);
             }
+            bw.drain();
             w.commit();
         } catch(RuntimeException e) {
             throw new IOException(e);
         } finally {
+            bw.release();
             w.abort();
         }
     }
 
+    /**
+     * Collects what XStream writes in a buffer reused by the thread, since it otherwise writes and {@linkplain Writer#flush flushes}
+     * a kilobyte at a time, each of which {@link AtomicFileWriter} encodes and writes to the file separately.
+     * Unlike {@link java.io.BufferedWriter} this does not pass flushes on, since the file is only complete once committed anyway.
+     */
+    private static final class ReusableBufferWriter extends Writer {
+        private static final int SIZE = 64 * 1024;
+        private static final ThreadLocal<SoftReference<char[]>> BUFFERS = new ThreadLocal<>();
+
+        private final Writer out;
+        private char[] buf;
+        private int count;
+
+        ReusableBufferWriter(Writer out) {
+            this.out = out;
+            SoftReference<char[]> ref = BUFFERS.get();
+            buf = ref != null ? ref.get() : null;
+            if (buf == null) {
+                buf = new char[SIZE];
+            } else {
+                // in case something gets written to another file while this one is
+                BUFFERS.set(null);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (len >= buf.length) {
+                drain();
+                out.write(cbuf, off, len);
+                return;
+            }
+            if (len > buf.length - count) {
+                drain();
+            }
+            System.arraycopy(cbuf, off, buf, count, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buf.length) {
+                    drain();
+                }
+                int n = Math.min(len, buf.length - count);
+                str.getChars(off, off + n, buf, count);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (count == buf.length) {
+                drain();
+            }
+            buf[count++] = (char) c;
+        }
+
+        void drain() throws IOException {
+            if (count > 0) {
+                out.write(buf, 0, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() {
+            // see class Javadoc
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+        }
+
+        /** Hands the buffer back for the next file this thread writes. */
+        void release() {
+            if (buf != null) {
+                BUFFERS.set(new SoftReference<>(buf));
+                buf = null;
+            }
+        }
+    }
+
     /**
      * Provides an XStream replacement for an object unless a call to {@link #write} is currently in progress.
      * As per JENKINS-45892 this may be used by any class which expects to be written at top level to an XML file
@@ -360,6 +517,26 @@ public final class XmlFile {
 
     private static final HierarchicalStreamDriver DEFAULT_DRIVER = XStream2.getDefaultDriver();
 
+    /**
+     * Whether to read files with a StAX parser, which is quicker than {@link #DEFAULT_DRIVER} on large files
+     * and keeps its buffers per thread rather than allocating them for each file.
+     * Files it fails to parse are read again the usual way by {@link #read}, but by {@link #unmarshal} only
+     * if it failed before reaching the root element, as the object being read into is otherwise already partly overwritten.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ boolean STREAMING = SystemProperties.getBoolean(XmlFile.class.getName() + ".streaming");
+
+    private static final HierarchicalStreamDriver STREAMING_DRIVER = new WstxDriver() {
+        @Override
+        protected XMLInputFactory createInputFactory() {
+            XMLInputFactory factory = super.createInputFactory();
+            // like the default driver, never look at DTDs
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    };
+
     private static final XStream DEFAULT_XSTREAM = new XStream2(DEFAULT_DRIVER);
 
     static {
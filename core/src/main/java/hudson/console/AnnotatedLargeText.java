@@ -35,17 +35,24 @@ import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.framework.io.ByteBuffer;
+import org.kohsuke.stapler.framework.io.CharSpool;
 import org.kohsuke.stapler.framework.io.LargeText;
+import org.kohsuke.stapler.framework.io.LineEndNormalizingWriter;
+import org.kohsuke.stapler.framework.io.WriterOutputStream;
 
 import javax.crypto.Cipher;
+import javax.servlet.http.HttpServletResponse;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -81,14 +88,21 @@ public class AnnotatedLargeText<T> extends LargeText {
      */
     private T context;
 
+    /**
+     * The log, if it is a {@link BlockCompressedLog}, which {@link LargeText} cannot read.
+     */
+    private final File blocks;
+
     public AnnotatedLargeText(File file, Charset charset, boolean completed, T context) {
         super(file, charset, completed, true);
         this.context = context;
+        this.blocks = BlockCompressedLog.isCompressed(file) ? file : null;
     }
 
     public AnnotatedLargeText(ByteBuffer memory, Charset charset, boolean completed, T context) {
         super(memory, charset, completed);
         this.context = context;
+        this.blocks = null;
     }
 
     public void doProgressiveHtml(StaplerRequest req, StaplerResponse rsp) throws IOException {
@@ -112,6 +126,109 @@ public class AnnotatedLargeText<T> extends LargeText {
         return req!=null && req.getAttribute("html")!=null;
     }
 
+    /**
+     * Same as {@link LargeText#doProgressText}, except that a {@link BlockCompressedLog} is measured uncompressed.
+     */
+    @Override
+    public void doProgressText(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        if (blocks == null) {
+            super.doProgressText(req, rsp);
+            return;
+        }
+        setContentType(rsp);
+        rsp.setStatus(HttpServletResponse.SC_OK);
+
+        if (!blocks.exists()) {
+            // file doesn't exist yet
+            rsp.addHeader("X-Text-Size", "0");
+            rsp.addHeader("X-More-Data", "true");
+            return;
+        }
+
+        long start = 0;
+        String s = req.getParameter("start");
+        if (s != null) {
+            start = Long.parseLong(s);
+        }
+        if (length() < start) {
+            // text rolled over
+            start = 0;
+        }
+
+        CharSpool spool = new CharSpool();
+        long r = writeLogTo(start, spool);
+
+        rsp.addHeader("X-Text-Size", String.valueOf(r));
+        if (!isComplete()) {
+            rsp.addHeader("X-More-Data", "true");
+        }
+
+        Writer w = r - start > 4096 ? rsp.getCompressedWriter(req) : rsp.getWriter();
+        spool.writeTo(new LineEndNormalizingWriter(w));
+        w.close();
+    }
+
+    @Override
+    public long length() {
+        if (blocks == null) {
+            return super.length();
+        }
+        try {
+            return BlockCompressedLog.length(blocks);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public Reader readAll() throws IOException {
+        if (blocks == null) {
+            return super.readAll();
+        }
+        return new InputStreamReader(BlockCompressedLog.open(blocks, 0), charset);
+    }
+
+    /**
+     * Calls {@link LargeText#writeLogTo(long, OutputStream)}, or reads the {@link BlockCompressedLog} in the same way:
+     * up to the last complete line while the log is still being written.
+     */
+    private long writeBytesTo(long start, OutputStream out) throws IOException {
+        if (blocks == null) {
+            return super.writeLogTo(start, out);
+        }
+        if (!blocks.exists()) {
+            return start;
+        }
+        boolean complete = isComplete();
+        long pos = start;
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        try (InputStream in = BlockCompressedLog.open(blocks, start)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                if (complete) {
+                    out.write(buf, 0, n);
+                    pos += n;
+                    continue;
+                }
+                int end = n;
+                while (end > 0 && buf[end - 1] != '\n') {
+                    end--;
+                }
+                if (end > 0) {
+                    partial.writeTo(out);
+                    pos += partial.size();
+                    partial.reset();
+                    out.write(buf, 0, end);
+                    pos += end;
+                }
+                partial.write(buf, end, n - end);
+            }
+        }
+        out.flush();
+        return pos;
+    }
+
     @Override
     protected void setContentType(StaplerResponse rsp) {
         rsp.setContentType(isHtml() ? "text/html;charset=UTF-8" : "text/plain;charset=UTF-8");
@@ -151,6 +268,8 @@ public class AnnotatedLargeText<T> extends LargeText {
     public long writeLogTo(long start, Writer w) throws IOException {
         if (isHtml())
             return writeHtmlTo(start, w);
+        else if (blocks != null)
+            return writeBytesTo(start, new WriterOutputStream(w, charset));
         else
             return super.writeLogTo(start,w);
     }
@@ -162,7 +281,7 @@ public class AnnotatedLargeText<T> extends LargeText {
     @CheckReturnValue
     @Override
     public long writeLogTo(long start, OutputStream out) throws IOException {
-        return super.writeLogTo(start, new PlainTextConsoleOutputStream(out));
+        return writeBytesTo(start, new PlainTextConsoleOutputStream(out));
     }
 
     /**
@@ -171,14 +290,14 @@ public class AnnotatedLargeText<T> extends LargeText {
      */
     @CheckReturnValue
     public long writeRawLogTo(long start, OutputStream out) throws IOException {
-        return super.writeLogTo(start, out);
+        return writeBytesTo(start, out);
     }
 
     @CheckReturnValue
     public long writeHtmlTo(long start, Writer w) throws IOException {
         ConsoleAnnotationOutputStream<T> caw = new ConsoleAnnotationOutputStream<>(
                 w, createAnnotator(Stapler.getCurrentRequest()), context, charset);
-        long r = super.writeLogTo(start,caw);
+        long r = writeBytesTo(start,caw);
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Cipher sym = PASSING_ANNOTATOR.encrypt();
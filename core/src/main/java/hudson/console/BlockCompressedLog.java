@@ -0,0 +1,549 @@
+package hudson.console;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import jenkins.model.RunSummary;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Build log compressed in independent blocks, so that it can be read from any offset by only inflating the block containing it.
+ *
+ * <p>
+ * The log file is a sequence of blocks, each made of the length of its contents, the length of its compressed form
+ * (both as big-endian ints), then its contents deflated without any header.
+ * Blocks hold up to {@link #BLOCK_SIZE} bytes, but are written sooner when output stops for a second,
+ * so that the log of a running build can be followed.
+ * Next to the log, a file named like it with {@code -offsets} appended holds where each block ends, both uncompressed and compressed, as big-endian longs.
+ * Anything past the last offset recorded is found by reading block headers, so that the log remains readable if the offsets are missing or behind.
+ *
+ * <p>
+ * When {@link #ENABLED}, builds write their log this way, and {@link Converter} compresses plain logs of completed builds in the background.
+ * Note that plugins reading {@code Run.getLogFile()} directly rather than through {@code Run.getLogInputStream()} or {@code Run.getLogText()} cannot read such logs.
+ */
+@Restricted(NoExternalUse.class)
+public final class BlockCompressedLog {
+
+    /**
+     * Whether new logs should be written compressed, and older ones converted.
+     */
+    public static /* Script Console modifiable */ boolean ENABLED = SystemProperties.getBoolean(BlockCompressedLog.class.getName() + ".enabled");
+
+    /**
+     * Largest uncompressed size of a block.
+     */
+    public static /* Script Console modifiable */ int BLOCK_SIZE = SystemProperties.getInteger(BlockCompressedLog.class.getName() + ".blockSize", 64 * 1024);
+
+    /**
+     * Name of the compressed log in a build directory, used in place of {@code log}.
+     */
+    public static final String FILE_NAME = "log.blocks";
+
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private static final long FLUSH_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    private BlockCompressedLog() {}
+
+    public static boolean isCompressed(@Nonnull File log) {
+        return log.getName().equals(FILE_NAME);
+    }
+
+    private static File offsetsFile(File log) {
+        return new File(log.getParentFile(), log.getName() + "-offsets");
+    }
+
+    /**
+     * Starts writing a log, appending to it if it exists.
+     */
+    public static @Nonnull OutputStream write(@Nonnull File log) throws IOException {
+        return new Writer(log);
+    }
+
+    private static final class Writer extends OutputStream {
+        private final FileChannel data;
+        private final FileChannel offsets;
+        private final byte[] block = new byte[Math.max(1024, BLOCK_SIZE)];
+        private byte[] compressed = new byte[block.length + block.length / 8 + 64];
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final ByteBuffer entry = ByteBuffer.allocate(2 * Long.BYTES);
+        private final ScheduledFuture<?> flusher;
+        private int count;
+        private long uncompressedEnd;
+        private long compressedEnd;
+        private long lastWrite;
+        private boolean closed;
+
+        Writer(File log) throws IOException {
+            data = FileChannel.open(log.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                // appending to an earlier log, such as that of a resumed build: drop any incomplete block, and record the others again
+                Blocks blocks = blocks(log, data);
+                offsets = FileChannel.open(offsetsFile(log).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                try {
+                    for (int i = 0; i < blocks.count; i++) {
+                        appendOffsets(blocks.uncompressedEnds[i], blocks.compressedEnds[i]);
+                    }
+                    uncompressedEnd = blocks.length();
+                    compressedEnd = blocks.count == 0 ? 0 : blocks.compressedEnds[blocks.count - 1];
+                    data.truncate(compressedEnd);
+                    data.position(compressedEnd);
+                } catch (IOException | RuntimeException e) {
+                    offsets.close();
+                    throw e;
+                }
+            } catch (IOException | RuntimeException e) {
+                data.close();
+                throw e;
+            }
+            flusher = Timer.get().scheduleWithFixedDelay(this::flushIfIdle, FLUSH_DELAY, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            ensureOpen();
+            if (count == block.length) {
+                writeBlock();
+            }
+            block[count++] = (byte) b;
+            lastWrite = System.currentTimeMillis();
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (count == block.length) {
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(b, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+            lastWrite = System.currentTimeMillis();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("closed");
+            }
+        }
+
+        /**
+         * Lets readers see output which did not fill a block, once the build stopped writing for a while.
+         */
+        private synchronized void flushIfIdle() {
+            if (!closed && count > 0 && System.currentTimeMillis() - lastWrite >= FLUSH_DELAY) {
+                try {
+                    writeBlock();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to write log", e);
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            deflater.reset();
+            deflater.setInput(block, 0, count);
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            ByteBuffer buf = ByteBuffer.allocate(HEADER + size);
+            buf.putInt(count).putInt(size).put(compressed, 0, size).flip();
+            while (buf.hasRemaining()) {
+                data.write(buf);
+            }
+            uncompressedEnd += count;
+            compressedEnd += HEADER + size;
+            count = 0;
+            // only once the block is there, so that readers never look for it too soon
+            appendOffsets(uncompressedEnd, compressedEnd);
+        }
+
+        private void appendOffsets(long uncompressedEnd, long compressedEnd) throws IOException {
+            entry.clear();
+            entry.putLong(uncompressedEnd).putLong(compressedEnd).flip();
+            while (entry.hasRemaining()) {
+                offsets.write(entry);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            flusher.cancel(false);
+            try {
+                if (count > 0) {
+                    writeBlock();
+                }
+            } finally {
+                closed = true;
+                deflater.end();
+                try {
+                    data.close();
+                } finally {
+                    offsets.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Where blocks start and end, as of when the log was opened.
+     */
+    private static final class Blocks {
+        /** Uncompressed offset where each block ends. */
+        long[] uncompressedEnds = new long[16];
+        /** Compressed offset where each block ends. */
+        long[] compressedEnds = new long[16];
+        int count;
+
+        void add(long uncompressedEnd, long compressedEnd) {
+            if (count == uncompressedEnds.length) {
+                uncompressedEnds = Arrays.copyOf(uncompressedEnds, count * 2);
+                compressedEnds = Arrays.copyOf(compressedEnds, count * 2);
+            }
+            uncompressedEnds[count] = uncompressedEnd;
+            compressedEnds[count] = compressedEnd;
+            count++;
+        }
+
+        long length() {
+            return count == 0 ? 0 : uncompressedEnds[count - 1];
+        }
+
+        /** First block ending after an offset, or {@link #count} if there is none. */
+        int find(long offset) {
+            int i = Arrays.binarySearch(uncompressedEnds, 0, count, offset);
+            // a block ending at the offset is not where it is
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+    }
+
+    private static Blocks blocks(File log, FileChannel channel) throws IOException {
+        Blocks blocks = new Blocks();
+        File offsets = offsetsFile(log);
+        long size = channel.size();
+        if (offsets.isFile()) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(offsets.toPath()))) {
+                byte[] buf = new byte[2 * Long.BYTES];
+                ByteBuffer b = ByteBuffer.wrap(buf);
+                // the last entry may be incomplete while the log is being written
+                for (long n = offsets.length() / buf.length; n > 0; n--) {
+                    if (IOUtils.read(in, buf) < buf.length) {
+                        break;
+                    }
+                    long compressedEnd = b.getLong(Long.BYTES);
+                    if (compressedEnd > size) {
+                        break;
+                    }
+                    blocks.add(b.getLong(0), compressedEnd);
+                }
+            }
+        }
+        // blocks not recorded in the offsets
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        long position = blocks.count == 0 ? 0 : blocks.compressedEnds[blocks.count - 1];
+        while (position + HEADER <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            long end = position + HEADER + header.getInt(Integer.BYTES);
+            if (end > size) {
+                // still being written, or cut short
+                break;
+            }
+            blocks.add(blocks.length() + header.getInt(0), end);
+            position = end;
+        }
+        return blocks;
+    }
+
+    /**
+     * Gets the uncompressed length of a log.
+     */
+    public static long length(@Nonnull File log) throws IOException {
+        if (!log.isFile()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+            return blocks(log, channel).length();
+        }
+    }
+
+    /**
+     * Reads a log, up to what was written of it when opened.
+     * @param offset where to start, in the uncompressed log
+     */
+    public static @Nonnull InputStream open(@Nonnull File log, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ);
+        try {
+            return new Reader(channel, blocks(log, channel), offset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static final class Reader extends InputStream {
+        private final FileChannel channel;
+        private final Blocks blocks;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] block = new byte[0];
+        private ByteBuffer compressed = ByteBuffer.allocate(0);
+        private int next;
+        private int position;
+        private int limit;
+
+        Reader(FileChannel channel, Blocks blocks, long offset) throws IOException {
+            this.channel = channel;
+            this.blocks = blocks;
+            offset = Math.max(0, offset);
+            next = blocks.find(offset);
+            if (next < blocks.count) {
+                long start = next == 0 ? 0 : blocks.uncompressedEnds[next - 1];
+                inflateNext();
+                position = (int) (offset - start);
+            }
+        }
+
+        private boolean inflateNext() throws IOException {
+            if (next >= blocks.count) {
+                return false;
+            }
+            long start = next == 0 ? 0 : blocks.compressedEnds[next - 1];
+            int length = (int) (blocks.uncompressedEnds[next] - (next == 0 ? 0 : blocks.uncompressedEnds[next - 1]));
+            int size = (int) (blocks.compressedEnds[next] - start - HEADER);
+            next++;
+            if (compressed.capacity() < size) {
+                compressed = ByteBuffer.allocate(size);
+            }
+            compressed.clear().limit(size);
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, start + HEADER + compressed.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            if (block.length < length) {
+                block = new byte[length];
+            }
+            inflater.reset();
+            inflater.setInput(compressed.array(), 0, size);
+            try {
+                int n = 0;
+                while (n < length && !inflater.finished()) {
+                    int r = inflater.inflate(block, n, length - n);
+                    if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    n += r;
+                }
+                if (n != length) {
+                    throw new IOException("Corrupt block " + (next - 1));
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt block " + (next - 1), e);
+            }
+            position = 0;
+            limit = length;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (position >= limit) {
+                if (!inflateNext()) {
+                    return -1;
+                }
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position >= limit) {
+                if (!inflateNext()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(block, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            channel.close();
+        }
+    }
+
+    /**
+     * Compresses a plain log, deleting it and its {@link LineIndex} once the compressed log is in place.
+     * @param plain the log of a completed build
+     * @return the compressed log
+     */
+    public static @Nonnull File compress(@Nonnull File plain) throws IOException {
+        File dir = plain.getParentFile();
+        File target = new File(dir, FILE_NAME);
+        File tmp = new File(dir, FILE_NAME + ".tmp");
+        // left over by an earlier attempt
+        delete(tmp);
+        try (InputStream in = Files.newInputStream(plain.toPath());
+             OutputStream out = LineIndex.record(tmp, write(tmp))) {
+            IOUtils.copyLarge(in, out);
+        } catch (IOException | RuntimeException e) {
+            delete(tmp);
+            throw e;
+        }
+        // the offsets and index go first, since they are only used along with the log, and are recovered from it when missing
+        Files.move(offsetsFile(tmp).toPath(), offsetsFile(target).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        LineIndex.rename(tmp, target);
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(plain.toPath());
+        LineIndex.delete(plain);
+        return target;
+    }
+
+    /**
+     * Deletes a compressed log along with the files kept next to it.
+     */
+    static void delete(File log) throws IOException {
+        Files.deleteIfExists(log.toPath());
+        Files.deleteIfExists(offsetsFile(log).toPath());
+        LineIndex.delete(log);
+    }
+
+    /**
+     * Compresses logs of {@link AbstractBuild}s which completed a while ago,
+     * whose log is only read through {@link Run}.
+     */
+    @Extension
+    public static final class Converter extends AsyncPeriodicWork {
+
+        /**
+         * How long a build must have been completed before its log gets compressed.
+         */
+        private static final long QUIET_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+        /**
+         * Logs which turned out not to be convertible, so that their builds are not loaded again on every run.
+         */
+        private final Set<File> skipped = ConcurrentHashMap.newKeySet();
+
+        public Converter() {
+            super("Build log compression");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return HOUR;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws IOException, InterruptedException {
+            if (!ENABLED) {
+                return;
+            }
+            long compressed = 0;
+            long saved = 0;
+            // other kinds of builds, such as Pipeline ones, may keep their log in a file of the same name but read it on their own,
+            // so those of other jobs are not even loaded
+            for (AbstractProject<?, ?> job : Jenkins.get().allItems(AbstractProject.class)) {
+                File[] dirs = job.getBuildDir().listFiles(File::isDirectory);
+                if (dirs == null) {
+                    continue;
+                }
+                for (File dir : dirs) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    File log = new File(dir, "log");
+                    if (!log.isFile() || new File(dir, FILE_NAME).exists() || System.currentTimeMillis() - log.lastModified() < QUIET_PERIOD
+                            || skipped.contains(log)) {
+                        continue;
+                    }
+                    int number;
+                    try {
+                        number = Integer.parseInt(dir.getName());
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                    RunSummary summary = RunSummary.read(dir, number);
+                    if (summary == null || !summary.isComplete()) {
+                        continue;
+                    }
+                    AbstractBuild<?, ?> run = job.getBuildByNumber(number);
+                    if (run != null && run.isLogUpdated()) {
+                        continue;
+                    }
+                    if (run == null || !log.equals(run.getLogFile())) {
+                        skipped.add(log);
+                        continue;
+                    }
+                    long before = log.length();
+                    try {
+                        File target = compress(log);
+                        compressed++;
+                        saved += before - target.length();
+                    } catch (IOException e) {
+                        skipped.add(log);
+                        listener.error("Failed to compress " + log + ": " + e);
+                        LOGGER.log(Level.WARNING, "Failed to compress " + log, e);
+                    }
+                }
+            }
+            if (compressed > 0) {
+                listener.getLogger().println("Compressed " + compressed + " logs, saving " + saved + " bytes");
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(BlockCompressedLog.class.getName());
+}
@@ -105,10 +105,11 @@ public class ConsoleAnnotationOutputStream<T> extends LineTransformationOutputSt
                 final int charPos = strBuf.length();
 
                 int rest = sz - next;
-                ByteArrayInputStream b = new ByteArrayInputStream(in, next, rest);
+                int len = ConsoleNote.encodedLength(in, next, sz);
+                ByteArrayInputStream b = len < 0 ? new ByteArrayInputStream(in, next, rest) : null;
 
                 try {
-                    final ConsoleNote a = ConsoleNote.readFrom(new DataInputStream(b));
+                    final ConsoleNote a = b != null ? ConsoleNote.readFrom(new DataInputStream(b)) : ConsoleNote.readFrom(in, next, len);
                     if (a!=null) {
                         if (annotators==null)
                             annotators = new ArrayList<>();
@@ -124,7 +125,7 @@ public class ConsoleAnnotationOutputStream<T> extends LineTransformationOutputSt
                     LOGGER.log(Level.FINE, "Failed to resurrect annotation from \"" + StringEscapeUtils.escapeJava(new String(in, next, rest)) + "\"", e);
                 }
 
-                int bytesUsed = rest - b.available(); // bytes consumed by annotations
+                int bytesUsed = b != null ? rest - b.available() : len; // bytes consumed by annotations
                 written += bytesUsed;
 
 
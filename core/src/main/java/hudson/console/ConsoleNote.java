@@ -41,6 +41,7 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
@@ -50,9 +51,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import com.jcraft.jzlib.GZIPInputStream;
 import com.jcraft.jzlib.GZIPOutputStream;
 import hudson.remoting.ClassFilter;
+import javax.annotation.CheckForNull;
 import jenkins.security.HMACConfidentialKey;
 import jenkins.util.JenkinsJVM;
 import jenkins.util.SystemProperties;
@@ -235,49 +239,8 @@ public abstract class ConsoleNote<T> implements Serializable, Describable<Consol
      */
     public static ConsoleNote readFrom(DataInputStream in) throws IOException, ClassNotFoundException {
         try {
-            byte[] preamble = new byte[PREAMBLE.length];
-            in.readFully(preamble);
-            if (!Arrays.equals(preamble,PREAMBLE))
-                return null;    // not a valid preamble
-
-            DataInputStream decoded = new DataInputStream(new UnbufferedBase64InputStream(in));
-            int macSz = - decoded.readInt();
-            byte[] mac;
-            int sz;
-            if (macSz > 0) { // new format
-                mac = new byte[macSz];
-                decoded.readFully(mac);
-                sz = decoded.readInt();
-                if (sz < 0) {
-                    throw new IOException("Corrupt stream");
-                }
-            } else {
-                mac = null;
-                sz = - macSz;
-            }
-            byte[] buf = new byte[sz];
-            decoded.readFully(buf);
-
-            byte[] postamble = new byte[POSTAMBLE.length];
-            in.readFully(postamble);
-            if (!Arrays.equals(postamble,POSTAMBLE))
-                return null;    // not a valid postamble
-
-            if (!INSECURE) {
-                if (mac == null) {
-                    throw new IOException("Refusing to deserialize unsigned note from an old log.");
-                } else if (!MAC.checkMac(buf, mac)) {
-                    throw new IOException("MAC mismatch");
-                }
-            }
-
-            Jenkins jenkins = Jenkins.getInstanceOrNull();
-
-            try (ObjectInputStream ois = new ObjectInputStreamEx(new GZIPInputStream(new ByteArrayInputStream(buf)),
-                    jenkins != null ? jenkins.pluginManager.uberClassLoader : ConsoleNote.class.getClassLoader(),
-                    ClassFilter.DEFAULT)) {
-                return getConsoleNote(ois);
-            }
+            byte[] buf = readSerialized(in);
+            return buf == null ? null : deserialize(new GZIPInputStream(new ByteArrayInputStream(buf)));
         } catch (Error e) {
             // for example, bogus 'sz' can result in OutOfMemoryError.
             // package that up as IOException so that the caller won't fatally die.
@@ -285,11 +248,208 @@ public abstract class ConsoleNote<T> implements Serializable, Describable<Consol
         }
     }
 
+    /**
+     * Reads the compressed serialized form of a note from its encoded form, checking its MAC.
+     *
+     * @return null if the encoded form is malformed.
+     */
+    private static @CheckForNull byte[] readSerialized(DataInputStream in) throws IOException {
+        byte[] preamble = new byte[PREAMBLE.length];
+        in.readFully(preamble);
+        if (!Arrays.equals(preamble,PREAMBLE))
+            return null;    // not a valid preamble
+
+        DataInputStream decoded = new DataInputStream(new UnbufferedBase64InputStream(in));
+        int macSz = - decoded.readInt();
+        byte[] mac;
+        int sz;
+        if (macSz > 0) { // new format
+            mac = new byte[macSz];
+            decoded.readFully(mac);
+            sz = decoded.readInt();
+            if (sz < 0) {
+                throw new IOException("Corrupt stream");
+            }
+        } else {
+            mac = null;
+            sz = - macSz;
+        }
+        byte[] buf = new byte[sz];
+        decoded.readFully(buf);
+
+        byte[] postamble = new byte[POSTAMBLE.length];
+        in.readFully(postamble);
+        if (!Arrays.equals(postamble,POSTAMBLE))
+            return null;    // not a valid postamble
+
+        if (!INSECURE) {
+            if (mac == null) {
+                throw new IOException("Refusing to deserialize unsigned note from an old log.");
+            } else if (!MAC.checkMac(buf, mac)) {
+                throw new IOException("MAC mismatch");
+            }
+        }
+        return buf;
+    }
+
+    private static ConsoleNote deserialize(InputStream serialized) throws IOException, ClassNotFoundException {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+
+        try (ObjectInputStream ois = new ObjectInputStreamEx(serialized,
+                jenkins != null ? jenkins.pluginManager.uberClassLoader : ConsoleNote.class.getClassLoader(),
+                ClassFilter.DEFAULT)) {
+            return getConsoleNote(ois);
+        }
+    }
+
     @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION", justification = "Deserialization is protected by logic.")
     private static ConsoleNote getConsoleNote(ObjectInputStream ois) throws IOException, ClassNotFoundException {
         return (ConsoleNote) ois.readObject();
     }
 
+    /**
+     * Serialized forms of the notes already read back by {@link #readFrom(byte[], int, int)}, uncompressed, by their encoded form.
+     * A log tends to repeat the same notes, such as links to the same few items, and is rendered again and again while it is followed,
+     * so this saves decoding, checking and decompressing them each time.
+     * Each call still deserializes a note of its own, as notes may keep state while annotating.
+     */
+    private static final Map<Encoded, byte[]> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of notes in {@link #CACHE}, which is emptied whenever it gets full.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ int CACHE_SIZE = SystemProperties.getInteger(ConsoleNote.class.getName() + ".cacheSize", 1024);
+
+    /**
+     * Part of a buffer holding an encoded note, compared by content.
+     */
+    private static final class Encoded {
+        private final byte[] buf;
+        private final int start;
+        private final int len;
+        private final int hash;
+
+        Encoded(byte[] buf, int start, int len) {
+            this.buf = buf;
+            this.start = start;
+            this.len = len;
+            int h = 1;
+            for (int i = start; i < start + len; i++) {
+                h = 31 * h + buf[i];
+            }
+            this.hash = h;
+        }
+
+        private Encoded(byte[] buf, int hash) {
+            this.buf = buf;
+            this.start = 0;
+            this.len = buf.length;
+            this.hash = hash;
+        }
+
+        /**
+         * Copies the bytes, which are otherwise shared with the caller's buffer.
+         */
+        Encoded copy() {
+            return new Encoded(Arrays.copyOfRange(buf, start, start + len), hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Encoded)) {
+                return false;
+            }
+            Encoded e = (Encoded) o;
+            if (e.hash != hash || e.len != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (buf[start + i] != e.buf[e.start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Finds how long the encoded note at some position is, without decoding it.
+     *
+     * @param buf
+     *      holds the note
+     * @param start
+     *      where the preamble is
+     * @param end
+     *      where the data in {@code buf} ends
+     * @return the length of the note, postamble included, or -1 if there is no preamble at {@code start} or no postamble after it
+     */
+    @Restricted(NoExternalUse.class)
+    public static int encodedLength(byte[] buf, int start, int end) {
+        if (end - start < PREAMBLE.length + POSTAMBLE.length) {
+            return -1;
+        }
+        for (int j = 0; j < PREAMBLE.length; j++) {
+            if (buf[start + j] != PREAMBLE[j]) {
+                return -1;
+            }
+        }
+        // the encoded note is Base64, which has no escape character
+        byte esc = POSTAMBLE[0];
+        OUTER:
+        for (int i = start + PREAMBLE.length, e = end - POSTAMBLE.length; i <= e; i++) {
+            if (buf[i] == esc) {
+                for (int j = 1; j < POSTAMBLE.length; j++) {
+                    if (buf[i + j] != POSTAMBLE[j]) {
+                        continue OUTER;
+                    }
+                }
+                return i + POSTAMBLE.length - start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a note back from an encoded form found in a buffer, like {@link #readFrom(DataInputStream)},
+     * except that a note read recently is deserialized again from its cached serialized form rather than decoded anew.
+     *
+     * @param len
+     *      the length of the note, as given by {@link #encodedLength}
+     * @return null if the encoded form is malformed.
+     */
+    @Restricted(NoExternalUse.class)
+    public static ConsoleNote readFrom(byte[] buf, int start, int len) throws IOException, ClassNotFoundException {
+        if (INSECURE) {
+            // unsigned notes must not outlive the flag
+            return readFrom(new DataInputStream(new ByteArrayInputStream(buf, start, len)));
+        }
+        Encoded key = new Encoded(buf, start, len);
+        try {
+            byte[] serialized = CACHE.get(key);
+            if (serialized == null) {
+                byte[] compressed = readSerialized(new DataInputStream(new ByteArrayInputStream(buf, start, len)));
+                if (compressed == null) {
+                    return null;
+                }
+                serialized = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+                if (CACHE.size() >= CACHE_SIZE) {
+                    CACHE.clear();
+                }
+                CACHE.put(key.copy(), serialized);
+            }
+            return deserialize(new ByteArrayInputStream(serialized));
+        } catch (Error e) {
+            // as in readFrom(DataInputStream)
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Skips the encoded console note.
      */
@@ -334,10 +494,12 @@ public abstract class ConsoleNote<T> implements Serializable, Describable<Consol
      */
     public static int findPreamble(byte[] buf, int start, int len) {
         int e = start + len - PREAMBLE.length + 1;
+        // escape characters are rare outside of notes, so this loop is where the time goes
+        byte esc = PREAMBLE[0];
 
         OUTER:
         for (int i=start; i<e; i++) {
-            if (buf[i]==PREAMBLE[0]) {
+            if (buf[i]==esc) {
                 // check for the rest of the match
                 for (int j=1; j<PREAMBLE.length; j++) {
                     if (buf[i+j]!=PREAMBLE[j])
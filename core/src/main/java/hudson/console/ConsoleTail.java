@@ -0,0 +1,346 @@
+package hudson.console;
+
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import jenkins.websocket.WebSocketSession;
+import jenkins.websocket.WebSockets;
+import org.acegisecurity.Authentication;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Follows the log of a running build on behalf of everyone watching it, and pushes what gets appended to them over WebSockets.
+ *
+ * <p>
+ * Without this, each console page polls {@link AnnotatedLargeText#doProgressiveHtml} every second,
+ * which opens the log, restores its {@link ConsoleAnnotator} from the request, and annotates the new output again, once per viewer.
+ * Here there is a single tail per build, which reads and annotates new lines as they come, and sends the same HTML to all viewers.
+ * Since annotations may depend on who is looking, viewers only share a tail with others of the same identity, as whom the output is annotated.
+ *
+ * <p>
+ * Each message is the offset in the log up to which output has been sent, a newline, then the HTML of that output.
+ * The connection is closed normally once the build is complete and all of its log has been sent,
+ * and with status 1011 if the log could not be read; viewers which lose the connection other than normally go back to polling from the last offset they got.
+ *
+ * <p>
+ * Browsers send cookies along with WebSocket connections to any site, and do not keep pages from reading what comes back,
+ * so connections are only accepted from pages of Jenkins itself, as told by their {@code Origin}.
+ */
+@Restricted(NoExternalUse.class)
+public final class ConsoleTail {
+
+    /**
+     * Whether console pages should stream output rather than poll for it, where WebSockets are available.
+     */
+    public static /* Script Console modifiable */ boolean ENABLED = SystemProperties.getBoolean(ConsoleTail.class.getName() + ".enabled");
+
+    /**
+     * How often the log is checked for new output, in milliseconds.
+     */
+    public static /* Script Console modifiable */ long INTERVAL = SystemProperties.getLong(ConsoleTail.class.getName() + ".interval", 250L);
+
+    private static final Map<String, ConsoleTail> tails = new ConcurrentHashMap<>();
+
+    private final Run<?, ?> run;
+    private final Authentication auth;
+    private final String key;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @GuardedBy("this")
+    private long position;
+    @GuardedBy("this")
+    private final StringWriter html = new StringWriter();
+    @GuardedBy("this")
+    private ConsoleAnnotationOutputStream<?> annotator;
+    @GuardedBy("this")
+    private ScheduledFuture<?> task;
+    @GuardedBy("this")
+    private boolean done;
+
+    private ConsoleTail(Run<?, ?> run, Authentication auth, String key, long position) {
+        this.run = run;
+        this.auth = auth;
+        this.key = key;
+        this.position = position;
+    }
+
+    public static boolean isSupported() {
+        return ENABLED && WebSockets.isSupported();
+    }
+
+    /**
+     * Starts streaming the log of a build.
+     * @param start offset in the log from which to send output
+     */
+    public static @Nonnull HttpResponse stream(@Nonnull Run<?, ?> run, long start) {
+        if (!isSupported()) {
+            return HttpResponses.notFound();
+        }
+        StaplerRequest req = Stapler.getCurrentRequest();
+        if (req != null && !isSameOrigin(req)) {
+            return HttpResponses.errorWithoutStack(HttpServletResponse.SC_FORBIDDEN, "Not a page of this Jenkins");
+        }
+        return WebSockets.upgrade(new Subscriber(run, Jenkins.getAuthentication(), Math.max(0, start)));
+    }
+
+    /**
+     * Whether a request comes from a page of this Jenkins, or from no page at all.
+     * Clients other than browsers need not send an {@code Origin}, but then do not send the cookies of someone else either.
+     */
+    static boolean isSameOrigin(@Nonnull HttpServletRequest req) {
+        String origin = req.getHeader("Origin");
+        if (origin == null) {
+            return true;
+        }
+        origin = originOf(origin);
+        if (origin == null) {
+            // such as "null", from sandboxed frames or local files
+            return false;
+        }
+        Jenkins j = Jenkins.get();
+        return origin.equals(originOf(j.getRootUrl())) || origin.equals(originOf(j.getRootUrlFromRequest()));
+    }
+
+    /**
+     * @return the scheme, host and port of a URL, with the port only if not the default for the scheme, or null if not a URL with a host
+     */
+    static @CheckForNull String originOf(@CheckForNull String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            URI u = new URI(url);
+            String scheme = u.getScheme();
+            String host = u.getHost();
+            if (scheme == null || host == null) {
+                return null;
+            }
+            scheme = scheme.toLowerCase(Locale.ENGLISH);
+            int port = u.getPort();
+            if (port == 80 && scheme.equals("http") || port == 443 && scheme.equals("https")) {
+                port = -1;
+            }
+            return scheme + "://" + host.toLowerCase(Locale.ENGLISH) + (port == -1 ? "" : ":" + port);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static final class Subscriber extends WebSocketSession {
+        private final Run<?, ?> run;
+        private final Authentication auth;
+        private final long start;
+        private volatile ConsoleTail tail;
+
+        Subscriber(Run<?, ?> run, Authentication auth, long start) {
+            this.run = run;
+            this.auth = auth;
+            this.start = start;
+        }
+
+        @Override
+        protected void opened() {
+            String key = run.getExternalizableId() + "\n" + auth.getName();
+            while (true) {
+                // viewers coming later get output from where the tail started, which may be before their own start
+                ConsoleTail t = tails.computeIfAbsent(key, k -> new ConsoleTail(run, auth, k, start));
+                if (t.subscribe(this, start)) {
+                    tail = t;
+                    return;
+                }
+                // that tail just finished; start another one
+                tails.remove(key, t);
+            }
+        }
+
+        @Override
+        protected void closed(int statusCode, String reason) {
+            ConsoleTail t = tail;
+            if (t != null) {
+                t.unsubscribe(this);
+            }
+        }
+
+        @Override
+        protected void error(Throwable cause) {
+            LOGGER.log(Level.FINE, "Stopped streaming the log of " + run, cause);
+            closed(0, null);
+        }
+
+        void send(long offset, String html) {
+            try {
+                sendText(offset + "\n" + html);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to stream the log of " + run, e);
+            }
+        }
+
+        void finish() {
+            try {
+                close();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, null, e);
+            }
+        }
+
+        /**
+         * Closes the connection other than normally, so that the viewer goes back to polling.
+         */
+        void fail() {
+            try {
+                close(1011, "Failed to read the log");
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, null, e);
+            }
+        }
+    }
+
+    /**
+     * @return false if this tail has already finished, so that the subscriber needs a new one
+     */
+    private synchronized boolean subscribe(Subscriber s, long start) {
+        if (done) {
+            return false;
+        }
+        if (start > position) {
+            // the viewer already has output the others have not been sent yet; get it now rather than send it again
+            poll();
+            if (done) {
+                return false;
+            }
+            // only if the viewer claims to be past the end of the log
+            start = Math.min(start, position);
+        }
+        if (start < position) {
+            catchUp(s, start);
+        }
+        subscribers.add(s);
+        if (task == null) {
+            task = Timer.get().scheduleWithFixedDelay(this::poll, 0, INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Sends what the others have already been sent since a given offset, annotated on its own.
+     */
+    private synchronized void catchUp(Subscriber s, long start) {
+        try (ACLContext ctx = ACL.as(auth)) {
+            StringWriter w = new StringWriter();
+            ConsoleAnnotationOutputStream<?> out = newAnnotator(w);
+            run.getLogText().writeRawLogTo(start, new FilterOutputStream(out) {
+                long remaining = position - start;
+
+                @Override
+                public void write(int b) throws IOException {
+                    if (remaining > 0) {
+                        remaining--;
+                        out.write(b);
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    int n = (int) Math.min(len, remaining);
+                    remaining -= n;
+                    out.write(b, off, n);
+                }
+            });
+            out.forceEol();
+            s.send(position, w.toString());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the log of " + run, e);
+        }
+    }
+
+    private synchronized void unsubscribe(Subscriber s) {
+        subscribers.remove(s);
+        if (subscribers.isEmpty()) {
+            stop();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ConsoleAnnotationOutputStream<?> newAnnotator(StringWriter w) {
+        return new ConsoleAnnotationOutputStream(w, ConsoleAnnotator.initial(run), run, run.getCharset());
+    }
+
+    /**
+     * Sends out whatever complete lines were appended to the log since last time.
+     */
+    private synchronized void poll() {
+        if (done) {
+            return;
+        }
+        try (ACLContext ctx = ACL.as(auth)) {
+            if (annotator == null) {
+                annotator = newAnnotator(html);
+            }
+            // check before reading, so that nothing written in between gets left out
+            boolean complete = !run.isLogUpdated();
+            AnnotatedLargeText<?> text = run.getLogText();
+            long next = text.writeRawLogTo(position, annotator);
+            if (complete) {
+                annotator.forceEol();
+            }
+            if (next > position || html.getBuffer().length() > 0) {
+                String chunk = html.toString();
+                html.getBuffer().setLength(0);
+                position = next;
+                for (Subscriber s : subscribers) {
+                    s.send(position, chunk);
+                }
+            }
+            if (complete) {
+                for (Subscriber s : subscribers) {
+                    s.finish();
+                }
+                stop();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to stream the log of " + run, e);
+            for (Subscriber s : subscribers) {
+                s.fail();
+            }
+            stop();
+        }
+    }
+
+    private synchronized void stop() {
+        done = true;
+        if (task != null) {
+            task.cancel(false);
+        }
+        subscribers.clear();
+        tails.remove(key, this);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ConsoleTail.class.getName());
+}
@@ -0,0 +1,409 @@
+package hudson.console;
+
+import hudson.Functions;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.util.SystemProperties;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Byte offsets of every {@link #STRIDE}th line of a build log, recorded while the log is written,
+ * so that a line can be found without reading the log from the start.
+ *
+ * <p>
+ * The index is kept next to the log, in a file with {@code .lineindex} appended to its name,
+ * which is not {@code log-index}, the name Pipeline uses for an index of its own.
+ * It holds the stride it was written with, then the offset of the start of each line whose (zero-based) number is a multiple of it, all as big-endian longs.
+ * Lines end with {@code \n}; a last line without one still counts, but the empty string after a final {@code \n} does not,
+ * except in an empty log, which has a single empty line.
+ * Offsets are in the uncompressed log, so they also apply to a {@link BlockCompressedLog}.
+ */
+@Restricted(NoExternalUse.class)
+public final class LineIndex {
+
+    /**
+     * How many lines there are between two recorded offsets.
+     */
+    public static /* Script Console modifiable */ int STRIDE = Math.max(1, SystemProperties.getInteger(LineIndex.class.getName() + ".stride", 512));
+
+    private final File log;
+    private final int stride;
+    /**
+     * {@code checkpoints[i]} is where line {@code (i + 1) * stride} starts.
+     */
+    private final long[] checkpoints;
+
+    private LineIndex(File log, int stride, long[] checkpoints) {
+        this.log = log;
+        this.stride = stride;
+        this.checkpoints = checkpoints;
+    }
+
+    private static File indexFile(File log) {
+        return new File(log.getParentFile(), log.getName() + ".lineindex");
+    }
+
+    /**
+     * Starts recording the index of a log, if possible.
+     * @param log the log file, to which {@code out} appends
+     * @param out the stream writing to it
+     * @return a stream to write the log to instead of {@code out}
+     */
+    public static @Nonnull OutputStream record(@Nonnull File log, @Nonnull OutputStream out) {
+        File index = indexFile(log);
+        try {
+            if (log.length() > 0) {
+                // appending to some earlier log, which is not worth reading again
+                Files.deleteIfExists(index.toPath());
+                return out;
+            }
+            FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            Recorder r = new Recorder(out, index, channel, STRIDE);
+            r.append(STRIDE);
+            return r;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot index " + log, e);
+            return out;
+        }
+    }
+
+    private static final class Recorder extends FilterOutputStream {
+        private final File file;
+        private FileChannel index;
+        private final int stride;
+        private final ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        private long position;
+        private long lines;
+
+        Recorder(OutputStream out, File file, FileChannel index, int stride) {
+            super(out);
+            this.file = file;
+            this.index = index;
+            this.stride = stride;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+            if (b == '\n') {
+                newLine(position);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            long start = position - off;
+            position += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    newLine(start + i + 1);
+                }
+            }
+        }
+
+        /**
+         * Called once what precedes the new line has been written to the log, so that the index never points past its end.
+         */
+        private void newLine(long offset) {
+            if (++lines % stride == 0 && index != null) {
+                try {
+                    append(offset);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Cannot index the log any more, deleting " + file, e);
+                    stop();
+                    try {
+                        Files.deleteIfExists(file.toPath());
+                    } catch (IOException x) {
+                        LOGGER.log(Level.WARNING, null, x);
+                    }
+                }
+            }
+        }
+
+        void append(long value) throws IOException {
+            entry.clear();
+            entry.putLong(value).flip();
+            while (entry.hasRemaining()) {
+                index.write(entry);
+            }
+        }
+
+        private void stop() {
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, null, e);
+                }
+                index = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Deletes the index of a log, if any.
+     */
+    static void delete(@Nonnull File log) throws IOException {
+        Files.deleteIfExists(indexFile(log).toPath());
+    }
+
+    /**
+     * Moves the index of a log along with it, if there is one.
+     */
+    static void rename(@Nonnull File from, @Nonnull File to) throws IOException {
+        File index = indexFile(from);
+        if (index.isFile()) {
+            Files.move(index.toPath(), indexFile(to).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads the index of a log.
+     * @return null unless the log is plain text and was indexed as it got written, or is a {@link BlockCompressedLog}
+     */
+    public static @CheckForNull LineIndex load(@Nonnull File log) {
+        File file = indexFile(log);
+        if (!log.isFile()) {
+            return null;
+        }
+        if (!file.isFile()) {
+            // still quicker to go over than reading from the start of the log
+            return BlockCompressedLog.isCompressed(log) ? new LineIndex(log, 1, new long[0]) : null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            // the last entry may be incomplete while the log is being written
+            int count = (int) (file.length() / Long.BYTES) - 1;
+            if (count < 0) {
+                return null;
+            }
+            long stride = in.readLong();
+            if (stride < 1 || stride > Integer.MAX_VALUE) {
+                return null;
+            }
+            long[] checkpoints = new long[count];
+            for (int i = 0; i < count; i++) {
+                checkpoints[i] = in.readLong();
+            }
+            return new LineIndex(log, (int) stride, checkpoints);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Cannot read the index of " + log, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets where a line starts.
+     * @param line zero-based line number
+     * @return the offset of the line in the log, or the length of the log if it has no such line
+     */
+    public long offsetOf(long line) throws IOException {
+        int k = (int) Math.min(line / stride, checkpoints.length);
+        long offset = k == 0 ? 0 : checkpoints[k - 1];
+        long toSkip = line - (long) k * stride;
+        if (toSkip == 0) {
+            return offset;
+        }
+        try (InputStream in = open(offset)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] == '\n' && --toSkip == 0) {
+                        return offset + i + 1;
+                    }
+                }
+                offset += n;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Counts the lines of the log, as they are at this point.
+     */
+    public long countLines() throws IOException {
+        int k = checkpoints.length;
+        long offset = k == 0 ? 0 : checkpoints[k - 1];
+        long lines = (long) k * stride;
+        boolean partial = false;
+        try (InputStream in = open(offset)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] == '\n') {
+                        lines++;
+                        partial = false;
+                    } else {
+                        partial = true;
+                    }
+                }
+            }
+        }
+        return partial || lines == 0 ? lines + 1 : lines;
+    }
+
+    /**
+     * Reads the log from some offset.
+     */
+    public @Nonnull InputStream open(long offset) throws IOException {
+        if (BlockCompressedLog.isCompressed(log)) {
+            return BlockCompressedLog.open(log, offset);
+        }
+        FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ);
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    /**
+     * Reads some lines of the log.
+     * @param from zero-based number of the first line
+     * @param to zero-based number of the line after the last
+     */
+    public @Nonnull InputStream openLines(long from, long to) throws IOException {
+        long start = offsetOf(from);
+        if (to == Long.MAX_VALUE) {
+            return open(start);
+        }
+        long end = offsetOf(to);
+        return new BoundedInputStream(open(start), Math.max(0, end - start));
+    }
+
+    /**
+     * Reads some lines of a log which has no index, by going over it from the start.
+     * @param in the whole log, closed along with the returned stream
+     * @param from zero-based number of the first line
+     * @param to zero-based number of the line after the last
+     */
+    public static @Nonnull InputStream lines(@Nonnull InputStream in, long from, long to) {
+        return new InputStream() {
+            private final InputStream base = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+            private long line;
+
+            @Override
+            public int read() throws IOException {
+                while (line < to) {
+                    int b = base.read();
+                    if (b < 0) {
+                        return -1;
+                    }
+                    boolean wanted = line >= from;
+                    if (b == '\n') {
+                        line++;
+                    }
+                    if (wanted) {
+                        return b;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int n = 0;
+                while (n < len) {
+                    int c = read();
+                    if (c < 0) {
+                        break;
+                    }
+                    b[off + n++] = (byte) c;
+                    if (c == '\n') {
+                        // do not block on the rest of a log being written
+                        break;
+                    }
+                }
+                return n == 0 ? -1 : n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                base.close();
+            }
+        };
+    }
+
+    /**
+     * Gets the last lines of the log, as {@code hudson.model.Run#getLog(int)} does:
+     * if there are more than {@code maxLines}, the first line returned says how much of the log was left out.
+     * Any {@code \r} is dropped, while console notes are left in.
+     */
+    public @Nonnull List<String> tail(int maxLines, @Nonnull Charset charset) throws IOException {
+        long total = countLines();
+        long start = offsetOf(Math.max(0, total - maxLines));
+        LinkedList<String> lines = new LinkedList<>();
+        try (InputStream in = open(start)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            boolean partial = false;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    byte b = buf[i];
+                    if (b == '\n') {
+                        lines.add(new String(line.toByteArray(), charset));
+                        line.reset();
+                        partial = false;
+                    } else {
+                        partial = true;
+                        if (b != '\r') {
+                            line.write(b);
+                        }
+                    }
+                }
+                // more might have been written since counting
+                while (lines.size() > maxLines) {
+                    lines.removeFirst();
+                }
+            }
+            if (partial || lines.isEmpty()) {
+                lines.add(new String(line.toByteArray(), charset));
+                if (lines.size() > maxLines) {
+                    lines.removeFirst();
+                }
+            }
+        }
+        if (total > maxLines) {
+            // same figure as when the log gets read backwards up to the newline before the first line kept
+            lines.set(0, "[...truncated " + Functions.humanReadableByteSize(start - 2) + "...]");
+        }
+        return new ArrayList<>(lines);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(LineIndex.class.getName());
+}
@@ -60,13 +60,19 @@ public class PlainTextConsoleOutputStream extends LineTransformationOutputStream
                 assert next==written;
             }
 
-            int rest = sz - next;
-            ByteArrayInputStream b = new ByteArrayInputStream(in, next, rest);
+            int len = ConsoleNote.encodedLength(in, next, sz);
+            if (len >= 0) {
+                // no need to decode what is thrown away
+                written += len;
+            } else {
+                int rest = sz - next;
+                ByteArrayInputStream b = new ByteArrayInputStream(in, next, rest);
 
-            ConsoleNote.skip(new DataInputStream(b));
+                ConsoleNote.skip(new DataInputStream(b));
 
-            int bytesUsed = rest - b.available(); // bytes consumed by annotations
-            written += bytesUsed;
+                int bytesUsed = rest - b.available(); // bytes consumed by annotations
+                written += bytesUsed;
+            }
 
 
             next = ConsoleNote.findPreamble(in,written,sz-written);
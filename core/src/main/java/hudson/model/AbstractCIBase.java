@@ -38,6 +38,7 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicStampedReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
@@ -50,6 +51,12 @@ public abstract class AbstractCIBase extends Node implements ItemGroup<TopLevelI
 
     private static final Logger LOGGER = Logger.getLogger(AbstractCIBase.class.getName());
 
+    /**
+     * The index used by {@link Label#getNodes()}, if computed, stamped with the number of times it was reset,
+     * so that an index computed from nodes which have changed meanwhile is never published.
+     */
+    private final transient AtomicStampedReference<LabelNodeIndex> labelNodeIndex = new AtomicStampedReference<>(null, 0);
+
     /**
      * If you are calling this on Hudson something is wrong.
      *
@@ -78,6 +85,32 @@ public abstract class AbstractCIBase extends Node implements ItemGroup<TopLevelI
         l.reset();
     }
 
+    /**
+     * Discards the index used by {@link Label#getNodes()}, so that it gets recomputed from the current nodes and their labels.
+     * Should be called before {@linkplain #resetLabel resetting labels} when nodes or their labels may have changed.
+     */
+    protected void resetLabelNodeIndex() {
+        int[] generation = new int[1];
+        LabelNodeIndex index;
+        do {
+            index = labelNodeIndex.get(generation);
+        } while (!labelNodeIndex.compareAndSet(index, null, generation[0], generation[0] + 1));
+    }
+
+    /*package*/ LabelNodeIndex getLabelNodeIndex() {
+        int[] generation = new int[1];
+        LabelNodeIndex index = labelNodeIndex.get(generation);
+        if (index != null) {
+            return index;
+        }
+        index = new LabelNodeIndex(this);
+        if (!labelNodeIndex.compareAndSet(null, index, generation[0], generation[0])) {
+            // reset while we were computing it, so it may already be stale
+            return getLabelNodeIndex();
+        }
+        return index;
+    }
+
     protected void setViewOwner(View v) {
         v.owner = this;
     }
@@ -53,6 +53,7 @@ import jenkins.model.DirectlyModifiableTopLevelItemGroup;
 import jenkins.model.Jenkins;
 import jenkins.model.queue.ItemDeletion;
 import jenkins.security.NotReallyRoleSensitiveCallable;
+import jenkins.util.SaveScheduler;
 import jenkins.util.xml.XMLUtils;
 
 import org.apache.tools.ant.taskdefs.Copy;
@@ -605,7 +606,7 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
      * Save the settings to a file.
      */
     public synchronized void save() throws IOException {
-        if(BulkChange.contains(this))   return;
+        if(BulkChange.contains(this) || SaveScheduler.defer(this, getRootDir()))   return;
         getConfigFile().write(this);
         SaveableListener.fireOnChange(this, getConfigFile());
     }
@@ -779,6 +780,11 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
                 }
             }
             synchronized (this) { // could just make performDelete synchronized but overriders might not honor that
+                // including builds and child items, which may be saved at the same time
+                SaveScheduler.cancel(getRootDir());
+                if (this instanceof Job) {
+                    SaveScheduler.cancel(((Job<?, ?>) this).getBuildDir());
+                }
                 performDelete();
             } // JENKINS-19446: leave synch block, but JENKINS-22001: still notify synchronously
         } finally {
@@ -829,6 +835,7 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
     @Restricted(NoExternalUse.class)
     public void writeConfigDotXml(OutputStream os) throws IOException {
         checkPermission(EXTENDED_READ);
+        SaveScheduler.flush(this);
         XmlFile configFile = getConfigFile();
         if (hasPermission(CONFIGURE)) {
             IOUtils.copy(configFile.getFile(), os);
@@ -914,6 +921,7 @@ public abstract class AbstractItem extends Actionable implements Item, HttpDelet
         checkPermission(CONFIGURE);
 
         // try to reflect the changes by reloading
+        SaveScheduler.flush(this);
         getConfigFile().unmarshal(this);
         Items.whileUpdatingByXml(new NotReallyRoleSensitiveCallable<Void, IOException>() {
             @Override
@@ -26,12 +26,17 @@ package hudson.model;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.FilePath;
 import hudson.Util;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,16 +45,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 import jenkins.model.Jenkins;
@@ -351,7 +355,7 @@ public final class DirectoryBrowserSupport implements HttpResponse {
             rsp.setHeader("Content-Disposition", "inline; filename=" + baseFile.getName());
 
             // pseudo file name to let the Stapler set text/plain
-            rsp.serveFile(req, baseFile.open(), lastModified, -1, length, "plain.txt");
+            serveContent(req, rsp, baseFile, lastModified, length, "plain.txt");
         } else {
             if (resourceToken != null) {
                 // redirect to second domain
@@ -367,11 +371,127 @@ public final class DirectoryBrowserSupport implements HttpResponse {
                         }
                     }
                 }
-                rsp.serveFile(req, baseFile.open(), lastModified, -1, length, baseFile.getName());
+                serveContent(req, rsp, baseFile, lastModified, length, baseFile.getName());
             }
         }
     }
 
+    /**
+     * Serves the contents of a file, directly from the disk where possible.
+     */
+    private static void serveContent(StaplerRequest req, StaplerResponse rsp, VirtualFile file, long lastModified, long length, String fileName) throws IOException, ServletException {
+        File local = file.toLocalFile();
+        if (local == null) {
+            rsp.serveFile(req, file.open(), lastModified, -1, length, fileName);
+            return;
+        }
+        serveLocalFile(req, rsp, local, lastModified, length, fileName);
+    }
+
+    /**
+     * Like {@link StaplerResponse#serveFile(StaplerRequest, InputStream, long, long, long, String)},
+     * but also answering conditional requests by entity tag, and requests for a range of the file,
+     * and transferring the file from its {@link FileChannel} to the servlet output stream rather than copying it through a small buffer.
+     */
+    private static void serveLocalFile(StaplerRequest req, StaplerResponse rsp, File file, long lastModified, long length, String fileName) throws IOException {
+        // weak, since the file could be modified twice within the resolution of its timestamp
+        String etag = "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        rsp.setHeader("ETag", etag);
+        rsp.setDateHeader("Last-Modified", lastModified);
+        rsp.setHeader("Accept-Ranges", "bytes");
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (ifNoneMatch.trim().equals("*") || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(etag)) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        } else {
+            long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+            if (ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        String contentType = req.getServletContext().getMimeType(fileName);
+        rsp.setContentType(contentType != null ? contentType : "application/octet-stream");
+
+        long start = 0;
+        long end = length;
+        String range = req.getHeader("Range");
+        String ifRange = req.getHeader("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] r = parseRange(range, length);
+            if (r == null) {
+                rsp.setHeader("Content-Range", "bytes */" + length);
+                rsp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r.length == 2) {
+                start = r[0];
+                end = r[1];
+                rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                rsp.setHeader("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+        rsp.setHeader("Content-Length", Long.toString(end - start));
+        if (req.getMethod().equals("HEAD")) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(rsp.getOutputStream());
+            for (long position = start; position < end; ) {
+                long n = channel.transferTo(position, end - position, target);
+                if (n <= 0) {
+                    // truncated in the meantime
+                    break;
+                }
+                position += n;
+            }
+        }
+    }
+
+    /**
+     * Parses a {@code Range} header.
+     * @return the start and end of the one range asked for; an empty array to send the whole file, as for several ranges; null if the range cannot be satisfied
+     */
+    static @CheckForNull long[] parseRange(String header, long length) {
+        String spec = header.trim();
+        if (!spec.startsWith("bytes=") || spec.contains(",")) {
+            return new long[0];
+        }
+        spec = spec.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start, end;
+            if (first.isEmpty()) {
+                // the last bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length : Math.min(length, Long.parseLong(last) + 1);
+            }
+            if (start < 0 || start >= length || end <= start) {
+                return null;
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
     private List<List<Path>> keepReadabilityOnlyOnDescendants(VirtualFile root, boolean patternUsed, List<List<Path>> pathFragmentsList){
         Stream<List<Path>> pathFragmentsStream = pathFragmentsList.stream().map((List<Path> pathFragments) -> {
             List<Path> mappedFragments = new ArrayList<>(pathFragments.size());
@@ -469,8 +589,8 @@ public final class DirectoryBrowserSupport implements HttpResponse {
             }
             
             if (glob.isEmpty()) {
-                Map<String, VirtualFile> nameToVirtualFiles = collectRecursivelyAllLegalChildren(dir);
-                sendZipUsingMap(zos, dir, nameToVirtualFiles);
+                // JENKINS-19947: traditional behavior is to prepend the directory name
+                sendZipRecursively(zos, dir, dir.getName() + '/');
             } else {
                 Collection<String> listOfFile = dir.list(glob, null, /* TODO what is the user expectation? */true);
                 sendZipUsingListOfNames(zos, dir, listOfFile);
@@ -478,15 +598,20 @@ public final class DirectoryBrowserSupport implements HttpResponse {
         }
     }
 
-    private static void sendZipUsingMap(ZipOutputStream zos, VirtualFile dir, Map<String, VirtualFile> nameToVirtualFiles) throws IOException {
-        for (Map.Entry<String, VirtualFile> entry : nameToVirtualFiles.entrySet()) {
-            String n = entry.getKey();
-
-            // JENKINS-19947: traditional behavior is to prepend the directory name
-            String relativePath = dir.getName() + '/' + n;
-
-            VirtualFile f = entry.getValue();
-            sendOneZipEntry(zos, f, relativePath);
+    /**
+     * Sends each file as soon as it is found, rather than after listing the whole tree,
+     * so that the download starts right away and the listing of a large tree is never held in memory.
+     */
+    private static void sendZipRecursively(ZipOutputStream zos, VirtualFile dir, String currentPrefix) throws IOException {
+        for (VirtualFile child : dir.listOnlyDescendants()) {
+            String name = currentPrefix + child.getName();
+            if (child.isFile()) {
+                if (child.isDescendant("")) {
+                    sendOneZipEntry(zos, child, name);
+                }
+            } else {
+                sendZipRecursively(zos, child, name + "/");
+            }
         }
     }
 
@@ -514,28 +639,6 @@ public final class DirectoryBrowserSupport implements HttpResponse {
         }
     }
 
-    private static Map<String, VirtualFile> collectRecursivelyAllLegalChildren(VirtualFile dir) throws IOException {
-        Map<String, VirtualFile> nameToFiles = new LinkedHashMap<>();
-        collectRecursivelyAllLegalChildren(dir, "", nameToFiles);
-        return nameToFiles;
-    }
-
-    private static void collectRecursivelyAllLegalChildren(VirtualFile currentDir, String currentPrefix, Map<String, VirtualFile> nameToFiles) throws IOException {
-        if (currentDir.isFile()) {
-            if (currentDir.isDescendant("")) {
-                nameToFiles.put(currentPrefix, currentDir);
-            }
-        } else {
-            if (!currentPrefix.isEmpty()) {
-                currentPrefix += "/";
-            }
-            List<VirtualFile> children = currentDir.listOnlyDescendants();
-            for (VirtualFile child : children) {
-                collectRecursivelyAllLegalChildren(child, currentPrefix + child.getName(), nameToFiles);
-            }
-        }
-    }
-
     /**
      * Represents information about one file or folder.
      */
@@ -47,16 +47,25 @@ import hudson.util.PersistedList;
 import hudson.util.RunList;
 import hudson.util.XStream2;
 import java.io.EOFException;
+import jenkins.fingerprints.FileFingerprintStorage;
+import jenkins.fingerprints.FingerprintStorage;
 import jenkins.model.FingerprintFacet;
 import jenkins.model.Jenkins;
 import jenkins.model.TransientFingerprintFacetFactory;
 import org.apache.commons.lang.StringUtils;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -1036,14 +1045,21 @@ public class Fingerprint implements ModelObject, Saveable {
         return this;
     }
 
-    void addWithoutSaving(@Nonnull String jobFullName, int n) {
+    /**
+     * @return false if the usage was already recorded
+     */
+    boolean addWithoutSaving(@Nonnull String jobFullName, int n) {
         synchronized(usages) { // TODO why not synchronized (this) like some, though not all, other accesses?
             RangeSet r = usages.get(jobFullName);
             if(r==null) {
                 r = new RangeSet();
                 usages.put(jobFullName,r);
             }
+            if (r.includes(n)) {
+                return false;
+            }
             r.add(n);
+            return true;
         }
     }
 
@@ -1244,55 +1260,56 @@ public class Fingerprint implements ModelObject, Saveable {
         if(logger.isLoggable(Level.FINE))
             start = System.currentTimeMillis();
 
-        File file = getFingerprintFile(md5sum);
-        save(file);
-        SaveableListener.fireOnChange(this, getConfigFile(file));
+        FingerprintStorage storage = FingerprintStorage.get();
+        storage.save(this);
+        fireOnChange(storage, this);
 
         if(logger.isLoggable(Level.FINE))
-            logger.fine("Saving fingerprint "+file+" took "+(System.currentTimeMillis()-start)+"ms");
+            logger.fine("Saving fingerprint "+getHashString()+" took "+(System.currentTimeMillis()-start)+"ms");
     }
 
-    void save(File file) throws IOException {
+    /**
+     * Saves many records at once, as {@link #save()} would one by one.
+     */
+    static void saveAll(@Nonnull Collection<Fingerprint> fingerprints) throws IOException {
+        List<Fingerprint> toSave = new ArrayList<>(fingerprints.size());
+        for (Fingerprint fp : fingerprints) {
+            if (!BulkChange.contains(fp)) {
+                toSave.add(fp);
+            }
+        }
+        if (toSave.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        FingerprintStorage storage = FingerprintStorage.get();
+        storage.save(toSave);
+        for (Fingerprint fp : toSave) {
+            fireOnChange(storage, fp);
+        }
+        if(logger.isLoggable(Level.FINE))
+            logger.fine("Saving " + toSave.size() + " fingerprints took " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Tells {@link SaveableListener}s about a saved record, along with its file if the storage keeps it in one.
+     */
+    private static void fireOnChange(@Nonnull FingerprintStorage storage, @Nonnull Fingerprint fp) {
+        File file = storage.getFile(fp.getHashString());
+        SaveableListener.fireOnChange(fp, file != null ? getConfigFile(file) : null);
+    }
+
+    /**
+     * Writes this record to an XML file, as {@link FileFingerprintStorage} keeps it.
+     */
+    @Restricted(NoExternalUse.class)
+    public void save(File file) throws IOException {
         if (facets.isEmpty()) {
             file.getParentFile().mkdirs();
             // JENKINS-16301: fast path for the common case.
             AtomicFileWriter afw = new AtomicFileWriter(file);
             try (PrintWriter w = new PrintWriter((afw))) {
-                w.println("<?xml version='1.1' encoding='UTF-8'?>");
-                w.println("<fingerprint>");
-                w.print("  <timestamp>");
-                w.print(DATE_CONVERTER.toString(timestamp));
-                w.println("</timestamp>");
-                if (original != null) {
-                    w.println("  <original>");
-                    w.print("    <name>");
-                    w.print(Util.xmlEscape(original.name));
-                    w.println("</name>");
-                    w.print("    <number>");
-                    w.print(original.number);
-                    w.println("</number>");
-                    w.println("  </original>");
-                }
-                w.print("  <md5sum>");
-                w.print(Util.toHexString(md5sum));
-                w.println("</md5sum>");
-                w.print("  <fileName>");
-                w.print(Util.xmlEscape(fileName));
-                w.println("</fileName>");
-                w.println("  <usages>");
-                for (Map.Entry<String,RangeSet> e : usages.entrySet()) {
-                    w.println("    <entry>");
-                    w.print("      <string>");
-                    w.print(Util.xmlEscape(e.getKey()));
-                    w.println("</string>");
-                    w.print("      <ranges>");
-                    w.print(RangeSet.ConverterImpl.serialize(e.getValue()));
-                    w.println("</ranges>");
-                    w.println("    </entry>");
-                }
-                w.println("  </usages>");
-                w.println("  <facets/>");
-                w.print("</fingerprint>");
+                writeWithoutFacets(w);
                 w.flush();
                 afw.commit();
             } finally {
@@ -1304,6 +1321,70 @@ public class Fingerprint implements ModelObject, Saveable {
         }
     }
 
+    /**
+     * Writes the same XML as {@link #save(File)} to a stream, for storages that do not keep a file per record.
+     * The stream is not closed.
+     * @see #read(InputStream, Object)
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized void writeTo(@Nonnull OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        if (facets.isEmpty()) {
+            PrintWriter pw = new PrintWriter(w);
+            writeWithoutFacets(pw);
+            pw.flush();
+            if (pw.checkError()) {
+                throw new IOException("Failed to write fingerprint " + getHashString());
+            }
+        } else {
+            w.write("<?xml version='1.1' encoding='UTF-8'?>\n");
+            try {
+                XSTREAM.toXML(this, w);
+            } catch (RuntimeException e) {
+                throw new IOException(e);
+            }
+            w.flush();
+        }
+    }
+
+    private void writeWithoutFacets(PrintWriter w) {
+        w.println("<?xml version='1.1' encoding='UTF-8'?>");
+        w.println("<fingerprint>");
+        w.print("  <timestamp>");
+        w.print(DATE_CONVERTER.toString(timestamp));
+        w.println("</timestamp>");
+        if (original != null) {
+            w.println("  <original>");
+            w.print("    <name>");
+            w.print(Util.xmlEscape(original.name));
+            w.println("</name>");
+            w.print("    <number>");
+            w.print(original.number);
+            w.println("</number>");
+            w.println("  </original>");
+        }
+        w.print("  <md5sum>");
+        w.print(Util.toHexString(md5sum));
+        w.println("</md5sum>");
+        w.print("  <fileName>");
+        w.print(Util.xmlEscape(fileName));
+        w.println("</fileName>");
+        w.println("  <usages>");
+        for (Map.Entry<String,RangeSet> e : usages.entrySet()) {
+            w.println("    <entry>");
+            w.print("      <string>");
+            w.print(Util.xmlEscape(e.getKey()));
+            w.println("</string>");
+            w.print("      <ranges>");
+            w.print(RangeSet.ConverterImpl.serialize(e.getValue()));
+            w.println("</ranges>");
+            w.println("    </entry>");
+        }
+        w.println("  </usages>");
+        w.println("  <facets/>");
+        w.print("</fingerprint>");
+    }
+
     /**
      * Returns a facet that blocks the deletion of the fingerprint.
      * Returns null if no such facet.
@@ -1359,8 +1440,7 @@ public class Fingerprint implements ModelObject, Saveable {
      */
     private static @Nonnull File getFingerprintFile(@Nonnull byte[] md5sum) {
         assert md5sum.length==16;
-        return new File( Jenkins.get().getRootDir(),
-            "fingerprints/"+ Util.toHexString(md5sum,0,1)+'/'+Util.toHexString(md5sum,1,1)+'/'+Util.toHexString(md5sum,2,md5sum.length-2)+".xml");
+        return FileFingerprintStorage.getFingerprintFile(Jenkins.get().getRootDir(), Util.toHexString(md5sum));
     }
 
     /**
@@ -1368,10 +1448,8 @@ public class Fingerprint implements ModelObject, Saveable {
      * @return Loaded {@link Fingerprint}. Null if the config file does not exist or
      * malformed.
      */
-    /*package*/ static @CheckForNull Fingerprint load(@Nonnull byte[] md5sum) throws IOException {
-        return load(getFingerprintFile(md5sum));
-    }
-    /*package*/ static @CheckForNull Fingerprint load(@Nonnull File file) throws IOException {
+    @Restricted(NoExternalUse.class)
+    public static @CheckForNull Fingerprint load(@Nonnull File file) throws IOException {
         XmlFile configFile = getConfigFile(file);
         if(!configFile.exists())
             return null;
@@ -1381,18 +1459,9 @@ public class Fingerprint implements ModelObject, Saveable {
             start = System.currentTimeMillis();
 
         try {
-            Object loaded = configFile.read();
-            if (!(loaded instanceof Fingerprint)) {
-                throw new IOException("Unexpected Fingerprint type. Expected " + Fingerprint.class + " or subclass but got "
-                        + (loaded != null ? loaded.getClass() : "null"));
-            }
-            Fingerprint f = (Fingerprint) loaded;
+            Fingerprint f = initialize(configFile.read());
             if(logger.isLoggable(Level.FINE))
                 logger.fine("Loading fingerprint "+file+" took "+(System.currentTimeMillis()-start)+"ms");
-            if (f.facets==null)
-                f.facets = new PersistedList<>(f);
-            for (FingerprintFacet facet : f.facets)
-                facet._setOwner(f);
             return f;
         } catch (IOException e) {
             if(file.exists() && file.length()==0) {
@@ -1416,6 +1485,33 @@ public class Fingerprint implements ModelObject, Saveable {
             throw e;
         }
     }
+
+    /**
+     * Reads a record written by {@link #writeTo}.
+     * @param source what the record is read from, for error messages
+     */
+    @Restricted(NoExternalUse.class)
+    public static @Nonnull Fingerprint read(@Nonnull InputStream in, @Nonnull Object source) throws IOException {
+        try {
+            return initialize(XSTREAM.fromXML(in));
+        } catch (RuntimeException | Error e) {
+            throw new IOException("Unable to read " + source, e);
+        }
+    }
+
+    private static @Nonnull Fingerprint initialize(Object loaded) throws IOException {
+        if (!(loaded instanceof Fingerprint)) {
+            throw new IOException("Unexpected Fingerprint type. Expected " + Fingerprint.class + " or subclass but got "
+                    + (loaded != null ? loaded.getClass() : "null"));
+        }
+        Fingerprint f = (Fingerprint) loaded;
+        if (f.facets==null)
+            f.facets = new PersistedList<>(f);
+        for (FingerprintFacet facet : f.facets)
+            facet._setOwner(f);
+        return f;
+    }
+
     private static String messageOfParseException(Throwable t) {
         if (t instanceof XmlPullParserException || t instanceof EOFException) {
             return t.getMessage();
@@ -27,6 +27,8 @@ import com.thoughtworks.xstream.converters.basic.DateConverter;
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.Functions;
+import jenkins.fingerprints.FileFingerprintStorage;
+import jenkins.fingerprints.FingerprintStorage;
 import jenkins.model.FingerprintFacet;
 import jenkins.model.Jenkins;
 import org.jenkinsci.Symbol;
@@ -44,6 +46,8 @@ import java.util.regex.Pattern;
  * <p>
  * A {@link Fingerprint} is removed when none of the builds that
  * it point to is available in the records.
+ * The storage in use does the actual work, see {@link FingerprintStorage#iterateAndCleanupFingerprints};
+ * {@link FileFingerprintStorage} calls back {@link #cleanUpFiles}.
  *
  * @author Kohsuke Kawaguchi
  */
@@ -73,6 +77,14 @@ public class FingerprintCleanupThread extends AsyncPeriodicWork {
     }
 
     public void execute(TaskListener listener) {
+        getStorage().iterateAndCleanupFingerprints(listener);
+    }
+
+    /**
+     * Walks the directory tree of {@link FileFingerprintStorage}.
+     */
+    @Restricted(NoExternalUse.class)
+    public void cleanUpFiles(TaskListener listener) {
         int numFiles = 0;
 
         File root = new File(getRootDir(), FINGERPRINTS_DIR_NAME);
@@ -131,6 +143,10 @@ public class FingerprintCleanupThread extends AsyncPeriodicWork {
         }
     }
 
+    protected FingerprintStorage getStorage() {
+        return FingerprintStorage.get();
+    }
+
     protected Fingerprint loadFingerprint(File fingerprintFile) throws IOException {
         return Fingerprint.load(fingerprintFile);
     }
@@ -25,11 +25,16 @@ package hudson.model;
 
 import hudson.Util;
 import hudson.util.KeyedDataStorage;
+import jenkins.fingerprints.FingerprintStorage;
 import jenkins.model.Jenkins;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
@@ -40,6 +45,7 @@ import javax.annotation.Nonnull;
  * This implementation makes sure that no two {@link Fingerprint} objects
  * lie around for the same hash code, and that unused {@link Fingerprint}
  * will be adequately GC-ed to prevent memory leak.
+ * Records are loaded from and saved to the {@link FingerprintStorage}.
  *
  * @author Kohsuke Kawaguchi
  * @see Jenkins#getFingerprintMap()
@@ -50,7 +56,7 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
      * Returns true if there's some data in the fingerprint database.
      */
     public boolean isReady() {
-        return new File(Jenkins.get().getRootDir(),"fingerprints").exists();
+        return FingerprintStorage.get().isReady();
     }
 
     /**
@@ -72,6 +78,45 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
         return super.getOrCreate(md5sum, new FingerprintParams(build,fileName));
     }
 
+    /**
+     * Records that a build used many files at once.
+     * Like {@link #getOrCreate(Run, String, String)} followed by {@link Fingerprint#addFor} for each file,
+     * but only the records that were created or changed are saved, all together through {@link FingerprintStorage#save(Collection)}.
+     *
+     * @param fileNames
+     *      names of the files, keyed by their MD5 checksums
+     * @param produced
+     *      checksums of the files that the build produced, so that it becomes the owner of those records it creates
+     * @return
+     *      records keyed by checksum, leaving out checksums that are not valid
+     * @throws IOException Loading or saving error
+     * @since TODO
+     */
+    public @Nonnull Map<String, Fingerprint> addFor(@Nonnull Run<?, ?> build, @Nonnull Map<String, String> fileNames, @Nonnull Set<String> produced) throws IOException {
+        String jobFullName = build.getParent().getFullName();
+        Map<String, Fingerprint> r = new LinkedHashMap<>();
+        Set<Fingerprint> modified = new LinkedHashSet<>();
+        for (Map.Entry<String, String> e : fileNames.entrySet()) {
+            String md5sum = e.getKey();
+            FingerprintParams params = new FingerprintParams(produced.contains(md5sum) ? build : null, e.getValue(), false);
+            Fingerprint fp = get(md5sum, true, params);
+            if (fp == null) {
+                continue;
+            }
+            if (params.created) {
+                modified.add(fp);
+            }
+            synchronized (fp) {
+                if (fp.addWithoutSaving(jobFullName, build.getNumber())) {
+                    modified.add(fp);
+                }
+            }
+            r.put(md5sum, fp);
+        }
+        Fingerprint.saveAll(modified);
+        return r;
+    }
+
     @Override
     protected Fingerprint get(String md5sum, boolean createIfNotExist, FingerprintParams createParams) throws IOException {
         // sanity check
@@ -90,11 +135,15 @@ public final class FingerprintMap extends KeyedDataStorage<Fingerprint,Fingerpri
     }
 
     protected @Nonnull Fingerprint create(@Nonnull String md5sum, @Nonnull FingerprintParams createParams) throws IOException {
+        if (!createParams.save) {
+            createParams.created = true;
+            return new Fingerprint(createParams.build == null ? null : new Fingerprint.BuildPtr(createParams.build), createParams.fileName, toByteArray(md5sum));
+        }
         return new Fingerprint(createParams.build, createParams.fileName, toByteArray(md5sum));
     }
 
     protected @CheckForNull Fingerprint load(@Nonnull String key) throws IOException {
-        return Fingerprint.load(toByteArray(key));
+        return FingerprintStorage.get().load(key);
     }
 
 static class FingerprintParams {
@@ -103,10 +152,23 @@ static class FingerprintParams {
      */
     final @CheckForNull Run build;
     final String fileName;
+    /**
+     * Whether a new record is saved right away, or left for the caller to save.
+     */
+    final boolean save;
+    /**
+     * Set when a record was created with these parameters.
+     */
+    boolean created;
 
     public FingerprintParams(@CheckForNull Run build, @Nonnull String fileName) {
+        this(build, fileName, true);
+    }
+
+    FingerprintParams(@CheckForNull Run build, @Nonnull String fileName, boolean save) {
         this.build = build;
         this.fileName = fileName;
+        this.save = save;
 
         assert fileName!=null;
     }
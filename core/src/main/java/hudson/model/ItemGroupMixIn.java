@@ -51,6 +51,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import jenkins.security.NotReallyRoleSensitiveCallable;
+import jenkins.util.SaveScheduler;
 import org.acegisecurity.AccessDeniedException;
 import org.xml.sax.SAXException;
 
@@ -223,6 +224,7 @@ public abstract class ItemGroupMixIn {
     public synchronized <T extends TopLevelItem> T copy(T src, String name) throws IOException {
         acl.checkPermission(Item.CREATE);
         src.checkPermission(Item.EXTENDED_READ);
+        SaveScheduler.flush(src);
         XmlFile srcConfigFile = Items.getConfigFile(src);
         if (!src.hasPermission(Item.CONFIGURE)) {
             Matcher matcher = AbstractItem.SECRET_PATTERN.matcher(srcConfigFile.asString());
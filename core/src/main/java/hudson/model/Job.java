@@ -23,6 +23,7 @@
  */
 package hudson.model;
 
+import com.google.common.collect.Iterables;
 import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 import hudson.BulkChange;
 import hudson.EnvVars;
@@ -88,6 +89,9 @@ import jenkins.model.JenkinsLocationConfiguration;
 import jenkins.model.ModelObjectWithChildren;
 import jenkins.model.ProjectNamingStrategy;
 import jenkins.model.RunIdMigrator;
+import jenkins.model.RunSummary;
+import jenkins.model.lazy.AbstractLazyLoadRunMap;
+import jenkins.model.lazy.BuildIndex;
 import jenkins.model.lazy.LazyBuildMixIn;
 import jenkins.scm.RunWithSCM;
 import jenkins.security.HexStringConfidentialKey;
@@ -891,6 +895,46 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
      */
     protected abstract SortedMap<Integer, ? extends RunT> _getRuns();
 
+    /**
+     * Gets the persistent index of the builds of this job, which tells about builds without loading them.
+     *
+     * @return null if the builds of this job are not indexed
+     */
+    @Restricted(NoExternalUse.class)
+    public @CheckForNull BuildIndex getBuildIndex() {
+        SortedMap<Integer, ? extends RunT> runs = _getRuns();
+        return runs instanceof AbstractLazyLoadRunMap ? ((AbstractLazyLoadRunMap<?>) runs).getBuildIndex() : null;
+    }
+
+    /**
+     * Gets the summary of a build of this job, without loading the build if possible.
+     *
+     * @return null if there is no such build, or its record could not be read
+     * @since TODO
+     */
+    public @CheckForNull RunSummary getBuildSummary(int n) {
+        SortedMap<Integer, ? extends RunT> runs = _getRuns();
+        if (runs instanceof RunMap) {
+            return ((RunMap<?>) runs).getSummary(n);
+        }
+        RunT r = runs.get(n);
+        return r != null ? RunSummary.of(r) : null;
+    }
+
+    /**
+     * Gets the summaries of all the builds of this job, newer ones first, without loading the builds if possible.
+     *
+     * @see #getBuildSummary(int)
+     * @since TODO
+     */
+    public @Nonnull Iterable<RunSummary> getBuildSummaries() {
+        SortedMap<Integer, ? extends RunT> runs = _getRuns();
+        if (runs instanceof RunMap) {
+            return ((RunMap<?>) runs).summaries();
+        }
+        return Iterables.transform(runs.values(), RunSummary::of);
+    }
+
     /**
      * Called from {@link Run} to remove it from this job.
      * 
@@ -1404,14 +1448,16 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
             @Override
             protected JFreeChart createGraph() {
                 class ChartLabel implements Comparable<ChartLabel> {
-                    final Run run;
+                    final RunSummary run;
+                    final String displayName;
 
-                    public ChartLabel(Run r) {
+                    public ChartLabel(RunSummary r, String displayName) {
                         this.run = r;
+                        this.displayName = displayName;
                     }
 
                     public int compareTo(ChartLabel that) {
-                        return this.run.number - that.run.number;
+                        return this.run.getNumber() - that.run.getNumber();
                     }
 
                     @Override
@@ -1422,7 +1468,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
                             return false;
                         }
                         ChartLabel that = (ChartLabel) o;
-                        return run == that.run;
+                        return run.getNumber() == that.run.getNumber();
                     }
 
                     public Color getColor() {
@@ -1441,28 +1487,40 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
 
                     @Override
                     public int hashCode() {
-                        return run.hashCode();
+                        return run.getNumber();
                     }
 
                     @Override
                     public String toString() {
-                        String l = run.getDisplayName();
-                        if (run instanceof Build) {
-                            String s = ((Build) run).getBuiltOnStr();
-                            if (s != null)
-                                l += ' ' + s;
-                        }
+                        String l = displayName;
+                        String s = run.getBuiltOnStr();
+                        if (s != null)
+                            l += ' ' + s;
                         return l;
                     }
 
                 }
 
                 DataSetBuilder<String, ChartLabel> data = new DataSetBuilder<>();
-                for (Run r : getNewBuilds()) {
-                    if (r.isBuilding())
-                        continue;
-                    data.add(((double) r.getDuration()) / (1000 * 60), "min",
-                            new ChartLabel(r));
+                if (RunSummary.canStandFor(Job.this)) {
+                    // as getNewBuilds(), but only loading builds when their summary does not tell enough
+                    for (RunSummary r : Iterables.limit(getBuildSummaries(), 100)) {
+                        if (r.getResult() == null) {
+                            Run b = getBuildByNumber(r.getNumber());
+                            if (b == null || b.isBuilding())
+                                continue;
+                            r = RunSummary.of(b);
+                        }
+                        data.add(((double) r.getDuration()) / (1000 * 60), "min",
+                                new ChartLabel(r, r.getDisplayName()));
+                    }
+                } else {
+                    for (Run r : getNewBuilds()) {
+                        if (r.isBuilding())
+                            continue;
+                        data.add(((double) r.getDuration()) / (1000 * 60), "min",
+                                new ChartLabel(RunSummary.of(r), r.getDisplayName()));
+                    }
                 }
 
                 final CategoryDataset dataset = data.build();
@@ -1513,7 +1571,7 @@ public abstract class Job<JobT extends Job<JobT, RunT>, RunT extends Run<JobT, R
                     public String generateURL(CategoryDataset dataset, int row,
                             int column) {
                         ChartLabel label = (ChartLabel) dataset.getColumnKey(column);
-                        return String.valueOf(label.run.number);
+                        return String.valueOf(label.run.getNumber());
                     }
 
                     @Override
@@ -26,6 +26,7 @@ package hudson.model;
 import antlr.ANTLRException;
 import static hudson.Util.fixNull;
 
+import hudson.Extension;
 import hudson.model.labels.LabelAtom;
 import hudson.model.labels.LabelExpression;
 import hudson.model.labels.LabelExpression.And;
@@ -44,12 +45,15 @@ import hudson.security.ACL;
 import hudson.security.ACLContext;
 import hudson.slaves.NodeProvisioner;
 import hudson.slaves.Cloud;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
 import hudson.util.QuotedStringTokenizer;
 import hudson.util.VariableResolver;
 import jenkins.model.Jenkins;
 import jenkins.model.ModelObjectWithChildren;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
@@ -74,6 +78,7 @@ import com.thoughtworks.xstream.converters.MarshallingContext;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 /**
@@ -226,13 +231,16 @@ public abstract class Label extends Actionable implements Comparable<Label>, Mod
         Set<Node> nodes = this.nodes;
         if(nodes!=null) return nodes;
 
-        Set<Node> r = new HashSet<>();
         Jenkins h = Jenkins.get();
-        if(this.matches(h))
-            r.add(h);
-        for (Node n : h.getNodes()) {
-            if(this.matches(n))
-                r.add(n);
+        Set<Node> r = h.getLabelNodeIndex().getNodes(this);
+        if (r == null) {
+            r = new HashSet<>();
+            if(this.matches(h))
+                r.add(h);
+            for (Node n : h.getNodes()) {
+                if(this.matches(n))
+                    r.add(n);
+            }
         }
         return this.nodes = Collections.unmodifiableSet(r);
     }
@@ -680,4 +688,29 @@ public abstract class Label extends Actionable implements Comparable<Label>, Mod
             return null;
         }
     };
+
+    /**
+     * Labels contributed by {@link LabelFinder}s may change as agents connect and disconnect,
+     * without any change to the node configuration that would {@linkplain Jenkins#getLabels() trim labels}.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class LabelNodeIndexInvalidator extends ComputerListener {
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            reset();
+        }
+
+        @Override
+        public void onOffline(@Nonnull Computer c, @CheckForNull OfflineCause cause) {
+            reset();
+        }
+
+        private void reset() {
+            Jenkins j = Jenkins.getInstanceOrNull();
+            if (j != null) {
+                j.resetLabels();
+            }
+        }
+    }
 }
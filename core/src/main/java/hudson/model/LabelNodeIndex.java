@@ -0,0 +1,136 @@
+package hudson.model;
+
+import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelExpression;
+import hudson.model.labels.LabelVisitor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Inverted index from {@link LabelAtom} names to the {@link Node}s carrying them.
+ *
+ * <p>
+ * {@link Label#getNodes()} uses this to evaluate a label expression as set operations over node bitsets,
+ * instead of computing {@link Node#getAssignedLabels()} of every node for every label whenever
+ * the label caches are reset. The index is discarded along with those caches, see {@link AbstractCIBase#resetLabelNodeIndex()}.
+ */
+final class LabelNodeIndex {
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, BitSet> atoms = new HashMap<>();
+    private final BitSet all = new BitSet();
+
+    LabelNodeIndex(@Nonnull AbstractCIBase master) {
+        nodes.add(master);
+        nodes.addAll(master.getNodes());
+        for (int i = 0; i < nodes.size(); i++) {
+            for (LabelAtom a : nodes.get(i).getAssignedLabels()) {
+                atoms.computeIfAbsent(a.getName(), k -> new BitSet()).set(i);
+            }
+        }
+        all.set(0, nodes.size());
+    }
+
+    /**
+     * Computes the nodes matching the given label.
+     * @return null if the label could not be evaluated through the index
+     */
+    @CheckForNull Set<Node> getNodes(@Nonnull Label label) {
+        BitSet bits;
+        try {
+            bits = label.accept(EVALUATOR, this);
+        } catch (UnsupportedOperationException e) {
+            // some Label implementation outside core that does not support visitors
+            return null;
+        }
+        if (bits == null) {
+            return null;
+        }
+        Set<Node> r = new HashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            r.add(nodes.get(i));
+        }
+        return r;
+    }
+
+    private BitSet atom(String name) {
+        BitSet bits = atoms.get(name);
+        return bits == null ? new BitSet() : (BitSet) bits.clone();
+    }
+
+    private BitSet not(BitSet bits) {
+        BitSet r = (BitSet) all.clone();
+        r.andNot(bits);
+        return r;
+    }
+
+    /**
+     * Evaluates an expression into the set of matching node indices. Returned sets are always fresh copies,
+     * and null propagates from any operand that cannot be evaluated.
+     */
+    private static final LabelVisitor<BitSet, LabelNodeIndex> EVALUATOR = new LabelVisitor<BitSet, LabelNodeIndex>() {
+        @Override
+        public BitSet onAtom(LabelAtom a, LabelNodeIndex index) {
+            return index.atom(a.getName());
+        }
+
+        @Override
+        public BitSet onParen(LabelExpression.Paren p, LabelNodeIndex index) {
+            return p.base.accept(this, index);
+        }
+
+        @Override
+        public BitSet onNot(LabelExpression.Not p, LabelNodeIndex index) {
+            BitSet base = p.base.accept(this, index);
+            return base == null ? null : index.not(base);
+        }
+
+        @Override
+        public BitSet onAnd(LabelExpression.And p, LabelNodeIndex index) {
+            BitSet lhs = p.lhs.accept(this, index), rhs = p.rhs.accept(this, index);
+            if (lhs == null || rhs == null) {
+                return null;
+            }
+            lhs.and(rhs);
+            return lhs;
+        }
+
+        @Override
+        public BitSet onOr(LabelExpression.Or p, LabelNodeIndex index) {
+            BitSet lhs = p.lhs.accept(this, index), rhs = p.rhs.accept(this, index);
+            if (lhs == null || rhs == null) {
+                return null;
+            }
+            lhs.or(rhs);
+            return lhs;
+        }
+
+        @Override
+        public BitSet onIff(LabelExpression.Iff p, LabelNodeIndex index) {
+            BitSet lhs = p.lhs.accept(this, index), rhs = p.rhs.accept(this, index);
+            if (lhs == null || rhs == null) {
+                return null;
+            }
+            lhs.xor(rhs);
+            return index.not(lhs);
+        }
+
+        @Override
+        public BitSet onImplies(LabelExpression.Implies p, LabelNodeIndex index) {
+            BitSet lhs = p.lhs.accept(this, index), rhs = p.rhs.accept(this, index);
+            if (lhs == null || rhs == null) {
+                return null;
+            }
+            BitSet r = index.not(lhs);
+            r.or(rhs);
+            return r;
+        }
+    };
+}
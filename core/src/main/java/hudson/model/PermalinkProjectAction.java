@@ -24,6 +24,7 @@
 package hudson.model;
 
 import jenkins.model.PeepholePermalink;
+import jenkins.model.RunSummary;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -120,6 +121,12 @@ public interface PermalinkProjectAction extends Action {
             public boolean apply(Run<?, ?> run) {
                 return !run.isBuilding() && run.getResult()==Result.SUCCESS;
             }
+
+            @Override
+            protected boolean mayApply(RunSummary summary) {
+                Result r = summary.getResult();
+                return r == null || r == Result.SUCCESS;
+            }
         };
         public static final Permalink LAST_SUCCESSFUL_BUILD = new PeepholePermalink() {
             public String getDisplayName() {
@@ -134,6 +141,12 @@ public interface PermalinkProjectAction extends Action {
             public boolean apply(Run<?, ?> run) {
                 return !run.isBuilding() && run.getResult().isBetterOrEqualTo(Result.UNSTABLE);
             }
+
+            @Override
+            protected boolean mayApply(RunSummary summary) {
+                Result r = summary.getResult();
+                return r == null || r.isBetterOrEqualTo(Result.UNSTABLE);
+            }
         };
         public static final Permalink LAST_FAILED_BUILD = new PeepholePermalink() {
             public String getDisplayName() {
@@ -148,6 +161,12 @@ public interface PermalinkProjectAction extends Action {
             public boolean apply(Run<?, ?> run) {
                 return !run.isBuilding() && run.getResult()==Result.FAILURE;
             }
+
+            @Override
+            protected boolean mayApply(RunSummary summary) {
+                Result r = summary.getResult();
+                return r == null || r == Result.FAILURE;
+            }
         };
 
         public static final Permalink LAST_UNSTABLE_BUILD = new PeepholePermalink() {
@@ -163,6 +182,12 @@ public interface PermalinkProjectAction extends Action {
             public boolean apply(Run<?, ?> run) {
                 return !run.isBuilding() && run.getResult()==Result.UNSTABLE;
             }
+
+            @Override
+            protected boolean mayApply(RunSummary summary) {
+                Result r = summary.getResult();
+                return r == null || r == Result.UNSTABLE;
+            }
         };
 
         public static final Permalink LAST_UNSUCCESSFUL_BUILD = new PeepholePermalink() {
@@ -178,6 +203,12 @@ public interface PermalinkProjectAction extends Action {
             public boolean apply(Run<?, ?> run) {
                 return !run.isBuilding() && run.getResult()!=Result.SUCCESS;
             }
+
+            @Override
+            protected boolean mayApply(RunSummary summary) {
+                Result r = summary.getResult();
+                return r == null || r != Result.SUCCESS;
+            }
         };
         public static final Permalink LAST_COMPLETED_BUILD = new PeepholePermalink() {
             public String getDisplayName() {
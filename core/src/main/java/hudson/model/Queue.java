@@ -45,6 +45,7 @@ import hudson.model.queue.AbstractQueueTask;
 import hudson.model.queue.Executables;
 import hudson.model.queue.QueueListener;
 import hudson.model.queue.QueueTaskFuture;
+import hudson.model.queue.ScheduleRequest;
 import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.ScheduleResult.Created;
 import hudson.model.queue.SubTask;
@@ -79,11 +80,19 @@ import hudson.util.XStream2;
 import hudson.util.ConsistentHash;
 import hudson.util.ConsistentHash.Hash;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -93,6 +102,7 @@ import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -212,7 +222,7 @@ public class Queue extends ResourceController implements Saveable {
      */
     private final ItemList<BuildableItem> pendings = new ItemList<>();
 
-    private transient volatile Snapshot snapshot = new Snapshot(waitingList, blockedProjects, buildables, pendings);
+    private transient volatile Snapshot snapshot = new Snapshot(waitingList, blockedProjects, buildables, pendings, null);
 
     /**
      * Items that left queue would stay here for a while to enable tracking via {@link Item#getId()}.
@@ -270,6 +280,18 @@ public class Queue extends ResourceController implements Saveable {
          * @since 2.37
          */
         public @CheckForNull CauseOfBlockage getCauseOfBlockage(BuildableItem item) {
+            CauseOfBlockage reason = getNodeCauseOfBlockage(item);
+            if (reason != null) {
+                return reason;
+            }
+            return getExecutorCauseOfBlockage();
+        }
+
+        /**
+         * The part of {@link #getCauseOfBlockage} that only depends on the {@link Node} owning this executor,
+         * and therefore yields the same answer for every executor of that node within one {@link #maintain} cycle.
+         */
+        private @CheckForNull CauseOfBlockage getNodeCauseOfBlockage(BuildableItem item) {
             Node node = getNode();
             if (node == null) {
                 return CauseOfBlockage.fromMessage(Messages._Queue_node_has_been_removed_from_configuration(executor.getOwner().getDisplayName()));
@@ -291,6 +313,14 @@ public class Queue extends ResourceController implements Saveable {
                     return reason;
                 }
             }
+            return null;
+        }
+
+        /**
+         * The part of {@link #getCauseOfBlockage} specific to this executor slot.
+         */
+        private @CheckForNull CauseOfBlockage getExecutorCauseOfBlockage() {
+            Node node = getNode();
             // inlining isAvailable:
             if (workUnit != null) { // unlikely in practice (should not have even found this executor if so)
                 return CauseOfBlockage.fromMessage(Messages._Queue_executor_slot_already_in_use());
@@ -383,6 +413,7 @@ public class Queue extends ResourceController implements Saveable {
      * Loads the queue contents that was {@link #save() saved}.
      */
     public void load() {
+        boolean replayedJournal = false;
         lock.lock();
         try { try {
             // Clear items, for the benefit of reloading.
@@ -405,24 +436,33 @@ public class Queue extends ResourceController implements Saveable {
                 queueFile.delete();
             } else {
                 queueFile = getXMLQueueFile();
-                if (queueFile.exists()) {
-                    Object unmarshaledObj = new XmlFile(XSTREAM, queueFile).read();
-                    List items;
-
-                    if (unmarshaledObj instanceof State) {
-                        State state = (State) unmarshaledObj;
-                        items = state.items;
-                        WaitingItem.COUNTER.set(state.counter);
-                    } else {
-                        // backward compatibility - it's an old List queue.xml
-                        items = (List) unmarshaledObj;
-                        long maxId = 0;
-                        for (Object o : items) {
-                            if (o instanceof Item) {
-                                maxId = Math.max(maxId, ((Item)o).id);
+                File journalFile = getQueueJournalFile();
+                if (queueFile.exists() || journalFile.exists()) {
+                    List items = new ArrayList();
+                    if (queueFile.exists()) {
+                        Object unmarshaledObj = new XmlFile(XSTREAM, queueFile).read();
+
+                        if (unmarshaledObj instanceof State) {
+                            State state = (State) unmarshaledObj;
+                            items = state.items;
+                            WaitingItem.COUNTER.set(state.counter);
+                        } else {
+                            // backward compatibility - it's an old List queue.xml
+                            items = (List) unmarshaledObj;
+                            long maxId = 0;
+                            for (Object o : items) {
+                                if (o instanceof Item) {
+                                    maxId = Math.max(maxId, ((Item)o).id);
+                                }
                             }
+                            WaitingItem.COUNTER.set(maxId);
                         }
-                        WaitingItem.COUNTER.set(maxId);
+                    }
+
+                    if (journalFile.exists()) {
+                        // apply the changes made since queue.xml was last written
+                        items = Journal.replay(journalFile, items);
+                        replayedJournal = true;
                     }
 
                     for (Object o : items) {
@@ -453,10 +493,12 @@ public class Queue extends ResourceController implements Saveable {
                     // object that doesn't appear to be de-serialized properly.
                     // I don't know how this problem happened, but to diagnose this problem better
                     // when it happens again, save the old queue file for introspection.
-                    File bk = new File(queueFile.getPath() + ".bak");
-                    bk.delete();
-                    queueFile.renameTo(bk);
-                    queueFile.delete();
+                    if (queueFile.exists()) {
+                        File bk = new File(queueFile.getPath() + ".bak");
+                        bk.delete();
+                        queueFile.renameTo(bk);
+                        queueFile.delete();
+                    }
                 }
             }
         } catch (IOException e) {
@@ -464,6 +506,10 @@ public class Queue extends ResourceController implements Saveable {
         } finally { updateSnapshot(); } } finally {
             lock.unlock();
         }
+        if (replayedJournal || Journal.ENABLED) {
+            // compact what was just loaded, so the journal only has to cover changes made from now on
+            save();
+        }
     }
 
     /**
@@ -490,6 +536,11 @@ public class Queue extends ResourceController implements Saveable {
 
             try {
                 queueFile.write(state);
+                Journal journal = Journal.get();
+                if (journal != null) {
+                    // everything recorded so far is now part of queue.xml
+                    journal.reset();
+                }
             } catch (IOException e) {
                 LOGGER.log(Level.WARNING, "Failed to write out the queue file " + getXMLQueueFile(), e);
             }
@@ -526,6 +577,10 @@ public class Queue extends ResourceController implements Saveable {
         return new File(Jenkins.get().getRootDir(), "queue.xml");
     }
 
+    /*package*/ static File getQueueJournalFile() {
+        return new File(Jenkins.get().getRootDir(), "queue.journal");
+    }
+
     /**
      * @deprecated as of 1.311
      *      Use {@link #schedule(AbstractProject)}
@@ -595,11 +650,40 @@ public class Queue extends ResourceController implements Saveable {
 
         lock.lock();
         try { try {
-            for (QueueDecisionHandler h : QueueDecisionHandler.all())
-                if (!h.shouldSchedule(p, actions))
-                    return ScheduleResult.refused();    // veto
+            return scheduleInternal(p, quietPeriod, actions, QueueDecisionHandler.all());
+        } finally { updateSnapshot(); } } finally {
+            lock.unlock();
+        }
+    }
 
-            return scheduleInternal(p, quietPeriod, actions);
+    /**
+     * Schedules executions of many tasks at once.
+     *
+     * <p>
+     * Each request is handled exactly as by {@link #schedule2(Task, int, List)}, in iteration order, so a request
+     * for a task already scheduled earlier in the same batch is folded into the item created for it.
+     * Unlike calling {@link #schedule2(Task, int, List)} repeatedly, the queue lock is only taken once,
+     * the snapshot seen by readers is only republished once, and at most one maintenance cycle is triggered,
+     * which matters when an upstream build fans out to hundreds of downstream jobs.
+     * Like {@link #schedule2(Task, int, List)}, this goes straight to the queue,
+     * so a job whose own scheduling methods do more, such as supplying default parameter values, should still be scheduled through those.
+     *
+     * @param requests the tasks to schedule
+     * @return the result of each request, in the iteration order of {@code requests}
+     * @since TODO
+     */
+    public @Nonnull List<ScheduleResult> scheduleAll(@Nonnull Collection<ScheduleRequest> requests) {
+        List<ScheduleResult> results = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return results;
+        }
+        lock.lock();
+        try { try {
+            List<QueueDecisionHandler> handlers = QueueDecisionHandler.all();
+            for (ScheduleRequest request : requests) {
+                results.add(scheduleInternal(request.getTask(), request.getQuietPeriod(), new ArrayList<>(request.getActions()), handlers));
+            }
+            return results;
         } finally { updateSnapshot(); } } finally {
             lock.unlock();
         }
@@ -618,71 +702,71 @@ public class Queue extends ResourceController implements Saveable {
      *
      *      That said, one can still look at {@link WaitingItem#future}, {@link WaitingItem#getId()}, etc.
      */
-    private @Nonnull ScheduleResult scheduleInternal(Task p, int quietPeriod, List<Action> actions) {
-        lock.lock();
-        try { try {
-            Calendar due = new GregorianCalendar();
-            due.add(Calendar.SECOND, quietPeriod);
-
-            // Do we already have this task in the queue? Because if so, we won't schedule a new one.
-            List<Item> duplicatesInQueue = new ArrayList<>();
-            for (Item item : liveGetItems(p)) {
-                boolean shouldScheduleItem = false;
-                for (QueueAction action : item.getActions(QueueAction.class)) {
-                    shouldScheduleItem |= action.shouldSchedule(actions);
-                }
-                for (QueueAction action : Util.filter(actions, QueueAction.class)) {
-                    shouldScheduleItem |= action.shouldSchedule((new ArrayList<>(item.getAllActions())));
-                }
-                if (!shouldScheduleItem) {
-                    duplicatesInQueue.add(item);
-                }
+    @GuardedBy("lock")
+    private @Nonnull ScheduleResult scheduleInternal(Task p, int quietPeriod, List<Action> actions, List<QueueDecisionHandler> handlers) {
+        for (QueueDecisionHandler h : handlers)
+            if (!h.shouldSchedule(p, actions))
+                return ScheduleResult.refused();    // veto
+
+        Calendar due = new GregorianCalendar();
+        due.add(Calendar.SECOND, quietPeriod);
+
+        // Do we already have this task in the queue? Because if so, we won't schedule a new one.
+        List<Item> duplicatesInQueue = new ArrayList<>();
+        for (Item item : liveGetItems(p)) {
+            boolean shouldScheduleItem = false;
+            for (QueueAction action : item.getActions(QueueAction.class)) {
+                shouldScheduleItem |= action.shouldSchedule(actions);
             }
-            if (duplicatesInQueue.isEmpty()) {
-                LOGGER.log(Level.FINE, "{0} added to queue", p);
-
-                // put the item in the queue
-                WaitingItem added = new WaitingItem(due, p, actions);
-                added.enter(this);
-                scheduleMaintenance();   // let an executor know that a new item is in the queue.
-                return ScheduleResult.created(added);
+            for (QueueAction action : Util.filter(actions, QueueAction.class)) {
+                shouldScheduleItem |= action.shouldSchedule((new ArrayList<>(item.getAllActions())));
+            }
+            if (!shouldScheduleItem) {
+                duplicatesInQueue.add(item);
             }
+        }
+        if (duplicatesInQueue.isEmpty()) {
+            LOGGER.log(Level.FINE, "{0} added to queue", p);
 
-            LOGGER.log(Level.FINE, "{0} is already in the queue", p);
+            // put the item in the queue
+            WaitingItem added = new WaitingItem(due, p, actions);
+            added.enter(this);
+            scheduleMaintenance();   // let an executor know that a new item is in the queue.
+            return ScheduleResult.created(added);
+        }
 
-            // but let the actions affect the existing stuff.
-            for (Item item : duplicatesInQueue) {
-                for (FoldableAction a : Util.filter(actions, FoldableAction.class)) {
-                    a.foldIntoExisting(item, p, actions);
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, "after folding {0}, {1} includes {2}", new Object[] {a, item, item.getAllActions()});
-                    }
+        LOGGER.log(Level.FINE, "{0} is already in the queue", p);
+
+        // but let the actions affect the existing stuff.
+        for (Item item : duplicatesInQueue) {
+            for (FoldableAction a : Util.filter(actions, FoldableAction.class)) {
+                a.foldIntoExisting(item, p, actions);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "after folding {0}, {1} includes {2}", new Object[] {a, item, item.getAllActions()});
                 }
             }
+        }
 
-            boolean queueUpdated = false;
-            for (WaitingItem wi : Util.filter(duplicatesInQueue, WaitingItem.class)) {
-                // make sure to always use the shorter of the available due times
-                if (wi.timestamp.before(due))
-                    continue;
+        boolean queueUpdated = false;
+        for (WaitingItem wi : Util.filter(duplicatesInQueue, WaitingItem.class)) {
+            // make sure to always use the shorter of the available due times
+            if (wi.timestamp.before(due))
+                continue;
 
-                // waitingList is sorted, so when we change a timestamp we need to maintain order
-                wi.leave(this);
-                wi.timestamp = due;
-                wi.enter(this);
-                queueUpdated = true;
-            }
+            // waitingList is sorted, so when we change a timestamp we need to maintain order
+            wi.leave(this);
+            wi.timestamp = due;
+            wi.enter(this);
+            queueUpdated = true;
+        }
 
-            if (queueUpdated) scheduleMaintenance();
+        if (queueUpdated) scheduleMaintenance();
 
-            // REVISIT: when there are multiple existing items in the queue that matches the incoming one,
-            // whether the new one should affect all existing ones or not is debatable. I for myself
-            // thought this would only affect one, so the code was bit of surprise, but I'm keeping the current
-            // behaviour.
-            return ScheduleResult.existing(duplicatesInQueue.get(0));
-        } finally { updateSnapshot(); } } finally {
-            lock.unlock();
-        }
+        // REVISIT: when there are multiple existing items in the queue that matches the incoming one,
+        // whether the new one should affect all existing ones or not is debatable. I for myself
+        // thought this would only affect one, so the code was bit of surprise, but I'm keeping the current
+        // behaviour.
+        return ScheduleResult.existing(duplicatesInQueue.get(0));
     }
 
 
@@ -745,7 +829,7 @@ public class Queue extends ResourceController implements Saveable {
     }
 
     private void updateSnapshot() {
-        Snapshot revised = new Snapshot(waitingList, blockedProjects, buildables, pendings);
+        Snapshot revised = new Snapshot(waitingList, blockedProjects, buildables, pendings, snapshot);
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "{0} → {1}; leftItems={2}", new Object[] {snapshot, revised, leftItems.asMap()});
         }
@@ -890,27 +974,28 @@ public class Queue extends ResourceController implements Saveable {
     }
 
     public Item getItem(long id) {
-        Snapshot snapshot = this.snapshot;
-        for (Item item : snapshot.blockedProjects) {
-            if (item.id == id)
-                return item;
-        }
-        for (Item item : snapshot.buildables) {
-            if (item.id == id)
-                return item;
-        }
-        for (Item item : snapshot.pendings) {
-            if (item.id == id)
-                return item;
-        }
-        for (Item item : snapshot.waitingList) {
-            if (item.id == id) {
-                return item;
-            }
+        Item item = snapshot.itemsById().get(id);
+        if (item != null) {
+            return item;
         }
         return leftItems.getIfPresent(id);
     }
 
+    /**
+     * Gets the version of the snapshot backing the read-only accessors of this queue.
+     *
+     * <p>
+     * The version is bumped whenever an item enters, leaves or moves between the stages of the queue,
+     * so clients polling the queue can skip processing when it has not changed since their last poll.
+     * It does not reflect changes internal to an item, such as a new {@link Item#getCauseOfBlockage()}.
+     *
+     * @since TODO
+     */
+    @Exported
+    public long getSnapshotVersion() {
+        return snapshot.version;
+    }
+
     /**
      * Gets all the {@link BuildableItem}s that are waiting for an executor in the given {@link Computer}.
      */
@@ -1071,25 +1156,8 @@ public class Queue extends ResourceController implements Saveable {
      * @return null if the project is not in the queue.
      */
     public Item getItem(Task t) {
-        Snapshot snapshot = this.snapshot;
-        for (Item item : snapshot.blockedProjects) {
-            if (item.task.equals(t))
-                return item;
-        }
-        for (Item item : snapshot.buildables) {
-            if (item.task.equals(t))
-                return item;
-        }
-        for (Item item : snapshot.pendings) {
-            if (item.task.equals(t))
-                return item;
-        }
-        for (Item item : snapshot.waitingList) {
-            if (item.task.equals(t)) {
-                return item;
-            }
-        }
-        return null;
+        List<Item> items = snapshot.itemsByTask().get(t);
+        return items == null ? null : items.get(0);
     }
 
     /**
@@ -1128,29 +1196,8 @@ public class Queue extends ResourceController implements Saveable {
      * @return empty if the project is not in the queue.
      */
     public List<Item> getItems(Task t) {
-        Snapshot snapshot = this.snapshot;
-        List<Item> result = new ArrayList<>();
-        for (Item item : snapshot.blockedProjects) {
-            if (item.task.equals(t)) {
-                result.add(item);
-            }
-        }
-        for (Item item : snapshot.buildables) {
-            if (item.task.equals(t)) {
-                result.add(item);
-            }
-        }
-        for (Item item : snapshot.pendings) {
-            if (item.task.equals(t)) {
-                result.add(item);
-            }
-        }
-        for (Item item : snapshot.waitingList) {
-            if (item.task.equals(t)) {
-                result.add(item);
-            }
-        }
-        return result;
+        List<Item> items = snapshot.itemsByTask().get(t);
+        return items == null ? new ArrayList<>() : new ArrayList<>(items);
     }
 
     /**
@@ -1630,8 +1677,25 @@ public class Queue extends ResourceController implements Saveable {
 
                     List<JobOffer> candidates = new ArrayList<>(parked.size());
                     List<CauseOfBlockage> reasons = new ArrayList<>(parked.size());
+                    // node-level checks (Node.canTake, QueueTaskDispatcher.canTake) are evaluated once per computer
+                    // rather than once per parked executor, which matters on agents with many executors
+                    Map<Computer, CauseOfBlockage> nodeReasons = new HashMap<>();
                     for (JobOffer j : parked.values()) {
-                        CauseOfBlockage reason = j.getCauseOfBlockage(p);
+                        CauseOfBlockage reason;
+                        if (CACHE_NODE_CAUSES_OF_BLOCKAGE) {
+                            Computer owner = j.executor.getOwner();
+                            if (nodeReasons.containsKey(owner)) {
+                                reason = nodeReasons.get(owner);
+                            } else {
+                                reason = j.getNodeCauseOfBlockage(p);
+                                nodeReasons.put(owner, reason);
+                            }
+                            if (reason == null) {
+                                reason = j.getExecutorCauseOfBlockage();
+                            }
+                        } else {
+                            reason = j.getCauseOfBlockage(p);
+                        }
                         if (reason == null) {
                             LOGGER.log(Level.FINEST,
                                     "{0} is a potential candidate for task {1}",
@@ -2809,6 +2873,15 @@ public class Queue extends ResourceController implements Saveable {
 
     private static final Logger LOGGER = Logger.getLogger(Queue.class.getName());
 
+    /**
+     * Whether {@link Node#canTake(BuildableItem)} and {@link QueueTaskDispatcher#canTake(Node, BuildableItem)} are
+     * evaluated once per {@link Computer} for each buildable item in a {@link #maintain} cycle.
+     * Set to false to evaluate them for every parked executor, as was done before.
+     */
+    @Restricted(NoExternalUse.class)
+    /* package */ static /* Script Console modifiable */ boolean CACHE_NODE_CAUSES_OF_BLOCKAGE =
+            SystemProperties.getBoolean(Queue.class.getName() + ".cacheNodeCausesOfBlockage", true);
+
     /**
      * This {@link XStream} instance is used to persist {@link Task}s.
      */
@@ -2980,13 +3053,80 @@ public class Queue extends ResourceController implements Saveable {
         private final List<BlockedItem> blockedProjects;
         private final List<BuildableItem> buildables;
         private final List<BuildableItem> pendings;
+        private final long version;
+
+        /**
+         * Lookup indexes, computed on first use since {@link #maintain} creates many snapshots nobody reads.
+         * Racy initialization is fine: the lists above never change, so concurrent readers compute equal maps.
+         */
+        private volatile Map<Long, Item> itemsById;
+        private volatile Map<Task, List<Item>> itemsByTask;
 
         public Snapshot(Set<WaitingItem> waitingList, List<BlockedItem> blockedProjects, List<BuildableItem> buildables,
-                        List<BuildableItem> pendings) {
+                        List<BuildableItem> pendings, @CheckForNull Snapshot previous) {
             this.waitingList = new LinkedHashSet<>(waitingList);
             this.blockedProjects = new ArrayList<>(blockedProjects);
             this.buildables = new ArrayList<>(buildables);
             this.pendings = new ArrayList<>(pendings);
+            if (previous == null) {
+                this.version = 0;
+            } else if (sameItems(previous.waitingList, this.waitingList)
+                    && sameItems(previous.blockedProjects, this.blockedProjects)
+                    && sameItems(previous.buildables, this.buildables)
+                    && sameItems(previous.pendings, this.pendings)) {
+                this.version = previous.version;
+            } else {
+                this.version = previous.version + 1;
+            }
+        }
+
+        private static boolean sameItems(Collection<? extends Item> a, Collection<? extends Item> b) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            Iterator<? extends Item> it = b.iterator();
+            for (Item item : a) {
+                if (item != it.next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Iterates over all items in the precedence order used by the lookup methods of {@link Queue}.
+         */
+        private List<Item> lookupOrder() {
+            List<Item> r = new ArrayList<>(blockedProjects.size() + buildables.size() + pendings.size() + waitingList.size());
+            r.addAll(blockedProjects);
+            r.addAll(buildables);
+            r.addAll(pendings);
+            r.addAll(waitingList);
+            return r;
+        }
+
+        Map<Long, Item> itemsById() {
+            Map<Long, Item> r = itemsById;
+            if (r == null) {
+                r = new HashMap<>();
+                for (Item item : lookupOrder()) {
+                    r.putIfAbsent(item.id, item);
+                }
+                itemsById = r;
+            }
+            return r;
+        }
+
+        Map<Task, List<Item>> itemsByTask() {
+            Map<Task, List<Item>> r = itemsByTask;
+            if (r == null) {
+                r = new HashMap<>();
+                for (Item item : lookupOrder()) {
+                    r.computeIfAbsent(item.task, k -> new ArrayList<>(1)).add(item);
+                }
+                itemsByTask = r;
+            }
+            return r;
         }
 
         @Override
@@ -3137,4 +3277,202 @@ public class Queue extends ResourceController implements Saveable {
             }
         }
     }
+
+    /**
+     * Append-only log of the changes to the queue since {@link Queue#save()} last wrote {@code queue.xml},
+     * so that those changes survive a crash without rewriting the whole queue on every change.
+     *
+     * Each item entering a stage of the queue is recorded with its serialized form, and each item leaving it with
+     * just its id. {@link Queue#load()} replays the journal on top of {@code queue.xml}, and every successful
+     * {@link Queue#save()} compacts it away. Stages of replayed items might not be accurate, just like with
+     * {@link Saver}, as they will be reshuffled by the next {@link Queue#maintain()}.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static final class Journal extends QueueListener {
+
+        /**
+         * Whether changes are journaled. An existing journal is replayed on load regardless.
+         */
+        @VisibleForTesting
+        /*package*/ static /*final*/ boolean ENABLED = SystemProperties.getBoolean("hudson.model.Queue.Journal.ENABLED");
+
+        /**
+         * Number of records after which a compaction is scheduled.
+         */
+        @VisibleForTesting
+        /*package*/ static /*final*/ int COMPACTION_THRESHOLD = SystemProperties.getInteger("hudson.model.Queue.Journal.COMPACTION_THRESHOLD", 1000);
+
+        private static final byte ENTER = 1;
+        private static final byte LEFT = 2;
+
+        @GuardedBy("this")
+        private DataOutputStream out;
+        @GuardedBy("this")
+        private int records;
+        /**
+         * Set once an append failed, as the journal might then end with a partial record
+         * which anything appended after it would be read as part of.
+         */
+        @GuardedBy("this")
+        private boolean broken;
+        @GuardedBy("this")
+        private boolean compacting;
+
+        static @CheckForNull Journal get() {
+            return ExtensionList.lookup(Journal.class).get(Journal.class);
+        }
+
+        @Override
+        public void onEnterWaiting(WaitingItem wi) {
+            entered(wi);
+        }
+
+        @Override
+        public void onEnterBlocked(BlockedItem bi) {
+            entered(bi);
+        }
+
+        @Override
+        public void onEnterBuildable(BuildableItem bi) {
+            entered(bi);
+        }
+
+        @Override
+        public void onLeft(LeftItem li) {
+            if (ENABLED) {
+                append(LEFT, li.getId(), null);
+            }
+        }
+
+        private void entered(Item item) {
+            if (ENABLED && !(item.task instanceof TransientTask)) {
+                append(ENTER, item.getId(), XSTREAM.toXML(item).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private synchronized void append(byte type, long id, @CheckForNull byte[] xml) {
+            Jenkins j = Jenkins.getInstanceOrNull();
+            if (j == null) {
+                return;
+            }
+            if (!broken) {
+                try {
+                    if (out == null) {
+                        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getQueueJournalFile(), true)));
+                    }
+                    out.writeByte(type);
+                    out.writeLong(id);
+                    if (xml != null) {
+                        out.writeInt(xml.length);
+                        out.write(xml);
+                    }
+                    out.flush();
+                    records++;
+                } catch (IOException e) {
+                    broken = true;
+                    if (out != null) {
+                        try {
+                            out.close();
+                        } catch (IOException x) {
+                            e.addSuppressed(x);
+                        }
+                        out = null;
+                    }
+                    LOGGER.log(Level.WARNING, "Failed to append to the queue journal " + getQueueJournalFile() + "; no longer appending until the queue is saved", e);
+                }
+            }
+            // while broken, the pending save picks up this change along with everything else
+            if ((broken || records >= COMPACTION_THRESHOLD) && !compacting) {
+                compacting = true;
+                Timer.get().submit(() -> {
+                    try {
+                        j.getQueue().save();
+                    } finally {
+                        synchronized (this) {
+                            // if saving failed, the next change tries again
+                            compacting = false;
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Discards the journal, once everything it recorded has been written to {@code queue.xml}.
+         */
+        synchronized void reset() {
+            records = 0;
+            broken = false;
+            try {
+                if (out != null) {
+                    out.close();
+                }
+                Files.deleteIfExists(getQueueJournalFile().toPath());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to discard the queue journal " + getQueueJournalFile(), e);
+            } finally {
+                out = null;
+            }
+        }
+
+        /**
+         * Applies the journal to the items read from {@code queue.xml}.
+         * @return the items in the queue, after the journaled changes
+         */
+        static List<Object> replay(File journalFile, List<?> items) {
+            List<Object> r = new ArrayList<>();
+            Map<Long, Item> byId = new LinkedHashMap<>();
+            for (Object o : items) {
+                if (o instanceof Item) {
+                    byId.put(((Item) o).id, (Item) o);
+                } else {
+                    r.add(o);
+                }
+            }
+            long maxId = 0;
+            long length = journalFile.length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile.toPath())))) {
+                while (true) {
+                    byte type;
+                    try {
+                        type = in.readByte();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long id = in.readLong();
+                    maxId = Math.max(maxId, id);
+                    if (type == ENTER) {
+                        int size = in.readInt();
+                        if (size < 0 || size > length) {
+                            throw new EOFException();
+                        }
+                        byte[] xml = new byte[size];
+                        in.readFully(xml);
+                        try {
+                            Object o = XSTREAM.fromXML(new ByteArrayInputStream(xml));
+                            byId.remove(id);
+                            if (o instanceof Item) {
+                                byId.put(id, (Item) o);
+                            }
+                        } catch (RuntimeException | LinkageError e) {
+                            LOGGER.log(Level.WARNING, "Failed to read queue item #" + id + " from " + journalFile, e);
+                        }
+                    } else if (type == LEFT) {
+                        byId.remove(id);
+                    } else {
+                        throw new IOException("Unknown record type " + type);
+                    }
+                }
+            } catch (EOFException e) {
+                // the last record was only partially written, most likely because of a crash
+                LOGGER.log(Level.WARNING, "Ignoring the truncated last record of {0}", journalFile);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to replay the queue journal " + journalFile, e);
+            }
+            WaitingItem.COUNTER.accumulateAndGet(maxId, Math::max);
+            r.addAll(byId.values());
+            return r;
+        }
+    }
 }
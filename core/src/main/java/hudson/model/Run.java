@@ -37,8 +37,11 @@ import hudson.ExtensionPoint;
 import hudson.FeedAdapter;
 import hudson.Functions;
 import hudson.console.AnnotatedLargeText;
+import hudson.console.BlockCompressedLog;
 import hudson.console.ConsoleLogFilter;
 import hudson.console.ConsoleNote;
+import hudson.console.ConsoleTail;
+import hudson.console.LineIndex;
 import hudson.console.ModelHyperlinkNote;
 import hudson.console.PlainTextConsoleOutputStream;
 import java.nio.file.Files;
@@ -115,6 +118,7 @@ import jenkins.model.StandardArtifactManager;
 import jenkins.model.lazy.BuildReference;
 import jenkins.model.lazy.LazyBuildMixIn;
 import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.SaveScheduler;
 import jenkins.util.VirtualFile;
 import jenkins.util.io.OnMaster;
 import net.sf.json.JSONObject;
@@ -1488,13 +1492,17 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
         if (gzF.isFile()) {
             return gzF;
         }
+        File blocksF = new File(getRootDir(), BlockCompressedLog.FILE_NAME);
+        if (blocksF.isFile()) {
+            return blocksF;
+        }
         //If both fail, return the standard, uncompressed log file
         return rawF;
     }
 
     /**
      * Returns an input stream that reads from the log file.
-     * It will use a gzip-compressed log file (log.gz) if that exists.
+     * It will use a gzip-compressed log file (log.gz) or a block-compressed one (log.blocks) if that exists.
      *
      * @throws IOException 
      * @return An input stream from the log file. 
@@ -1507,6 +1515,9 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
     	if (logFile.exists() ) {
     	    // Checking if a ".gz" file was return
             try {
+                if (BlockCompressedLog.isCompressed(logFile)) {
+                    return BlockCompressedLog.open(logFile, 0);
+                }
                 InputStream fis = Files.newInputStream(logFile.toPath());
                 if (logFile.getName().endsWith(".gz")) {
                     return new GZIPInputStream(fis);
@@ -1522,6 +1533,22 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
     	return new ByteArrayInputStream(charset != null ? message.getBytes(charset) : message.getBytes());
     }
    
+    /**
+     * Returns an input stream that reads some lines of the log.
+     * Logs written as of this version are indexed, so that this does not read the log from the start.
+     *
+     * @param from the zero-based number of the first line
+     * @param to the zero-based number of the line after the last, or {@link Long#MAX_VALUE} to read to the end
+     * @since TODO
+     */
+    public @Nonnull InputStream getLogInputStream(long from, long to) throws IOException {
+        LineIndex index = LineIndex.load(getLogFile());
+        if (index != null) {
+            return index.openLines(from, to);
+        }
+        return LineIndex.lines(getLogInputStream(), from, to);
+    }
+
     public @Nonnull Reader getLogReader() throws IOException {
         if (charset==null)  return new InputStreamReader(getLogInputStream());
         else                return new InputStreamReader(getLogInputStream(),charset);
@@ -1636,6 +1663,7 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
         } // for StandardArtifactManager, deleting the whole build dir suffices
         
         synchronized (this) { // avoid holding a lock while calling plugin impls of onDeleted
+            SaveScheduler.cancel(getRootDir());
             File tmp = new File(rootDir.getParentFile(),'.'+rootDir.getName());
             
             if (tmp.exists()) {
@@ -1962,7 +1990,12 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
         // gets reflected to the file immediately, which can then be
         // served to the browser immediately
         try {
-            return Files.newOutputStream(getLogFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            File logFile = getLogFile();
+            if (BlockCompressedLog.isCompressed(logFile) || BlockCompressedLog.ENABLED && !logFile.exists()) {
+                logFile = new File(getRootDir(), BlockCompressedLog.FILE_NAME);
+                return LineIndex.record(logFile, BlockCompressedLog.write(logFile));
+            }
+            return LineIndex.record(logFile, Files.newOutputStream(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND));
         } catch (InvalidPathException e) {
             throw new IOException(e);
         }
@@ -2046,7 +2079,7 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
      * Save the settings to a file.
      */
     public synchronized void save() throws IOException {
-        if(BulkChange.contains(this))   return;
+        if(BulkChange.contains(this) || SaveScheduler.defer(this, getRootDir()))   return;
         getDataFile().write(this);
         SaveableListener.fireOnChange(this, getDataFile());
     }
@@ -2077,7 +2110,13 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
      */
     @Deprecated
     public @Nonnull String getLog() throws IOException {
-        return Util.loadFile(getLogFile(),getCharset());
+        File logFile = getLogFile();
+        if (BlockCompressedLog.isCompressed(logFile)) {
+            try (InputStream in = getLogInputStream()) {
+                return IOUtils.toString(in, getCharset());
+            }
+        }
+        return Util.loadFile(logFile,getCharset());
     }
 
     /**
@@ -2094,6 +2133,11 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
             return Collections.emptyList();
         }
 
+        LineIndex index = LineIndex.load(getLogFile());
+        if (index != null) {
+            return ConsoleNote.removeNotes(index.tail(maxLines, getCharset()));
+        }
+
         int lines = 0;
         long filePointer;
         final List<String> lastLines = new ArrayList<>(Math.min(maxLines, 128));
@@ -2265,16 +2309,49 @@ public abstract class Run <JobT extends Job<JobT,RunT>,RunT extends Run<JobT,Run
 
     /**
      * Sends out the raw console output.
+     * With {@code start} and/or {@code end} query parameters, only sends out these lines, counting from 1.
      */
     public void doConsoleText(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        String start = req.getParameter("start");
+        String end = req.getParameter("end");
+        long from = 0;
+        long to = Long.MAX_VALUE;
+        try {
+            if (start != null) {
+                from = Math.max(0, Long.parseLong(start) - 1);
+            }
+            if (end != null) {
+                to = Math.max(from, Long.parseLong(end));
+            }
+        } catch (NumberFormatException e) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "start and end must be line numbers");
+            return;
+        }
         rsp.setContentType("text/plain;charset=UTF-8");
-        try (InputStream input = getLogInputStream();
+        try (InputStream input = start == null && end == null ? getLogInputStream() : getLogInputStream(from, to);
              OutputStream os = rsp.getCompressedOutputStream(req);
              PlainTextConsoleOutputStream out = new PlainTextConsoleOutputStream(os)) {
             IOUtils.copy(input, out);
         }
     }
 
+    /**
+     * Streams the annotated console output of a running build over a WebSocket, from the {@code start} offset.
+     * @see ConsoleTail
+     */
+    @Restricted(NoExternalUse.class)
+    public HttpResponse doConsoleStream(@QueryParameter long start) {
+        return ConsoleTail.stream(this, start);
+    }
+
+    /**
+     * Whether {@link #doConsoleStream} can be used rather than polling, for Jelly.
+     */
+    @Restricted(NoExternalUse.class)
+    public boolean isConsoleStreamSupported() {
+        return ConsoleTail.isSupported();
+    }
+
     /**
      * Handles incremental log output.
      * @deprecated as of 1.352
@@ -23,6 +23,8 @@
  */
 package hudson.model;
 
+import hudson.Extension;
+import hudson.model.listeners.RunListener;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
@@ -35,11 +37,15 @@ import java.util.logging.Level;
 
 import static java.util.logging.Level.*;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
 import jenkins.model.RunIdMigrator;
+import jenkins.model.RunSummary;
 import jenkins.model.lazy.AbstractLazyLoadRunMap;
 import static jenkins.model.lazy.AbstractLazyLoadRunMap.Direction.*;
+import jenkins.model.lazy.BuildIndex;
 import jenkins.model.lazy.BuildReference;
 import jenkins.model.lazy.LazyBuildMixIn;
+import jenkins.model.lazy.SortedIntList;
 import org.apache.commons.collections.comparators.ReverseComparator;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
@@ -177,6 +183,84 @@ public final class RunMap<R extends Run<?,R>> extends AbstractLazyLoadRunMap<R>
         return r.getId();
     }
 
+    /**
+     * Keeps the index next to the directory of build records, as {@code builds.index} in the job directory
+     * for the default location, or with {@code .index} appended to the name of the directory otherwise.
+     */
+    @Override
+    protected File getBuildIndexFile() {
+        File parent = dir.getParentFile();
+        return parent != null ? new File(parent, dir.getName() + ".index") : null;
+    }
+
+    @Override
+    protected RunSummary getSummaryOf(R r) {
+        return RunSummary.of(r);
+    }
+
+    /**
+     * Gets the summary of a build, without loading it if possible.
+     *
+     * @return null if there is no such build, or its record could not be read
+     * @see Job#getBuildSummary(int)
+     */
+    public @CheckForNull RunSummary getSummary(int n) {
+        if (!runExists(n)) {
+            return null;
+        }
+        R r = getIfLoaded(n);
+        if (r != null) {
+            return RunSummary.of(r);
+        }
+        BuildIndex bi = getBuildIndex();
+        RunSummary s = bi != null ? bi.get(n) : null;
+        if (s != null && s.isComplete()) {
+            return s;
+        }
+        s = RunSummary.read(new File(dir, String.valueOf(n)), n);
+        if (s != null && bi != null) {
+            bi.update(s);
+        }
+        return s;
+    }
+
+    /**
+     * Walks through summaries of builds, newer ones first, skipping those that cannot be read.
+     *
+     * @see #getSummary(int)
+     */
+    public Iterable<RunSummary> summaries() {
+        return () -> new Iterator<RunSummary>() {
+            final SortedIntList numbers = getNumbersOnDisk();
+            int idx = numbers.size() - 1;
+            RunSummary next = advance();
+
+            private RunSummary advance() {
+                for (; idx >= 0; idx--) {
+                    RunSummary s = getSummary(numbers.get(idx));
+                    if (s != null) {
+                        idx--;
+                        return s;
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public RunSummary next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                RunSummary s = next;
+                next = advance();
+                return s;
+            }
+        };
+    }
+
     /**
      * Add a <em>new</em> build to the map.
      * Do not use when loading existing builds (use {@link #put(Integer, Object)}).
@@ -253,6 +337,22 @@ public final class RunMap<R extends Run<?,R>> extends AbstractLazyLoadRunMap<R>
         initBaseDir(job.getBuildDir());
     }
 
+    /**
+     * Records completed builds in the {@link BuildIndex} of their job.
+     */
+    @Restricted(NoExternalUse.class)
+    @Extension
+    public static final class BuildIndexUpdater extends RunListener<Run<?, ?>> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        public void onFinalized(Run<?, ?> r) {
+            SortedMap<Integer, ? extends Run> runs = ((Job) r.getParent())._getRuns();
+            if (runs instanceof RunMap) {
+                ((RunMap) runs).updateBuildIndex(r);
+            }
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(RunMap.class.getName());
 
     private static class ThisIsHowItsLoaded extends Exception {}
@@ -330,6 +330,10 @@ public abstract class Slave extends Node implements Serializable {
     @DataBoundSetter
     public void setLabelString(String labelString) throws IOException {
         this.label = Util.fixNull(labelString).trim();
+        Jenkins j = Jenkins.getInstanceOrNull();
+        if (j != null) {
+            j.resetLabelNodeIndex();
+        }
         // Compute labels now.
         getAssignedLabels();
     }
@@ -0,0 +1,57 @@
+package hudson.model.queue;
+
+import hudson.model.Action;
+import hudson.model.Queue;
+import hudson.model.Queue.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+
+/**
+ * Arguments of a single {@link Queue#schedule2(Task, int, List)} call,
+ * so that many of them can be submitted at once through {@link Queue#scheduleAll}.
+ *
+ * @since TODO
+ * @see ScheduleResult
+ */
+public final class ScheduleRequest {
+    private final Task task;
+    private final int quietPeriod;
+    private final List<Action> actions;
+
+    /**
+     * @param actions
+     *      For the convenience of the caller, this list can contain null, and those will be silently ignored.
+     */
+    public ScheduleRequest(@Nonnull Task task, int quietPeriod, @Nonnull List<? extends Action> actions) {
+        this.task = task;
+        this.quietPeriod = quietPeriod;
+        List<Action> r = new ArrayList<>(actions);
+        r.removeIf(Objects::isNull);
+        this.actions = Collections.unmodifiableList(r);
+    }
+
+    public ScheduleRequest(@Nonnull Task task, int quietPeriod, Action... actions) {
+        this(task, quietPeriod, Arrays.asList(actions));
+    }
+
+    public @Nonnull Task getTask() {
+        return task;
+    }
+
+    public int getQuietPeriod() {
+        return quietPeriod;
+    }
+
+    public @Nonnull List<Action> getActions() {
+        return actions;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleRequest[" + task + ", quietPeriod=" + quietPeriod + "]";
+    }
+}
@@ -32,7 +32,9 @@ import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.AutoCompletionCandidates;
 import hudson.model.BuildListener;
+import hudson.model.Cause;
 import hudson.model.Cause.UpstreamCause;
+import hudson.model.CauseAction;
 import hudson.model.DependencyGraph;
 import hudson.model.DependencyGraph.Dependency;
 import hudson.model.Item;
@@ -44,6 +46,8 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
+import hudson.model.queue.ScheduleRequest;
+import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.Tasks;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
@@ -198,6 +202,8 @@ public class BuildTrigger extends Recorder implements DependencyDeclarer {
         }
         if (!jobs.isEmpty() && build.getResult().isBetterOrEqualTo(threshold)) {
             PrintStream logger = listener.getLogger();
+            List<ScheduleRequest> requests = new ArrayList<>();
+            List<Job<?, ?>> scheduled = new ArrayList<>();
             for (Job<?, ?> downstream : jobs) {
                 if (Jenkins.get().getItemByFullName(downstream.getFullName()) != downstream) {
                     LOGGER.log(Level.WARNING, "Running as {0} cannot even see {1} for trigger from {2}", new Object[] {Jenkins.getAuthentication().getName(), downstream, build.getParent()});
@@ -220,16 +226,19 @@ public class BuildTrigger extends Recorder implements DependencyDeclarer {
                     logger.println(Messages.BuildTrigger_NotBuildable(ModelHyperlinkNote.encodeTo(downstream)));
                     continue;
                 }
-                boolean scheduled = pj.scheduleBuild(pj.getQuietPeriod(), new UpstreamCause((Run) build));
-                if (Jenkins.get().getItemByFullName(downstream.getFullName()) == downstream) {
-                    String name = ModelHyperlinkNote.encodeTo(downstream);
-                    if (scheduled) {
-                        logger.println(Messages.BuildTrigger_Triggering(name));
-                    } else {
-                        logger.println(Messages.BuildTrigger_InQueue(name));
-                    }
+                if (!STANDARD_SCHEDULING.get(downstream.getClass())) {
+                    logScheduleResult(downstream, pj.scheduleBuild(pj.getQuietPeriod(), new UpstreamCause((Run) build)), logger);
+                    continue;
+                }
+                ScheduleRequest request = ParameterizedJobMixIn.scheduleRequest(downstream, pj.getQuietPeriod(), new CauseAction(new UpstreamCause((Run) build)));
+                if (request == null) {
+                    logScheduleResult(downstream, false, logger);
+                    continue;
                 }
+                requests.add(request);
+                scheduled.add(downstream);
             }
+            logScheduleResults(scheduled, Jenkins.get().getQueue().scheduleAll(requests), logger);
         }
         return true;
     }
@@ -265,6 +274,9 @@ public class BuildTrigger extends Recorder implements DependencyDeclarer {
             }
         });
 
+        // schedule all downstream builds in one go rather than taking the queue lock for each of them
+        List<ScheduleRequest> requests = new ArrayList<>();
+        List<Job<?, ?>> scheduled = new ArrayList<>();
         for (Dependency dep : downstreamProjects) {
             List<Action> buildActions = new ArrayList<>();
             if (dep.shouldTriggerBuild(build, listener, buildActions)) {
@@ -274,21 +286,64 @@ public class BuildTrigger extends Recorder implements DependencyDeclarer {
                     logger.println(Messages.BuildTrigger_Disabled(ModelHyperlinkNote.encodeTo(p)));
                     continue;
                 }
-                boolean scheduled = p.scheduleBuild(p.getQuietPeriod(), new UpstreamCause((Run)build), buildActions.toArray(new Action[0]));
-                if (Jenkins.get().getItemByFullName(p.getFullName()) == p) {
-                    String name = ModelHyperlinkNote.encodeTo(p);
-                    if (scheduled) {
-                        logger.println(Messages.BuildTrigger_Triggering(name));
-                    } else {
-                        logger.println(Messages.BuildTrigger_InQueue(name));
-                    }
-                } // otherwise upstream users should not know that it happened
+                if (!STANDARD_SCHEDULING.get(p.getClass())) {
+                    logScheduleResult(p, p.scheduleBuild(p.getQuietPeriod(), new UpstreamCause((Run)build), buildActions.toArray(new Action[0])), logger);
+                    continue;
+                }
+                buildActions.add(new CauseAction(new UpstreamCause((Run)build)));
+                ScheduleRequest request = ParameterizedJobMixIn.scheduleRequest(p, p.getQuietPeriod(), buildActions.toArray(new Action[0]));
+                if (request == null) {
+                    logScheduleResult(p, false, logger);
+                    continue;
+                }
+                requests.add(request);
+                scheduled.add(p);
             }
         }
+        logScheduleResults(scheduled, Jenkins.get().getQueue().scheduleAll(requests), logger);
 
         return true;
     }
 
+    private static void logScheduleResults(List<Job<?, ?>> jobs, List<ScheduleResult> results, PrintStream logger) {
+        for (int i = 0; i < jobs.size(); i++) {
+            logScheduleResult(jobs.get(i), results.get(i).isAccepted(), logger);
+        }
+    }
+
+    private static void logScheduleResult(Job<?, ?> job, boolean scheduled, PrintStream logger) {
+        if (Jenkins.get().getItemByFullName(job.getFullName()) == job) {
+            String name = ModelHyperlinkNote.encodeTo(job);
+            if (scheduled) {
+                logger.println(Messages.BuildTrigger_Triggering(name));
+            } else {
+                logger.println(Messages.BuildTrigger_InQueue(name));
+            }
+        } // otherwise upstream users should not know that it happened
+    }
+
+    /**
+     * Whether a job type schedules builds through the standard implementation of every method used by the triggers,
+     * so that those can be scheduled in one go through {@link hudson.model.Queue#scheduleAll} instead.
+     * Others are still scheduled through their own methods.
+     */
+    private static final ClassValue<Boolean> STANDARD_SCHEDULING = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (AbstractProject.class.isAssignableFrom(type)) {
+                return !Util.isOverridden(AbstractProject.class, type, "scheduleBuild", int.class, Cause.class, Action[].class)
+                        && !Util.isOverridden(AbstractProject.class, type, "scheduleBuild2", int.class, Cause.class, Action[].class)
+                        && !Util.isOverridden(AbstractProject.class, type, "scheduleBuild2", int.class, Cause.class, Collection.class)
+                        && !Util.isOverridden(AbstractProject.class, type, "scheduleBuild2", int.class, Action[].class);
+            }
+            try {
+                return type.getMethod("scheduleBuild", int.class, Cause.class).getDeclaringClass() == ParameterizedJobMixIn.ParameterizedJob.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     public void buildDependencyGraph(AbstractProject owner, DependencyGraph graph) {
         for (AbstractProject p : getChildProjects(owner)) // only care about AbstractProject here
             graph.addDependency(new Dependency(owner, p) {
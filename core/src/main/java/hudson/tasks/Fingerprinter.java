@@ -40,7 +40,6 @@ import hudson.model.DependencyGraph;
 import hudson.model.DependencyGraph.Dependency;
 import hudson.model.Fingerprint;
 import hudson.model.Fingerprint.BuildPtr;
-import hudson.model.FingerprintMap;
 import hudson.model.Job;
 import jenkins.model.Jenkins;
 import hudson.model.Result;
@@ -68,6 +67,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -255,11 +255,6 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
             this.md5sum = md5sum;
         }
 
-        Fingerprint addRecord(Run build) throws IOException {
-            FingerprintMap map = Jenkins.get().getFingerprintMap();
-            return map.getOrCreate(produced?build:null, fileName, md5sum);
-        }
-
         private static final long serialVersionUID = 1L;
     }
 
@@ -311,15 +306,30 @@ public class Fingerprinter extends Recorder implements Serializable, DependencyD
     }
 
     private void record(Run<?,?> build, FilePath ws, TaskListener listener, Map<String,String> record, final String targets) throws IOException, InterruptedException {
-        for (Record r : ws.act(new FindRecords(targets, excludes, defaultExcludes, caseSensitive, build.getTimeInMillis()))) {
-            Fingerprint fp = r.addRecord(build);
+        long start = System.currentTimeMillis();
+        List<Record> records = ws.act(new FindRecords(targets, excludes, defaultExcludes, caseSensitive, build.getTimeInMillis()));
+        long digested = System.currentTimeMillis();
+
+        // files with the same contents share a record, created as the first of them would create it
+        Map<String,String> fileNames = new LinkedHashMap<>();
+        Set<String> produced = new HashSet<>();
+        for (Record r : records) {
+            if (fileNames.putIfAbsent(r.md5sum, r.fileName) == null && r.produced) {
+                produced.add(r.md5sum);
+            }
+        }
+        Map<String,Fingerprint> fingerprints = Jenkins.get().getFingerprintMap().addFor(build, fileNames, produced);
+        for (Record r : records) {
+            Fingerprint fp = fingerprints.get(r.md5sum);
             if(fp==null) {
                 listener.error(Messages.Fingerprinter_FailedFor(r.relativePath));
                 continue;
             }
-            fp.addFor(build);
             record.put(r.relativePath,fp.getHashString());
         }
+        long end = System.currentTimeMillis();
+        listener.getLogger().println(Messages.Fingerprinter_Recorded(records.size(), fingerprints.size(),
+                Util.getTimeSpanString(digested - start), Util.getTimeSpanString(end - digested)));
     }
 
     @Extension @Symbol("fingerprint")
@@ -24,6 +24,8 @@
 package hudson.util;
 
 import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -57,6 +59,21 @@ public class AtomicFileWriter extends Writer {
     private static /* final */ boolean DISABLE_FORCED_FLUSH = SystemProperties.getBoolean(
             AtomicFileWriter.class.getName() + ".DISABLE_FORCED_FLUSH");
 
+    /**
+     * Whether {@link #commit} should force the file to disk together with those other threads commit at the same time.
+     * @see GroupCommit
+     */
+    @Restricted(NoExternalUse.class)
+    static /* Script Console modifiable */ boolean GROUP_COMMIT = SystemProperties.getBoolean(
+            AtomicFileWriter.class.getName() + ".GROUP_COMMIT");
+
+    /**
+     * How long the first commit of a group waits at most for other commits already in progress, in milliseconds.
+     */
+    @Restricted(NoExternalUse.class)
+    static /* Script Console modifiable */ long GROUP_COMMIT_WINDOW = SystemProperties.getLong(
+            AtomicFileWriter.class.getName() + ".GROUP_COMMIT_WINDOW", 5L);
+
     static {
         if (DISABLE_FORCED_FLUSH) {
             LOGGER.log(Level.WARNING, "DISABLE_FORCED_FLUSH flag used, this could result in dataloss if failures happen in your storage subsystem.");
@@ -66,6 +83,10 @@ public class AtomicFileWriter extends Writer {
     private final Writer core;
     private final Path tmpPath;
     private final Path destPath;
+    /**
+     * Whether the file is to be forced by {@link GroupCommit} rather than when closing it.
+     */
+    private final boolean groupCommit;
 
     /**
      * Writes with UTF-8 encoding.
@@ -148,6 +169,10 @@ public class AtomicFileWriter extends Writer {
             integrityOnFlush = false;
             integrityOnClose = false;
         }
+        groupCommit = GROUP_COMMIT && integrityOnClose;
+        if (groupCommit) {
+            integrityOnClose = false;
+        }
 
         core = new FileChannelWriter(tmpPath, charset, integrityOnFlush, integrityOnClose, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
     }
@@ -185,7 +210,25 @@ public class AtomicFileWriter extends Writer {
     }
 
     public void commit() throws IOException {
+        long start = System.nanoTime();
+        if (groupCommit) {
+            GroupCommit.started();
+        }
+        try {
+            move();
+        } finally {
+            if (groupCommit) {
+                GroupCommit.completed();
+            }
+            GroupCommit.recordCommit(System.nanoTime() - start);
+        }
+    }
+
+    private void move() throws IOException {
         close();
+        if (groupCommit) {
+            GroupCommit.force(tmpPath, GROUP_COMMIT_WINDOW);
+        }
         try {
             // Try to make an atomic move.
             Files.move(tmpPath, destPath, StandardCopyOption.ATOMIC_MOVE);
@@ -0,0 +1,228 @@
+package hudson.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Lets concurrent {@link AtomicFileWriter#commit}s force their files to disk at the same time.
+ *
+ * <p>
+ * The JDK offers no way to sync several files with one call, and syncing their directory does not write their contents,
+ * so each file still has to be forced on its own. What can be shared is the moment: forces issued together
+ * get committed by a journaling file system in a single journal transaction, instead of one transaction each.
+ * So commits form batches. While one batch is being forced, arriving commits queue up for the next one.
+ * The first commit of a batch also waits up to a few milliseconds for other commits that are already in progress
+ * but have not reached this point yet. A commit with no others in progress never waits.
+ * Once a batch is complete, every commit in it forces its own file in its own thread, in parallel with the others,
+ * and moves it into place only afterwards, so the durability of a commit is unchanged.
+ *
+ * <p>
+ * Also keeps statistics about all commits, grouped or not, shown in {@code /systemInfo}.
+ */
+@Restricted(NoExternalUse.class)
+public final class GroupCommit {
+
+    private static final Object lock = new Object();
+
+    /**
+     * Commits waiting for their batch to be complete.
+     */
+    @GuardedBy("lock")
+    private static List<Request> queue = new ArrayList<>();
+
+    /**
+     * Whether the first commit of the next batch is waiting for others to join it.
+     */
+    @GuardedBy("lock")
+    private static boolean collecting;
+
+    /**
+     * Number of files being forced, so that a new batch only completes once the previous one is on disk.
+     */
+    @GuardedBy("lock")
+    private static int forcing;
+
+    /**
+     * Number of {@link AtomicFileWriter#commit}s in group commit mode which have started but not completed,
+     * whether they are already in {@link #queue} or not.
+     */
+    private static final AtomicInteger inProgress = new AtomicInteger();
+
+    private static final AtomicLong commits = new AtomicLong();
+    private static final AtomicLong commitNanos = new AtomicLong();
+    private static final LongAccumulator maxCommitNanos = new LongAccumulator(Math::max, 0);
+    private static final AtomicLong batches = new AtomicLong();
+    private static final AtomicLong batched = new AtomicLong();
+    private static final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    private static final class Request {
+        @GuardedBy("lock")
+        boolean released;
+    }
+
+    /**
+     * Called when a commit in group commit mode starts, before its file is closed.
+     */
+    static void started() {
+        inProgress.incrementAndGet();
+    }
+
+    /**
+     * Called when a commit in group commit mode completes, whether it succeeded or not.
+     */
+    static void completed() {
+        inProgress.decrementAndGet();
+    }
+
+    /**
+     * Forces a closed file to disk along with those other threads are committing at the same time.
+     * @param window how long to wait at most for other commits in progress, in milliseconds
+     */
+    static void force(Path file, long window) throws IOException {
+        Request r = new Request();
+        boolean interrupted = false;
+        synchronized (lock) {
+            queue.add(r);
+            lock.notifyAll();
+            if (!collecting) {
+                collecting = true;
+                // wait for those commits in progress which have not joined yet, and for the previous batch to be on disk
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+                while (true) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    boolean othersComing = inProgress.get() > queue.size() + forcing && remaining > 0;
+                    if (!othersComing && forcing == 0) {
+                        break;
+                    }
+                    try {
+                        lock.wait(othersComing ? remaining : 0);
+                    } catch (InterruptedException e) {
+                        // others are waiting for this batch, so carry on
+                        interrupted = true;
+                    }
+                }
+                List<Request> batch = queue;
+                queue = new ArrayList<>();
+                collecting = false;
+                forcing = batch.size();
+                for (Request b : batch) {
+                    b.released = true;
+                }
+                lock.notifyAll();
+                batches.incrementAndGet();
+                batched.addAndGet(batch.size());
+                maxBatchSize.accumulate(batch.size());
+                LOGGER.log(Level.FINE, "Forcing {0} files together", batch.size());
+            } else {
+                while (!r.released) {
+                    try {
+                        // bounded by how long the previous batch takes
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } finally {
+            synchronized (lock) {
+                forcing--;
+                lock.notifyAll();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static void recordCommit(long nanos) {
+        commits.incrementAndGet();
+        commitNanos.addAndGet(nanos);
+        maxCommitNanos.accumulate(nanos);
+    }
+
+    /**
+     * Statistics about commits so far, for {@code /systemInfo}.
+     * @return empty if there was no commit
+     */
+    public static Map<String, String> getStatistics() {
+        Map<String, String> r = new LinkedHashMap<>();
+        if (getCommitCount() == 0) {
+            return r;
+        }
+        r.put("Commits", String.valueOf(getCommitCount()));
+        r.put("Mean commit latency (ms)", String.format("%.2f", getMeanCommitLatency()));
+        r.put("Max commit latency (ms)", String.format("%.2f", getMaxCommitLatency()));
+        if (getBatchCount() > 0) {
+            r.put("Group commit batches", String.valueOf(getBatchCount()));
+            r.put("Mean batch size", String.format("%.2f", getMeanBatchSize()));
+            r.put("Max batch size", String.valueOf(getMaxBatchSize()));
+        }
+        return r;
+    }
+
+    /**
+     * Number of {@link AtomicFileWriter#commit}s so far.
+     */
+    static long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * Mean time {@link AtomicFileWriter#commit} took, in milliseconds.
+     */
+    static double getMeanCommitLatency() {
+        long n = commits.get();
+        return n == 0 ? 0 : (double) commitNanos.get() / n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Longest time {@link AtomicFileWriter#commit} took, in milliseconds.
+     */
+    static double getMaxCommitLatency() {
+        return (double) maxCommitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Number of batches of files forced together so far.
+     */
+    static long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Mean number of files forced together.
+     */
+    static double getMeanBatchSize() {
+        long n = batches.get();
+        return n == 0 ? 0 : (double) batched.get() / n;
+    }
+
+    /**
+     * Largest number of files forced together.
+     */
+    static long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    private GroupCommit() {}
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommit.class.getName());
+}
@@ -50,10 +50,12 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import static java.util.logging.Level.FINE;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
 import jenkins.util.xstream.CriticalXStreamException;
@@ -84,6 +86,11 @@ public class RobustReflectionConverter implements Converter {
     private final ReadWriteLock criticalFieldsLock = new ReentrantReadWriteLock();
     @GuardedBy("criticalFieldsLock")
     private final Map<String, Set<String>> criticalFields = new HashMap<>();
+    /**
+     * Fields looked up by name for every element read or written, per class.
+     * Replaced whenever {@link #criticalFields} change, since it caches which fields are critical.
+     */
+    private transient volatile ClassValue<Map<String, FieldInfo>> fieldInfos = newFieldInfos();
 
     public RobustReflectionConverter(Mapper mapper, ReflectionProvider reflectionProvider) {
         this(mapper, reflectionProvider, new XStream2().new PluginClassOwnership());
@@ -106,6 +113,7 @@ public class RobustReflectionConverter implements Converter {
                 criticalFields.put(field, new HashSet<>());
             }
             criticalFields.get(field).add(clazz.getName());
+            fieldInfos = newFieldInfos();
         }
         finally {
             // Unlock
@@ -131,6 +139,51 @@ public class RobustReflectionConverter implements Converter {
         }
     }
 
+    private static ClassValue<Map<String, FieldInfo>> newFieldInfos() {
+        return new ClassValue<Map<String, FieldInfo>>() {
+            @Override
+            protected Map<String, FieldInfo> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+    }
+
+    private static final class FieldInfo {
+        /** As per {@link ReflectionProvider#getFieldOrNull}. */
+        final @CheckForNull Field field;
+        /** Whether the field was marked critical in the class or one of its superclasses. */
+        final boolean critical;
+
+        FieldInfo(Field field, boolean critical) {
+            this.field = field;
+            this.critical = critical;
+        }
+    }
+
+    /**
+     * Looks up a field by name as {@link ReflectionProvider#getFieldOrNull} would.
+     * Only fields which exist are remembered, so that elements in old or malformed data do not accumulate.
+     */
+    private @Nonnull FieldInfo fieldInfo(Class<?> type, String fieldName) {
+        Map<String, FieldInfo> infos = fieldInfos.get(type);
+        FieldInfo info = infos.get(fieldName);
+        if (info == null) {
+            boolean critical = false;
+            for (Class<?> concrete = type; concrete != null; concrete = concrete.getSuperclass()) {
+                // Not quite right since a subclass could shadow a field, but probably suffices:
+                if (hasCriticalField(concrete, fieldName)) {
+                    critical = true;
+                    break;
+                }
+            }
+            info = new FieldInfo(reflectionProvider.getFieldOrNull(type, fieldName), critical);
+            if (info.field != null) {
+                infos.put(fieldName, info);
+            }
+        }
+        return info;
+    }
+
     public boolean canConvert(Class type) {
         return true;
     }
@@ -245,7 +298,10 @@ public class RobustReflectionConverter implements Converter {
                         writer.addAttribute(mapper.aliasForAttribute("defined-in"), mapper.serializedClass(definedIn));
                     }
 
-                    Field field = reflectionProvider.getField(definedIn,fieldName);
+                    Field field = fieldInfo(definedIn, fieldName).field;
+                    if (field == null) {
+                        field = reflectionProvider.getField(definedIn, fieldName);
+                    }
                     marshallField(context, newObj, field);
                     writer.endNode();
                 } catch (RuntimeException e) {
@@ -280,9 +336,9 @@ public class RobustReflectionConverter implements Converter {
             String attrAlias = (String) it.next();
             String attrName = mapper.attributeForAlias(attrAlias);
             Class classDefiningField = determineWhichClassDefinesField(reader);
-            boolean fieldExistsInClass = fieldDefinedInClass(result, attrName);
-            if (fieldExistsInClass) {
-                Field field = reflectionProvider.getField(result.getClass(), attrName);
+            // during unmarshalling, unmarshal into transient fields like XStream 1.1.3
+            Field field = fieldInfo(result.getClass(), attrName).field;
+            if (field != null) {
                 SingleValueConverter converter = mapper.getConverterFromAttribute(field.getDeclaringClass(),attrName,field.getType());
                 Class type = field.getType();
                 if (converter == null) {
@@ -309,25 +365,20 @@ public class RobustReflectionConverter implements Converter {
             boolean critical = false;
             try {
                 String fieldName = mapper.realMember(result.getClass(), reader.getNodeName());
-                for (Class<?> concrete = result.getClass(); concrete != null; concrete = concrete.getSuperclass()) {
-                    // Not quite right since a subclass could shadow a field, but probably suffices:
-                    if (hasCriticalField(concrete, fieldName)) {
-                        critical = true;
-                        break;
-                    }
-                }
+                FieldInfo info = fieldInfo(result.getClass(), fieldName);
+                critical = info.critical;
                 boolean implicitCollectionHasSameName = mapper.getImplicitCollectionDefForFieldName(result.getClass(), reader.getNodeName()) != null;
 
                 Class classDefiningField = determineWhichClassDefinesField(reader);
-                boolean fieldExistsInClass = !implicitCollectionHasSameName && fieldDefinedInClass(result,fieldName);
+                // during unmarshalling, unmarshal into transient fields like XStream 1.1.3
+                boolean fieldExistsInClass = !implicitCollectionHasSameName && info.field != null;
 
-                Class type = determineType(reader, fieldExistsInClass, result, fieldName, classDefiningField);
+                Class type = determineType(reader, fieldExistsInClass, result, fieldName, classDefiningField, info.field);
                 final Object value;
                 if (fieldExistsInClass) {
-                    Field field = reflectionProvider.getField(result.getClass(),fieldName);
-                    value = unmarshalField(context, result, type, field);
+                    value = unmarshalField(context, result, type, info.field);
                     // TODO the reflection provider should have returned the proper field in first place ....
-                    Class definedType = reflectionProvider.getFieldType(result, fieldName, classDefiningField);
+                    Class definedType = fieldType(result, fieldName, classDefiningField, info.field);
                     if (!definedType.isPrimitive()) {
                         type = definedType;
                     }
@@ -379,10 +430,16 @@ public class RobustReflectionConverter implements Converter {
         list.add(e);
     }
 
-    private boolean fieldDefinedInClass(Object result, String attrName) {
-        // during unmarshalling, unmarshal into transient fields like XStream 1.1.3
-        //boolean fieldExistsInClass = reflectionProvider.fieldDefinedInClass(attrName, result.getClass());
-        return reflectionProvider.getFieldOrNull(result.getClass(),attrName)!=null;
+    /**
+     * As per {@link ReflectionProvider#getFieldType}, without looking up the field again if it is already known.
+     * Throws {@link com.thoughtworks.xstream.converters.reflection.MissingFieldException} for unknown fields,
+     * which is how those get reported.
+     */
+    private Class fieldType(Object result, String fieldName, Class definedInCls, @CheckForNull Field field) {
+        if (field != null && definedInCls == null) {
+            return field.getType();
+        }
+        return reflectionProvider.getFieldType(result, fieldName, definedInCls);
     }
 
     protected Object unmarshalField(final UnmarshallingContext context, final Object result, Class type, Field field) {
@@ -451,9 +508,9 @@ public class RobustReflectionConverter implements Converter {
 
     }
 
-    private Class determineType(HierarchicalStreamReader reader, boolean validField, Object result, String fieldName, Class definedInCls) {
+    private Class determineType(HierarchicalStreamReader reader, boolean validField, Object result, String fieldName, Class definedInCls, @CheckForNull Field field) {
         String classAttribute = reader.getAttribute(mapper.aliasForAttribute("class"));
-        Class fieldType = reflectionProvider.getFieldType(result, fieldName, definedInCls);
+        Class fieldType = fieldType(result, fieldName, definedInCls, field);
         if (classAttribute != null) {
             Class specifiedType = mapper.realClass(classAttribute);
             if(fieldType.isAssignableFrom(specifiedType))
@@ -475,6 +532,7 @@ public class RobustReflectionConverter implements Converter {
 
     private Object readResolve() {
         serializationMethodInvoker = new SerializationMethodInvoker();
+        fieldInfos = newFieldInfos();
         return this;
     }
 
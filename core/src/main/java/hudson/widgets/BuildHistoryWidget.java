@@ -23,13 +23,18 @@
  */
 package hudson.widgets;
 
+import hudson.model.Run;
+import hudson.model.RunMap;
 import jenkins.model.Jenkins;
 import hudson.model.Queue.Item;
 import hudson.model.Queue.Task;
+import jenkins.model.lazy.AbstractLazyLoadRunMap;
 import jenkins.widgets.HistoryPageFilter;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Displays the build history on the side panel.
@@ -73,9 +78,42 @@ public class BuildHistoryWidget<T> extends HistoryWidget<Task,T> {
     public HistoryPageFilter getHistoryPageFilter() {
         final HistoryPageFilter<T> historyPageFilter = newPageFilter();
 
-        historyPageFilter.add(baseList, getQueuedItems());
+        historyPageFilter.add(newerThan == null && olderThan != null ? skipNewerThan(olderThan, historyPageFilter) : baseList, getQueuedItems());
         historyPageFilter.widget = this;
 
         return updateFirstTransientBuildKey(historyPageFilter);
     }
+
+    /**
+     * Starts the builds right below a page of older builds, rather than making {@link HistoryPageFilter}
+     * load all the newer builds only to skip them.
+     */
+    @SuppressWarnings("unchecked")
+    private Iterable<T> skipNewerThan(long olderThan, HistoryPageFilter<T> historyPageFilter) {
+        // the entry ID of a build is Long.MIN_VALUE + its number, see HistoryPageEntry
+        if (!(baseList instanceof RunMap) || olderThan >= 0 || olderThan - Long.MIN_VALUE > Integer.MAX_VALUE) {
+            return baseList;
+        }
+        RunMap<?> builds = (RunMap<?>) baseList;
+        int newest = (int) (olderThan - Long.MIN_VALUE) - 1;
+        if (builds.maxNumberOnDisk() > newest) {
+            historyPageFilter.hasUpPage = true;
+        }
+        return () -> new Iterator<T>() {
+            Run<?, ?> next = builds.search(newest, AbstractLazyLoadRunMap.Direction.DESC);
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Run<?, ?> r = next;
+                next = r.getPreviousBuild();
+                return (T) r;
+            }
+        };
+    }
 }
@@ -0,0 +1,179 @@
+package jenkins;
+
+import hudson.init.InitMilestone;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import jenkins.management.StartupProfile;
+import org.jvnet.hudson.reactor.Milestone;
+import org.jvnet.hudson.reactor.ReactorListener;
+import org.jvnet.hudson.reactor.Task;
+
+/**
+ * Records when each task of a {@link org.jvnet.hudson.reactor.Reactor} ran, on which thread, and how long it waited,
+ * so as to find out which chain of tasks the whole execution took as long as it did because of.
+ *
+ * <p>
+ * A task becomes ready once all the milestones it requires are attained, that is, once all the tasks attaining them completed.
+ * Whatever time passes between that and its start is spent waiting for a thread.
+ * Going back from the task which completed last, through the milestone it required which was attained last,
+ * to the task attaining it which completed last, and so on, gives the critical path:
+ * none of the tasks on it could have started any earlier given the ones before it,
+ * so that only making those faster, or giving them fewer requirements, makes the whole faster.
+ */
+final class InitReactorProfiler implements ReactorListener {
+
+    private static final class Record {
+        final Task task;
+        final String thread;
+        final long start;
+        volatile long end = -1;
+        volatile boolean failed;
+
+        Record(Task task, String thread, long start) {
+            this.task = task;
+            this.thread = thread;
+            this.start = start;
+        }
+    }
+
+    private final long started = System.currentTimeMillis();
+    private final long startedNanos = System.nanoTime();
+    private final Map<Task, Record> records = new ConcurrentHashMap<>();
+    private final Map<Milestone, Long> attained = new ConcurrentHashMap<>();
+
+    private long now() {
+        return (System.nanoTime() - startedNanos) / 1000000;
+    }
+
+    @Override
+    public void onTaskStarted(Task t) {
+        records.put(t, new Record(t, Thread.currentThread().getName(), now()));
+    }
+
+    @Override
+    public void onTaskCompleted(Task t) {
+        Record r = records.get(t);
+        if (r != null) {
+            r.end = now();
+        }
+    }
+
+    @Override
+    public void onTaskFailed(Task t, Throwable err, boolean fatal) {
+        Record r = records.get(t);
+        if (r != null) {
+            r.end = now();
+            r.failed = true;
+        }
+    }
+
+    @Override
+    public void onAttained(Milestone milestone) {
+        attained.putIfAbsent(milestone, now());
+    }
+
+    /**
+     * When a task could have started at the earliest.
+     */
+    private long readyAt(Task t) {
+        long ready = 0;
+        for (Milestone m : t.requires()) {
+            Long at = attained.get(m);
+            if (at != null) {
+                ready = Math.max(ready, at);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * The task which last held up a task, if any.
+     */
+    private @CheckForNull Record predecessor(Record r) {
+        Milestone last = null;
+        long lastAt = -1;
+        for (Milestone m : r.task.requires()) {
+            Long at = attained.get(m);
+            if (at != null && at > lastAt) {
+                last = m;
+                lastAt = at;
+            }
+        }
+        if (last == null) {
+            return null;
+        }
+        Record predecessor = null;
+        for (Record other : records.values()) {
+            if (other != r && other.end >= 0 && other.end <= r.start && other.task.attains().contains(last)
+                    && (predecessor == null || other.end > predecessor.end)) {
+                predecessor = other;
+            }
+        }
+        return predecessor;
+    }
+
+    /**
+     * Summarizes the execution, once done.
+     * Tasks without a name, such as those merely ordering milestones, are left out, though the critical path is followed through them.
+     */
+    StartupProfile toProfile() {
+        List<Record> completed = new ArrayList<>();
+        for (Record r : records.values()) {
+            if (r.end >= 0) {
+                completed.add(r);
+            }
+        }
+        long duration = now();
+
+        List<StartupProfile.Entry> criticalPath = new ArrayList<>();
+        Record last = completed.stream().max(Comparator.comparingLong(r -> r.end)).orElse(null);
+        for (Record r = last; r != null; r = predecessor(r)) {
+            StartupProfile.Entry e = toEntry(r);
+            if (e != null) {
+                criticalPath.add(e);
+            }
+        }
+        Collections.reverse(criticalPath);
+
+        completed.sort(Comparator.comparingLong((Record r) -> r.end - r.start).reversed());
+        List<StartupProfile.Entry> slowest = new ArrayList<>();
+        for (Record r : completed) {
+            if (slowest.size() >= StartupProfile.SLOWEST) {
+                break;
+            }
+            StartupProfile.Entry e = toEntry(r);
+            if (e != null) {
+                slowest.add(e);
+            }
+        }
+
+        List<StartupProfile.Phase> phases = new ArrayList<>();
+        for (InitMilestone m : InitMilestone.values()) {
+            Long at = attained.get(m);
+            if (at != null) {
+                phases.add(new StartupProfile.Phase(m.toString(), at));
+            }
+        }
+        phases.sort(Comparator.comparingLong(p -> p.attained));
+
+        return new StartupProfile(started, duration, records.size(), phases, criticalPath, slowest);
+    }
+
+    private @CheckForNull StartupProfile.Entry toEntry(Record r) {
+        String name;
+        try {
+            name = r.task.getDisplayName();
+        } catch (RuntimeException | Error x) {
+            name = null;
+        }
+        if (name == null) {
+            return null;
+        }
+        return new StartupProfile.Entry(name, r.thread, r.start, r.end - r.start, Math.max(0, r.start - readyAt(r.task)), r.failed);
+    }
+}
@@ -8,6 +8,8 @@ import hudson.security.ACL;
 import hudson.util.DaemonThreadFactory;
 import hudson.util.NamingThreadFactory;
 import jenkins.model.Configuration;
+import jenkins.management.StartupProfile;
+import jenkins.management.StartupProfileLink;
 import jenkins.model.Jenkins;
 import jenkins.security.ImpersonatingExecutorService;
 import org.jvnet.hudson.reactor.Milestone;
@@ -17,6 +19,7 @@ import org.jvnet.hudson.reactor.ReactorListener;
 import org.jvnet.hudson.reactor.Task;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.concurrent.ExecutorService;
@@ -37,9 +40,19 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
  * @author Kohsuke Kawaguchi
  */
 public class InitReactorRunner {
+    /**
+     * Whether to record how long each task of startup took, to be seen under {@link StartupProfileLink}.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ boolean PROFILE = SystemProperties.getBoolean(InitReactorRunner.class.getName() + ".profile", true);
+
     public void run(Reactor reactor) throws InterruptedException, ReactorException, IOException {
          reactor.addAll(InitMilestone.ordering().discoverTasks(reactor));
 
+        // only startup is recorded, not reloads
+        Jenkins j = Jenkins.getInstanceOrNull();
+        InitReactorProfiler profiler = PROFILE && j != null && j.getInitLevel() != InitMilestone.COMPLETED ? new InitReactorProfiler() : null;
+
         ExecutorService es;
         if (Jenkins.PARALLEL_LOAD)
             es = new ThreadPoolExecutor(
@@ -47,9 +60,20 @@ public class InitReactorRunner {
         else
             es = Executors.newSingleThreadExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "InitReactorRunner"));
         try {
-            reactor.execute(new ImpersonatingExecutorService(es, ACL.SYSTEM), buildReactorListener());
+            ReactorListener listener = buildReactorListener();
+            if (profiler != null) {
+                listener = new ReactorListener.Aggregator(Arrays.asList(profiler, listener));
+            }
+            reactor.execute(new ImpersonatingExecutorService(es, ACL.SYSTEM), listener);
         } finally {
             es.shutdownNow();   // upon a successful return the executor queue should be empty. Upon an exception, we want to cancel all pending tasks
+            if (profiler != null) {
+                try {
+                    StartupProfile.record(profiler.toProfile());
+                } catch (RuntimeException x) {
+                    LOGGER.log(Level.WARNING, "Failed to record how long startup took", x);
+                }
+            }
         }
 
     }
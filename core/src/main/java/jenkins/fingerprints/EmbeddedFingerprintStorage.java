@@ -0,0 +1,769 @@
+package jenkins.fingerprints;
+
+import hudson.Extension;
+import hudson.Functions;
+import hudson.init.Terminator;
+import hudson.model.Fingerprint;
+import hudson.model.TaskListener;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps all {@link Fingerprint}s in a single append-only file, {@code $JENKINS_HOME/fingerprints.db},
+ * with an in-memory table from hashes to the offsets of their records.
+ *
+ * <p>
+ * Every save appends the new version of a record, and every deletion a tombstone.
+ * All the records a build step saves at once are appended together with a single write and sync,
+ * so that a build fingerprinting many files does not replace as many XML files one by one.
+ * Other saves are written right away, unless {@link #FLUSH_DELAY} is set to collect them too.
+ * The table is rebuilt by reading the file sequentially when it is first needed, dropping any incomplete records at its end
+ * left by a crash. The space taken by superseded records is reclaimed by rewriting the file at the end of a
+ * {@linkplain #iterateAndCleanupFingerprints cleanup}, which goes over the table rather than over a directory tree.
+ *
+ * <p>
+ * Records still kept by {@link FileFingerprintStorage} are moved into the file as they are loaded,
+ * and all remaining ones during the next cleanup.
+ * This storage is only used when {@link #ENABLED enabled}.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public final class EmbeddedFingerprintStorage extends FingerprintStorage {
+
+    private final @CheckForNull File rootDir;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializes appends to the file, and is acquired before {@link #lock} by anything needing both.
+     */
+    private final Object appendLock = new Object();
+
+    @GuardedBy("lock")
+    private File file;
+    @GuardedBy("lock")
+    private FileChannel channel;
+    @GuardedBy("lock")
+    private Table table;
+    /**
+     * Total size of the records in {@link #table}.
+     */
+    @GuardedBy("lock")
+    private long liveBytes;
+    /**
+     * Whether records may still be found in the layout of {@link FileFingerprintStorage}.
+     */
+    private volatile boolean legacy;
+
+    /**
+     * Where the next records are appended.
+     * Written with {@link #appendLock} held, or while opening the file, when nothing can be appending.
+     */
+    private long end;
+
+    /**
+     * Records saved but not written yet, keyed by ID. {@link #TOMBSTONE} stands for a deletion.
+     * Entries are removed once written <em>and</em> in {@link #table}, so readers look here first.
+     */
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+    /**
+     * XML files migrated into {@link #pending}, to be deleted once written.
+     */
+    private final Queue<File> migrated = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public EmbeddedFingerprintStorage() {
+        this(null);
+    }
+
+    EmbeddedFingerprintStorage(@CheckForNull File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    private File getRootDir() {
+        return rootDir != null ? rootDir : Jenkins.get().getRootDir();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public void save(@Nonnull Fingerprint fp) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        fp.writeTo(buf);
+        put(fp.getHashString(), buf.toByteArray());
+    }
+
+    /**
+     * Writes all the records right away, with a single write.
+     */
+    @Override
+    public void save(@Nonnull Collection<? extends Fingerprint> fingerprints) throws IOException {
+        for (Fingerprint fp : fingerprints) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            fp.writeTo(buf);
+            pending.put(fp.getHashString(), buf.toByteArray());
+        }
+        flush();
+    }
+
+    @Override
+    public void delete(@Nonnull String id) throws IOException {
+        ensureOpen(); // to know whether there may be an XML file to delete too
+        put(id, TOMBSTONE);
+        if (legacy) {
+            Files.deleteIfExists(FileFingerprintStorage.getFingerprintFile(getRootDir(), id).toPath());
+        }
+    }
+
+    private void put(String id, byte[] data) throws IOException {
+        pending.put(id, data);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() throws IOException {
+        if (FLUSH_DELAY <= 0 || pending.size() >= FLUSH_BATCH) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            Timer.get().schedule(this::flushLater, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public @CheckForNull Fingerprint load(@Nonnull String id) throws IOException {
+        byte[] data = pending.get(id);
+        if (data == null) {
+            data = read(id);
+        }
+        if (data == null) {
+            return legacy ? migrate(id) : null;
+        }
+        if (data == TOMBSTONE) {
+            return null;
+        }
+        try {
+            return Fingerprint.read(new ByteArrayInputStream(data), id);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to load fingerprint " + id, e);
+            return null;
+        }
+    }
+
+    private @CheckForNull byte[] read(String id) throws IOException {
+        long hi = hi(id), lo = lo(id);
+        while (true) {
+            ensureOpen();
+            lock.readLock().lock();
+            try {
+                if (channel == null) {
+                    continue; // closed meanwhile
+                }
+                int slot = table.find(hi, lo);
+                if (slot < 0) {
+                    return null;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(table.sizes[slot] - RECORD_HEADER - 4);
+                readFully(channel, payload, table.offsets[slot] + RECORD_HEADER);
+                return payload.array();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves a record from the layout of {@link FileFingerprintStorage}, if there.
+     */
+    private @CheckForNull Fingerprint migrate(String id) throws IOException {
+        File xml = FileFingerprintStorage.getFingerprintFile(getRootDir(), id);
+        Fingerprint fp = Fingerprint.load(xml);
+        if (fp != null) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            fp.writeTo(buf);
+            if (pending.putIfAbsent(id, buf.toByteArray()) == null) {
+                migrated.add(xml);
+                scheduleFlush();
+            }
+        }
+        return fp;
+    }
+
+    @Override
+    public boolean isReady() {
+        return new File(getRootDir(), FILE_NAME).exists() || new File(getRootDir(), FileFingerprintStorage.FINGERPRINTS_DIR_NAME).exists();
+    }
+
+    private void ensureOpen() throws IOException {
+        lock.readLock().lock();
+        try {
+            if (channel != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                open();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the whole file to rebuild {@link #table}.
+     */
+    @GuardedBy("lock")
+    private void open() throws IOException {
+        File root = getRootDir();
+        file = new File(root, FILE_NAME);
+        legacy = new File(root, FileFingerprintStorage.FINGERPRINTS_DIR_NAME).isDirectory();
+        long start = System.currentTimeMillis();
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean success = false;
+        try {
+            table = new Table();
+            liveBytes = 0;
+            long size = ch.size(), pos = FILE_HEADER;
+            if (size < FILE_HEADER) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).put(VERSION);
+                header.flip();
+                ch.truncate(0);
+                writeFully(ch, header, 0);
+                ch.force(true);
+            } else {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch.position(0)), 1 << 16));
+                if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                    throw new IOException(file + " is not in a known format");
+                }
+                CRC32 crc = new CRC32();
+                byte[] payload = new byte[0];
+                try {
+                    while (pos < size) {
+                        int length = in.readInt();
+                        byte type = in.readByte();
+                        long hi = in.readLong(), lo = in.readLong();
+                        if (length < 0 || pos + RECORD_HEADER + length + 4 > size || (type != PUT && type != DELETE)) {
+                            break;
+                        }
+                        if (payload.length < length) {
+                            payload = new byte[Math.max(length, payload.length * 2)];
+                        }
+                        in.readFully(payload, 0, length);
+                        crc.reset();
+                        crc.update(type);
+                        crc.update(payload, 0, length);
+                        if (in.readInt() != (int) crc.getValue()) {
+                            break;
+                        }
+                        int recordSize = RECORD_HEADER + length + 4;
+                        if (type == PUT) {
+                            int old = table.put(hi, lo, pos, recordSize);
+                            liveBytes += recordSize - Math.max(old, 0);
+                        } else {
+                            liveBytes -= Math.max(table.remove(hi, lo), 0);
+                        }
+                        pos += recordSize;
+                    }
+                } catch (EOFException e) {
+                    // incomplete record, handled below
+                }
+                if (pos < size) {
+                    LOGGER.log(Level.WARNING, "Discarding {0} bytes of incomplete records at the end of {1}", new Object[] {size - pos, file});
+                    ch.truncate(pos);
+                }
+            }
+            end = pos;
+            channel = ch;
+            success = true;
+            LOGGER.log(Level.FINE, "Loaded {0} fingerprints from {1} in {2}ms", new Object[] {table.size, file, System.currentTimeMillis() - start});
+        } finally {
+            if (!success) {
+                ch.close();
+            }
+        }
+    }
+
+    private void flushLater() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write fingerprints, will retry", e);
+            if (flushScheduled.compareAndSet(false, true)) {
+                Timer.get().schedule(this::flushLater, Math.max(FLUSH_DELAY, 1000), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Appends all pending records with a single write.
+     */
+    void flush() throws IOException {
+        synchronized (appendLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ensureOpen();
+            // anything queued here was put in pending before, so gets written below
+            List<File> written = new ArrayList<>();
+            for (File f = migrated.poll(); f != null; f = migrated.poll()) {
+                written.add(f);
+            }
+            Map<String, byte[]> batch = new LinkedHashMap<>(pending);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buf);
+            CRC32 crc = new CRC32();
+            long[] offsets = new long[batch.size()];
+            int i = 0;
+            for (Map.Entry<String, byte[]> e : batch.entrySet()) {
+                offsets[i++] = end + out.size();
+                byte[] data = e.getValue();
+                byte type = data == TOMBSTONE ? DELETE : PUT;
+                out.writeInt(data.length);
+                out.writeByte(type);
+                out.writeLong(hi(e.getKey()));
+                out.writeLong(lo(e.getKey()));
+                out.write(data);
+                crc.reset();
+                crc.update(type);
+                crc.update(data);
+                out.writeInt((int) crc.getValue());
+            }
+            out.flush();
+            FileChannel ch;
+            lock.readLock().lock();
+            try {
+                ch = channel; // cannot be closed or replaced without appendLock
+            } finally {
+                lock.readLock().unlock();
+            }
+            // a partially written batch is simply overwritten by the next attempt
+            writeFully(ch, ByteBuffer.wrap(buf.toByteArray()), end);
+            ch.force(false);
+            end += buf.size();
+
+            lock.writeLock().lock();
+            try {
+                i = 0;
+                for (Map.Entry<String, byte[]> e : batch.entrySet()) {
+                    byte[] data = e.getValue();
+                    long hi = hi(e.getKey()), lo = lo(e.getKey());
+                    if (data == TOMBSTONE) {
+                        liveBytes -= Math.max(table.remove(hi, lo), 0);
+                    } else {
+                        int recordSize = RECORD_HEADER + data.length + 4;
+                        liveBytes += recordSize - Math.max(table.put(hi, lo, offsets[i], recordSize), 0);
+                    }
+                    i++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (Map.Entry<String, byte[]> e : batch.entrySet()) {
+                pending.remove(e.getKey(), e.getValue());
+            }
+            for (File f : written) {
+                Files.deleteIfExists(f.toPath());
+            }
+        }
+    }
+
+    /**
+     * Moves every remaining record from the layout of {@link FileFingerprintStorage}, then deletes that directory.
+     */
+    void migrateAll(@Nonnull TaskListener listener) throws IOException {
+        File dir = new File(getRootDir(), FileFingerprintStorage.FINGERPRINTS_DIR_NAME);
+        File[] dirs1 = dir.listFiles(f -> f.isDirectory() && f.getName().length() == 2);
+        if (dirs1 == null) {
+            legacy = false;
+            return;
+        }
+        int count = 0;
+        for (File dir1 : dirs1) {
+            File[] dirs2 = dir1.listFiles(f -> f.isDirectory() && f.getName().length() == 2);
+            for (File dir2 : dirs2 != null ? dirs2 : new File[0]) {
+                File[] files = dir2.listFiles(f -> f.isFile() && LEGACY_FILE_PATTERN.matcher(f.getName()).matches());
+                for (File f : files != null ? files : new File[0]) {
+                    String id = dir1.getName() + dir2.getName() + f.getName().substring(0, 28);
+                    boolean known = pending.containsKey(id);
+                    if (!known) {
+                        lock.readLock().lock();
+                        try {
+                            known = channel != null && table.find(hi(id), lo(id)) >= 0;
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+                    if (known) {
+                        // left over from an earlier migration that did not get to delete it
+                        Files.deleteIfExists(f.toPath());
+                    } else {
+                        try {
+                            if (migrate(id) != null) {
+                                count++;
+                            }
+                        } catch (IOException e) {
+                            Functions.printStackTrace(e, listener.error("Failed to migrate " + f));
+                        }
+                    }
+                }
+                flush();
+                dir2.delete(); // only if empty
+            }
+            dir1.delete();
+        }
+        if (dir.delete()) {
+            legacy = false;
+        }
+        listener.getLogger().println("Migrated " + count + " fingerprints from " + dir + " to " + FILE_NAME);
+    }
+
+    @Override
+    public void iterateAndCleanupFingerprints(@Nonnull TaskListener taskListener) {
+        try {
+            ensureOpen();
+            if (legacy) {
+                migrateAll(taskListener);
+            }
+            flush();
+        } catch (IOException e) {
+            Functions.printStackTrace(e, taskListener.error("Failed to prepare " + FILE_NAME + " for cleanup"));
+            return;
+        }
+        long[] keys;
+        lock.readLock().lock();
+        try {
+            keys = table.keys();
+        } finally {
+            lock.readLock().unlock();
+        }
+        int numRecords = 0;
+        for (int i = 0; i < keys.length; i += 2) {
+            String id = toId(keys[i], keys[i + 1]);
+            try {
+                // get the fingerprint from the official map so that trimming does not undo changes made there meanwhile
+                Fingerprint fp = Jenkins.get()._getFingerprint(id);
+                if (fp == null) {
+                    delete(id);
+                    numRecords++;
+                } else if (cleanFingerprint(fp, taskListener)) {
+                    numRecords++;
+                }
+            } catch (IOException e) {
+                Functions.printStackTrace(e, taskListener.error("Failed to process " + id));
+            }
+        }
+        taskListener.getLogger().println("Cleaned up " + numRecords + " records");
+        try {
+            compactIfNeeded(taskListener);
+        } catch (IOException e) {
+            Functions.printStackTrace(e, taskListener.error("Failed to compact " + FILE_NAME));
+        }
+    }
+
+    /**
+     * Rewrites the file without superseded records, if those take most of it.
+     */
+    void compactIfNeeded(@Nonnull TaskListener listener) throws IOException {
+        synchronized (appendLock) {
+            flush();
+            long garbage;
+            lock.readLock().lock();
+            try {
+                if (channel == null) {
+                    return;
+                }
+                garbage = end - FILE_HEADER - liveBytes;
+                if (garbage < COMPACTION_THRESHOLD || garbage < liveBytes) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            long start = System.currentTimeMillis();
+            compact();
+            listener.getLogger().println("Reclaimed " + garbage + " bytes from " + FILE_NAME + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    @GuardedBy("appendLock")
+    void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            Table compacted = new Table();
+            long pos = FILE_HEADER;
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).put(VERSION);
+                header.flip();
+                writeFully(out, header, 0);
+                for (int slot = 0; slot < table.offsets.length; slot++) {
+                    if (table.offsets[slot] == 0) {
+                        continue;
+                    }
+                    int size = table.sizes[slot];
+                    long offset = table.offsets[slot];
+                    long copied = 0;
+                    while (copied < size) {
+                        long n = channel.transferTo(offset + copied, size - copied, out.position(pos + copied));
+                        if (n <= 0) {
+                            throw new EOFException("Unexpected end of fingerprint records at " + (offset + copied));
+                        }
+                        copied += n;
+                    }
+                    compacted.put(table.keys[2 * slot], table.keys[2 * slot + 1], pos, size);
+                    pos += size;
+                }
+                out.force(true);
+            }
+            channel.close();
+            channel = null;
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            table = compacted;
+            liveBytes = pos - FILE_HEADER;
+            end = pos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes out pending records and releases the file.
+     */
+    @Terminator
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            flush();
+            lock.writeLock().lock();
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                    table = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new EOFException("Unexpected end of fingerprint records at " + position);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, position + buf.position());
+        }
+    }
+
+    static long hi(String id) {
+        return Long.parseUnsignedLong(id.substring(0, 16), 16);
+    }
+
+    static long lo(String id) {
+        return Long.parseUnsignedLong(id.substring(16, 32), 16);
+    }
+
+    static String toId(long hi, long lo) {
+        char[] r = new char[32];
+        for (int i = 0; i < 16; i++) {
+            r[15 - i] = HEX[(int) (hi >>> (4 * i)) & 15];
+            r[31 - i] = HEX[(int) (lo >>> (4 * i)) & 15];
+        }
+        return new String(r);
+    }
+
+    /**
+     * Open-addressing hash table from 128-bit hashes to record locations, taking some 100 bytes per record at most.
+     */
+    static final class Table {
+        long[] keys = new long[2 * 16];
+        /**
+         * Offsets of records, 0 for free slots since no record starts there.
+         */
+        long[] offsets = new long[16];
+        int[] sizes = new int[16];
+        int size;
+
+        private int slot(long lo) {
+            // the hash is uniformly distributed already
+            return (int) (lo ^ (lo >>> 32)) & (offsets.length - 1);
+        }
+
+        int find(long hi, long lo) {
+            for (int i = slot(lo); offsets[i] != 0; i = (i + 1) & (offsets.length - 1)) {
+                if (keys[2 * i] == hi && keys[2 * i + 1] == lo) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the size of the record replaced, or -1
+         */
+        int put(long hi, long lo, long offset, int recordSize) {
+            if (2 * (size + 1) > offsets.length) {
+                Table bigger = new Table();
+                bigger.keys = new long[4 * offsets.length];
+                bigger.offsets = new long[2 * offsets.length];
+                bigger.sizes = new int[2 * offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    if (offsets[i] != 0) {
+                        bigger.put(keys[2 * i], keys[2 * i + 1], offsets[i], sizes[i]);
+                    }
+                }
+                keys = bigger.keys;
+                offsets = bigger.offsets;
+                sizes = bigger.sizes;
+            }
+            int i = slot(lo);
+            while (offsets[i] != 0) {
+                if (keys[2 * i] == hi && keys[2 * i + 1] == lo) {
+                    int old = sizes[i];
+                    offsets[i] = offset;
+                    sizes[i] = recordSize;
+                    return old;
+                }
+                i = (i + 1) & (offsets.length - 1);
+            }
+            keys[2 * i] = hi;
+            keys[2 * i + 1] = lo;
+            offsets[i] = offset;
+            sizes[i] = recordSize;
+            size++;
+            return -1;
+        }
+
+        /**
+         * @return the size of the record removed, or -1
+         */
+        int remove(long hi, long lo) {
+            int i = find(hi, lo);
+            if (i < 0) {
+                return -1;
+            }
+            int old = sizes[i];
+            int mask = offsets.length - 1;
+            // shift back entries of the same run that would no longer be found past the gap
+            for (int j = (i + 1) & mask; offsets[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[2 * j + 1]);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[2 * i] = keys[2 * j];
+                    keys[2 * i + 1] = keys[2 * j + 1];
+                    offsets[i] = offsets[j];
+                    sizes[i] = sizes[j];
+                    i = j;
+                }
+            }
+            offsets[i] = 0;
+            size--;
+            return old;
+        }
+
+        /**
+         * @return pairs of high and low halves of all hashes
+         */
+        long[] keys() {
+            long[] r = new long[2 * size];
+            int n = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                if (offsets[i] != 0) {
+                    r[n++] = keys[2 * i];
+                    r[n++] = keys[2 * i + 1];
+                }
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Whether to use this storage rather than {@link FileFingerprintStorage}.
+     * Records already moved into {@link #FILE_NAME} are not moved back when this is turned off again.
+     */
+    static /* Script Console modifiable */ boolean ENABLED = SystemProperties.getBoolean(EmbeddedFingerprintStorage.class.getName() + ".enabled");
+
+    /**
+     * Milliseconds to collect saves before writing them all at once, or 0, the default, to write each immediately.
+     * Saves not written yet are lost if Jenkins crashes, even though {@link Fingerprint#save} has returned.
+     */
+    static /* Script Console modifiable */ long FLUSH_DELAY = SystemProperties.getLong(EmbeddedFingerprintStorage.class.getName() + ".flushDelay", 0L);
+
+    /**
+     * Number of pending saves that causes them to be written right away.
+     */
+    static /* Script Console modifiable */ int FLUSH_BATCH = SystemProperties.getInteger(EmbeddedFingerprintStorage.class.getName() + ".flushBatch", 1000);
+
+    /**
+     * Bytes of superseded records to accumulate before the file is compacted.
+     */
+    static /* Script Console modifiable */ long COMPACTION_THRESHOLD = SystemProperties.getLong(EmbeddedFingerprintStorage.class.getName() + ".compactionThreshold", 1L << 20);
+
+    static final String FILE_NAME = "fingerprints.db";
+
+    private static final int MAGIC = 0x4a465042; // JFPB
+    private static final byte VERSION = 1;
+    private static final int FILE_HEADER = 5;
+    /**
+     * Length, type and hash; followed by the payload and its CRC-32.
+     */
+    private static final int RECORD_HEADER = 4 + 1 + 16;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private static final Pattern LEGACY_FILE_PATTERN = Pattern.compile("[0-9a-f]{28}\\.xml");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedFingerprintStorage.class.getName());
+}
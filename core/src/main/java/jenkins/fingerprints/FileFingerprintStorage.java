@@ -0,0 +1,76 @@
+package jenkins.fingerprints;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Fingerprint;
+import hudson.model.FingerprintCleanupThread;
+import hudson.model.TaskListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps each {@link Fingerprint} in its own XML file under {@code $JENKINS_HOME/fingerprints},
+ * in a two-level directory tree named after the first bytes of the hash.
+ *
+ * <p>
+ * This was the only storage before {@link FingerprintStorage} was introduced, and is still used
+ * unless {@link EmbeddedFingerprintStorage} is enabled or a plugin provides another one.
+ */
+@Extension(ordinal = -100)
+@Restricted(NoExternalUse.class)
+public class FileFingerprintStorage extends FingerprintStorage {
+
+    static final String FINGERPRINTS_DIR_NAME = "fingerprints";
+
+    @Override
+    public void save(@Nonnull Fingerprint fp) throws IOException {
+        fp.save(getFingerprintFile(getRootDir(), fp.getHashString()));
+    }
+
+    @Override
+    public @Nonnull File getFile(@Nonnull String id) {
+        return getFingerprintFile(getRootDir(), id);
+    }
+
+    @Override
+    public @CheckForNull Fingerprint load(@Nonnull String id) throws IOException {
+        return Fingerprint.load(getFingerprintFile(getRootDir(), id));
+    }
+
+    @Override
+    public void delete(@Nonnull String id) throws IOException {
+        Files.deleteIfExists(getFingerprintFile(getRootDir(), id).toPath());
+    }
+
+    @Override
+    public boolean isReady() {
+        return new File(getRootDir(), FINGERPRINTS_DIR_NAME).exists();
+    }
+
+    /**
+     * Walks the directory tree, which {@link FingerprintCleanupThread} knows how to do.
+     */
+    @Override
+    public void iterateAndCleanupFingerprints(@Nonnull TaskListener taskListener) {
+        ExtensionList.lookupSingleton(FingerprintCleanupThread.class).cleanUpFiles(taskListener);
+    }
+
+    protected File getRootDir() {
+        return Jenkins.get().getRootDir();
+    }
+
+    /**
+     * Determines the file name of a record.
+     * @param root {@code $JENKINS_HOME}
+     * @param id the hash of the file, in lower case
+     */
+    public static @Nonnull File getFingerprintFile(@Nonnull File root, @Nonnull String id) {
+        return new File(root, FINGERPRINTS_DIR_NAME + '/' + id.substring(0, 2) + '/' + id.substring(2, 4) + '/' + id.substring(4) + ".xml");
+    }
+}
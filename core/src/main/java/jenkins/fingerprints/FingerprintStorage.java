@@ -0,0 +1,132 @@
+package jenkins.fingerprints;
+
+import com.thoughtworks.xstream.converters.basic.DateConverter;
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import hudson.Functions;
+import hudson.model.Fingerprint;
+import hudson.model.FingerprintCleanupThread;
+import hudson.model.FingerprintMap;
+import hudson.model.TaskListener;
+import hudson.model.listeners.SaveableListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.FingerprintFacet;
+
+/**
+ * Where {@link Fingerprint}s are persisted.
+ *
+ * <p>
+ * {@link FingerprintMap} loads records through the storage in use and {@link Fingerprint#save} saves them there,
+ * so implementations only deal with serialized records and do not need to cache anything.
+ * The first implementation in the {@linkplain ExtensionList#lookup extension list} that {@linkplain #isEnabled is enabled}
+ * is used, so a plugin can take over by registering one with a higher ordinal.
+ * Records are identified by the {@linkplain Fingerprint#getHashString hash} of the file, in lower case.
+ *
+ * @see FileFingerprintStorage
+ * @see EmbeddedFingerprintStorage
+ * @since TODO
+ */
+public abstract class FingerprintStorage implements ExtensionPoint {
+
+    /**
+     * Returns the storage currently in use.
+     */
+    public static @Nonnull FingerprintStorage get() {
+        for (FingerprintStorage s : ExtensionList.lookup(FingerprintStorage.class)) {
+            if (s.isEnabled()) {
+                return s;
+            }
+        }
+        return ExtensionList.lookupSingleton(FileFingerprintStorage.class);
+    }
+
+    /**
+     * Whether this storage is to be used. Checked whenever records are accessed, so this should be cheap.
+     */
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Persists the current state of a record, replacing any earlier one.
+     * Called with the fingerprint locked.
+     */
+    public abstract void save(@Nonnull Fingerprint fp) throws IOException;
+
+    /**
+     * Persists many records at once, such as all those a build step has just recorded.
+     * By default they are saved one by one; storages able to write them together should override this.
+     * Called without the fingerprints locked.
+     */
+    public void save(@Nonnull Collection<? extends Fingerprint> fingerprints) throws IOException {
+        for (Fingerprint fp : fingerprints) {
+            synchronized (fp) {
+                save(fp);
+            }
+        }
+    }
+
+    /**
+     * The file a record is kept in, if it has one of its own, as {@link SaveableListener}s are told when it is saved.
+     * @param id the hash of the file, in lower case
+     * @return null if records are not kept as files of their own, as by default
+     */
+    public @CheckForNull File getFile(@Nonnull String id) {
+        return null;
+    }
+
+    /**
+     * Loads a record.
+     * @param id the hash of the file, in lower case
+     * @return null if there is no such record, or it could not be read
+     */
+    public abstract @CheckForNull Fingerprint load(@Nonnull String id) throws IOException;
+
+    /**
+     * Deletes a record, if it exists.
+     */
+    public abstract void delete(@Nonnull String id) throws IOException;
+
+    /**
+     * Returns true if there's some data in the storage.
+     * @see FingerprintMap#isReady
+     */
+    public abstract boolean isReady();
+
+    /**
+     * Goes over all records, deleting or {@linkplain Fingerprint#trim trimming} those that refer to builds which no longer exist.
+     * Called periodically by {@link FingerprintCleanupThread}.
+     * Implementations would normally call {@link #cleanFingerprint} on each record.
+     */
+    public abstract void iterateAndCleanupFingerprints(@Nonnull TaskListener taskListener);
+
+    /**
+     * Deletes a record that is no longer {@linkplain Fingerprint#isAlive alive} unless a facet {@linkplain Fingerprint#getFacetBlockingDeletion blocks that},
+     * or else trims it.
+     * @param fp the record as held by {@link FingerprintMap}, so that trimming it does not race other changes to it
+     * @return true if the record was deleted or modified
+     */
+    protected boolean cleanFingerprint(@Nonnull Fingerprint fp, @Nonnull TaskListener taskListener) {
+        try {
+            FingerprintFacet deletionBlockerFacet = fp.getFacetBlockingDeletion();
+            if (!fp.isAlive() && deletionBlockerFacet == null) {
+                taskListener.getLogger().println("deleting obsolete " + fp.getHashString());
+                delete(fp.getHashString());
+                return true;
+            }
+            if (!fp.isAlive()) {
+                taskListener.getLogger().println(deletionBlockerFacet.getClass().getName() + " created on " + DATE_CONVERTER.toString(deletionBlockerFacet.getTimestamp()) + " blocked deletion of " + fp.getHashString());
+            }
+            return fp.trim();
+        } catch (IOException e) {
+            Functions.printStackTrace(e, taskListener.error("Failed to process " + fp.getHashString()));
+            return false;
+        }
+    }
+
+    private static final DateConverter DATE_CONVERTER = new DateConverter();
+}
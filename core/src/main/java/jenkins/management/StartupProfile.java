@@ -0,0 +1,238 @@
+package jenkins.management;
+
+import hudson.PluginWrapper;
+import hudson.Util;
+import hudson.XmlFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * How long one startup of Jenkins took, and what it took so long for.
+ * The last few are kept in {@code JENKINS_HOME}, along with the plugins installed at the time,
+ * so that a startup which got slower can be compared with the ones before, and with what got updated in between.
+ * @see StartupProfileLink
+ */
+@Restricted(NoExternalUse.class)
+@ExportedBean
+public final class StartupProfile {
+
+    /**
+     * How many startups to keep.
+     */
+    public static /* Script Console modifiable */ int HISTORY = SystemProperties.getInteger(StartupProfile.class.getName() + ".history", 10);
+
+    /**
+     * How many of the slowest tasks to keep for each startup, besides those on the critical path.
+     */
+    public static /* Script Console modifiable */ int SLOWEST = SystemProperties.getInteger(StartupProfile.class.getName() + ".slowest", 50);
+
+    /**
+     * When an {@link hudson.init.InitMilestone} was attained, in milliseconds since the startup began.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Phase {
+        @Exported
+        public final String name;
+        @Exported
+        public final long attained;
+
+        public Phase(String name, long attained) {
+            this.name = name;
+            this.attained = attained;
+        }
+    }
+
+    /**
+     * One task, with times in milliseconds since the startup began.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Entry {
+        @Exported
+        public final String name;
+        @Exported
+        public final String thread;
+        @Exported
+        public final long start;
+        @Exported
+        public final long duration;
+        /**
+         * How long the task waited for a thread once all it required was there.
+         */
+        @Exported
+        public final long wait;
+        @Exported
+        public final boolean failed;
+
+        public Entry(String name, String thread, long start, long duration, long wait, boolean failed) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.duration = duration;
+            this.wait = wait;
+            this.failed = failed;
+        }
+    }
+
+    private final long timestamp;
+    private final long duration;
+    private final int tasks;
+    private final String version;
+    private final List<Phase> phases;
+    private final List<Entry> criticalPath;
+    private final List<Entry> slowest;
+    private final Map<String, String> plugins = new TreeMap<>();
+
+    public StartupProfile(long timestamp, long duration, int tasks, List<Phase> phases, List<Entry> criticalPath, List<Entry> slowest) {
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.tasks = tasks;
+        this.version = Jenkins.VERSION;
+        this.phases = phases;
+        this.criticalPath = criticalPath;
+        this.slowest = slowest;
+        Jenkins j = Jenkins.getInstanceOrNull();
+        if (j != null && j.pluginManager != null) {
+            for (PluginWrapper p : j.pluginManager.getPlugins()) {
+                plugins.put(p.getShortName(), p.getVersion());
+            }
+        }
+    }
+
+    @Exported
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Exported
+    public long getDuration() {
+        return duration;
+    }
+
+    public Date getDate() {
+        return new Date(timestamp);
+    }
+
+    public String getDurationString() {
+        return Util.getTimeSpanString(duration);
+    }
+
+    @Exported
+    public int getTasks() {
+        return tasks;
+    }
+
+    @Exported
+    public String getVersion() {
+        return version;
+    }
+
+    @Exported
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Tasks which held up the startup, in the order they ran.
+     */
+    @Exported
+    public List<Entry> getCriticalPath() {
+        return Collections.unmodifiableList(criticalPath);
+    }
+
+    /**
+     * Tasks which took longest, slowest first.
+     */
+    @Exported
+    public List<Entry> getSlowest() {
+        return Collections.unmodifiableList(slowest);
+    }
+
+    @Exported
+    public Map<String, String> getPlugins() {
+        return Collections.unmodifiableMap(plugins);
+    }
+
+    /**
+     * Describes how Jenkins and its plugins changed since an earlier startup.
+     * @return for instance {@code ["Jenkins 2.230 → 2.231", "git 4.2.0 → 4.2.2", "+ junit 1.28", "- ant 1.10"]}
+     */
+    public @Nonnull List<String> changesSince(@CheckForNull StartupProfile earlier) {
+        List<String> changes = new ArrayList<>();
+        if (earlier == null) {
+            return changes;
+        }
+        if (!Objects.equals(earlier.version, version)) {
+            changes.add("Jenkins " + earlier.version + " → " + version);
+        }
+        for (Map.Entry<String, String> p : plugins.entrySet()) {
+            String before = earlier.plugins.get(p.getKey());
+            if (before == null) {
+                changes.add("+ " + p.getKey() + " " + p.getValue());
+            } else if (!before.equals(p.getValue())) {
+                changes.add(p.getKey() + " " + before + " → " + p.getValue());
+            }
+        }
+        for (Map.Entry<String, String> p : earlier.plugins.entrySet()) {
+            if (!plugins.containsKey(p.getKey())) {
+                changes.add("- " + p.getKey() + " " + p.getValue());
+            }
+        }
+        return changes;
+    }
+
+    private static XmlFile getHistoryFile() {
+        return new XmlFile(Jenkins.XSTREAM2, new File(Jenkins.get().getRootDir(), "startup-profiles.xml"));
+    }
+
+    /**
+     * Loads the recorded startups.
+     * @return the latest first
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized @Nonnull List<StartupProfile> load() {
+        XmlFile file = getHistoryFile();
+        if (file.exists()) {
+            try {
+                return (List<StartupProfile>) file.read();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to load " + file, e);
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Adds a startup to those recorded, forgetting the oldest ones beyond {@link #HISTORY}.
+     */
+    public static synchronized void record(@Nonnull StartupProfile profile) {
+        List<StartupProfile> history = load();
+        history.add(0, profile);
+        while (history.size() > Math.max(1, HISTORY)) {
+            history.remove(history.size() - 1);
+        }
+        try {
+            getHistoryFile().write(history);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to record how long startup took", e);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(StartupProfile.class.getName());
+}
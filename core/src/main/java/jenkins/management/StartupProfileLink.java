@@ -0,0 +1,73 @@
+package jenkins.management;
+
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.Jenkins;
+import org.jenkinsci.Symbol;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Shows how long recent startups took, what held them up, and what changed in between.
+ * Listed under {@code /manage}, and also available as {@code api/json}.
+ * @see StartupProfile
+ */
+@Extension(ordinal = Integer.MAX_VALUE - 650) @Symbol("startupProfile")
+@Restricted(NoExternalUse.class)
+@ExportedBean
+public class StartupProfileLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.StartupProfileLink_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.StartupProfileLink_Description();
+    }
+
+    @Nonnull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.SYSTEM_READ;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "startup-profile";
+    }
+
+    /**
+     * Recorded startups, the latest first.
+     */
+    @Exported(inline = true)
+    public List<StartupProfile> getProfiles() {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        return StartupProfile.load();
+    }
+
+    /**
+     * The startup recorded before a given one, if any.
+     */
+    public @CheckForNull StartupProfile previous(List<StartupProfile> profiles, int index) {
+        return index + 1 < profiles.size() ? profiles.get(index + 1) : null;
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        return new Api(this);
+    }
+}
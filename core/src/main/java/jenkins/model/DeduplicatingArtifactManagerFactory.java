@@ -0,0 +1,244 @@
+package jenkins.model;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Keeps a single copy of each distinct artifact, however many builds archive it.
+ *
+ * <p>
+ * Artifacts are stored as usual in the {@code archive} directory of each build, so they are served and deleted as usual,
+ * but as hard links to files in a store under {@code JENKINS_HOME}, named by their SHA-256 digest.
+ * An artifact found in the store is linked into the build without being transferred at all,
+ * once the file there is found to have the digest the agent reported;
+ * others are transferred, then added to the store under the digest taken of them on the controller.
+ * Once no build links to a file of the store any more, as when builds get discarded, it is reclaimed in the background,
+ * unless it was linked or unlinked recently, in case a build is just about to link to it again.
+ *
+ * <p>
+ * Artifacts must therefore never be modified in place, which they are not by Jenkins.
+ * Where hard links are not available, such as when builds are kept on another file system than the store, artifacts are archived as usual.
+ * @since TODO
+ */
+public class DeduplicatingArtifactManagerFactory extends ArtifactManagerFactory {
+
+    @DataBoundConstructor
+    public DeduplicatingArtifactManagerFactory() {}
+
+    @Override
+    public @CheckForNull ArtifactManager managerFor(Run<?, ?> build) {
+        return isSupported(getStore()) ? new DeduplicatingArtifactManager(build) : null;
+    }
+
+    /**
+     * Directory where the files artifacts link to are kept.
+     */
+    static @Nonnull File getStore() {
+        return new File(Jenkins.get().getRootDir(), "artifact-store");
+    }
+
+    /**
+     * Whether each store is {@linkplain #isSupported supported}, as this is checked for every build archiving artifacts.
+     */
+    private static final Map<File, Boolean> SUPPORTED = new ConcurrentHashMap<>();
+
+    /**
+     * Whether there is a way to tell how many links a file has, without which files of the store could never be reclaimed.
+     */
+    private static boolean isSupported(File store) {
+        Boolean supported = SUPPORTED.get(store);
+        if (supported == null) {
+            try {
+                Files.createDirectories(store.toPath());
+                supported = Files.getFileStore(store.toPath()).supportsFileAttributeView("unix");
+            } catch (IOException e) {
+                // not remembered, as this may be a transient problem
+                LOGGER.log(Level.WARNING, "Cannot use " + store, e);
+                return false;
+            }
+            SUPPORTED.put(store, supported);
+        }
+        return supported;
+    }
+
+    static File blob(File store, String sha256) {
+        return new File(new File(store, sha256.substring(0, 2)), sha256.substring(2));
+    }
+
+    /**
+     * Archives artifacts through the store.
+     */
+    public static class DeduplicatingArtifactManager extends StandardArtifactManager {
+
+        public DeduplicatingArtifactManager(Run<?, ?> build) {
+            super(build);
+        }
+
+        @Override
+        public void archive(FilePath workspace, Launcher launcher, BuildListener listener, Map<String, String> artifacts) throws IOException, InterruptedException {
+            File store = getStore();
+            @SuppressWarnings("deprecation")
+            File dir = build.getArtifactsDir();
+            Map<String, FileDigest> digests = workspace.act(new DigestFiles(artifacts));
+            Map<String, String> missing = new LinkedHashMap<>();
+            long linkedBytes = 0;
+            for (Map.Entry<String, String> entry : artifacts.entrySet()) {
+                FileDigest digest = digests.get(entry.getKey());
+                if (digest.sha256 != null && link(blob(store, digest.sha256), new File(dir, entry.getKey()), digest)) {
+                    linkedBytes += digest.size;
+                } else {
+                    missing.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!missing.isEmpty()) {
+                super.archive(workspace, launcher, listener, missing);
+            }
+            for (String path : missing.keySet()) {
+                FileDigest digest = digests.get(path);
+                File f = new File(dir, path);
+                // unless it changed in the meantime
+                if (digest.sha256 != null && digest.matches(f)) {
+                    store(blob(store, digest.sha256), f, digest);
+                }
+            }
+            if (missing.size() < artifacts.size()) {
+                listener.getLogger().println(Messages.DeduplicatingArtifactManagerFactory_Linked(artifacts.size() - missing.size(), Functions.humanReadableByteSize(linkedBytes)));
+            }
+        }
+
+        /**
+         * Links an artifact to a file of the store.
+         * The digest comes from the agent, so the content of that file is checked against it first,
+         * rather than trusting its name, which might no longer match if it was modified in place.
+         * @return false if that file is not there, does not have that digest, or cannot be linked to
+         */
+        private static boolean link(File blob, File artifact, FileDigest digest) {
+            try {
+                if (!digest.matches(blob)) {
+                    LOGGER.log(Level.FINE, "{0} does not have the digest of {1}", new Object[] {blob, artifact});
+                    return false;
+                }
+                Files.createDirectories(artifact.toPath().getParent());
+                Path tmp = artifact.toPath().resolveSibling(artifact.getName() + ".link");
+                Files.deleteIfExists(tmp);
+                Files.createLink(tmp, blob.toPath());
+                Files.move(tmp, artifact.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (IOException e) {
+                // reclaimed in the meantime, or on another file system
+                LOGGER.log(Level.FINE, "Cannot link " + artifact + " to " + blob, e);
+                return false;
+            }
+        }
+
+        /**
+         * Adds a transferred artifact to the store, or links it to the file already there if another build stored it in the meantime.
+         */
+        private static void store(File blob, File artifact, FileDigest digest) {
+            try {
+                Files.createDirectories(blob.toPath().getParent());
+                Files.createLink(blob.toPath(), artifact.toPath());
+            } catch (FileAlreadyExistsException e) {
+                link(blob, artifact, digest);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Cannot store " + artifact + " as " + blob, e);
+            }
+        }
+    }
+
+    @Extension @Symbol("deduplicating")
+    public static final class DescriptorImpl extends ArtifactManagerFactoryDescriptor {
+        @Override
+        public @Nonnull String getDisplayName() {
+            return Messages.DeduplicatingArtifactManagerFactory_DisplayName();
+        }
+    }
+
+    /**
+     * Deletes files of the store no build links to any more.
+     */
+    @Extension
+    public static final class Reclaimer extends AsyncPeriodicWork {
+
+        /**
+         * How long since a file of the store was last linked or unlinked before it may be reclaimed,
+         * so that one a build has just found in the store is not deleted before it could link to it.
+         */
+        static /* Script Console modifiable */ long GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+        public Reclaimer() {
+            super("Artifact store reclamation");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return HOUR;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws IOException, InterruptedException {
+            Path store = getStore().toPath();
+            if (!Files.isDirectory(store)) {
+                return;
+            }
+            long count = 0;
+            long bytes = 0;
+            long changedBefore = System.currentTimeMillis() - GRACE_PERIOD;
+            try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(store)) {
+                for (Path prefix : prefixes) {
+                    if (!Files.isDirectory(prefix)) {
+                        continue;
+                    }
+                    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(prefix)) {
+                        for (Path blob : blobs) {
+                            if (Thread.interrupted()) {
+                                throw new InterruptedException();
+                            }
+                            try {
+                                // the change time, unlike the modification time, is updated whenever a link is added or removed
+                                Map<String, Object> attributes = Files.readAttributes(blob, "unix:nlink,ctime");
+                                if (((Number) attributes.get("nlink")).intValue() <= 1 && ((FileTime) attributes.get("ctime")).toMillis() <= changedBefore) {
+                                    long size = Files.size(blob);
+                                    Files.delete(blob);
+                                    count++;
+                                    bytes += size;
+                                }
+                            } catch (IOException | UnsupportedOperationException e) {
+                                listener.error("Failed to check " + blob + ": " + e);
+                            }
+                        }
+                    }
+                }
+            }
+            if (count > 0) {
+                listener.getLogger().println(Messages.DeduplicatingArtifactManagerFactory_Reclaimed(count, Functions.humanReadableByteSize(bytes)));
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(DeduplicatingArtifactManagerFactory.class.getName());
+}
@@ -200,6 +200,7 @@ import jenkins.security.SecurityListener;
 import jenkins.security.MasterToSlaveCallable;
 import jenkins.slaves.WorkspaceLocator;
 import jenkins.util.JenkinsJVM;
+import jenkins.util.SaveScheduler;
 import jenkins.util.Timer;
 import jenkins.util.io.FileBoolean;
 import jenkins.util.io.OnMaster;
@@ -2176,6 +2177,7 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
      * but we also call this periodically to self-heal any data out-of-sync issue.
      */
     /*package*/ void trimLabels() {
+        resetLabelNodeIndex();
         for (Iterator<Label> itr = labels.values().iterator(); itr.hasNext();) {
             Label l = itr.next();
             resetLabel(l);
@@ -2184,6 +2186,18 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
         }
     }
 
+    /**
+     * Resets all labels like {@link #trimLabels}, but without computing them again to remove empty ones,
+     * for when the labels of nodes may have changed without any change to their configuration.
+     */
+    @Restricted(NoExternalUse.class)
+    public void resetLabels() {
+        resetLabelNodeIndex();
+        for (Label l : labels.values()) {
+            resetLabel(l);
+        }
+    }
+
     /**
      * Binds {@link AdministrativeMonitor}s to URL.
      * @param id Monitor ID
@@ -3088,6 +3102,7 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
     @Override
     public void setLabelString(String label) throws IOException {
         this.label = label;
+        resetLabelNodeIndex();
         save();
     }
 
@@ -3336,7 +3351,7 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
             throw new IllegalStateException("An attempt to save the global configuration was made before it was loaded");
         }
 
-        if(BulkChange.contains(this)) {
+        if(BulkChange.contains(this) || SaveScheduler.defer(this)) {
             return;
         }
         if (currentMilestone == InitMilestone.COMPLETED) {
@@ -3395,6 +3410,8 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
 
             _cleanUpShutdownTcpSlaveAgent(errors);
 
+            _cleanUpFlushSaves(errors);
+
             _cleanUpShutdownPluginManager(errors);
 
             _cleanUpPersistQueue(errors);
@@ -3602,6 +3619,23 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
         }
     }
 
+    private void _cleanUpFlushSaves(List<Throwable> errors) {
+        LOGGER.log(FINE, "Writing pending saves");
+        try {
+            SaveScheduler.shutdown();
+        } catch (OutOfMemoryError e) {
+            // we should just propagate this, no point trying to log
+            throw e;
+        } catch (LinkageError e) {
+            LOGGER.log(SEVERE, "Failed to write pending saves", e);
+            // safe to ignore and continue for this one
+        } catch (Throwable e) {
+            LOGGER.log(SEVERE, "Failed to write pending saves", e);
+            // save for later
+            errors.add(e);
+        }
+    }
+
     private void _cleanUpShutdownTcpSlaveAgent(List<Throwable> errors) {
         if(tcpSlaveAgentListener!=null) {
             LOGGER.log(FINE, "Shutting down TCP/IP agent listener");
@@ -4116,6 +4150,7 @@ public class Jenkins extends AbstractCIBase implements DirectlyModifiableTopLeve
      * Beware that this calls neither {@link ItemListener#onLoaded} nor {@link Initializer}s.
      */
     public void reload() throws IOException, InterruptedException, ReactorException {
+        SaveScheduler.flush();
         queue.save();
         executeReactor(null, loadTasks());
 
@@ -33,6 +33,7 @@ import hudson.model.Saveable;
 import hudson.model.listeners.SaveableListener;
 import hudson.slaves.EphemeralNode;
 import hudson.slaves.OfflineCause;
+import jenkins.util.SaveScheduler;
 import java.util.concurrent.Callable;
 
 import org.kohsuke.accmod.Restricted;
@@ -282,7 +283,7 @@ public class Nodes implements Saveable {
 
     @Override
     public void save() throws IOException {
-        if (BulkChange.contains(this)) {
+        if (BulkChange.contains(this) || SaveScheduler.defer(this)) {
             return;
         }
         final File nodesDir = getNodesDir();
@@ -42,6 +42,7 @@ import hudson.model.Queue;
 import hudson.model.Run;
 import hudson.model.listeners.ItemListener;
 import hudson.model.queue.QueueTaskFuture;
+import hudson.model.queue.ScheduleRequest;
 import hudson.search.SearchIndexBuilder;
 import hudson.triggers.Trigger;
 import hudson.triggers.TriggerDescriptor;
@@ -144,7 +145,33 @@ public abstract class ParameterizedJobMixIn<JobT extends Job<JobT, RunT> & Param
         }.scheduleBuild2(quietPeriod == -1 ? ((ParameterizedJob) job).getQuietPeriod() : quietPeriod, Arrays.asList(actions));
     }
 
+    /**
+     * Like {@link #scheduleBuild2(Job, int, Action...)}, but only prepares the request,
+     * so that builds of many jobs can be scheduled at once through {@link Queue#scheduleAll}.
+     * This bypasses any override of the scheduling methods of {@code job}, so callers must check for those first.
+     * @return a request to pass to {@link Queue#scheduleAll}; null if {@code job} is not a {@link ParameterizedJob} or it is not {@link Job#isBuildable}
+     */
+    @Restricted(NoExternalUse.class)
+    public static @CheckForNull ScheduleRequest scheduleRequest(final Job<?,?> job, int quietPeriod, Action... actions) {
+        if (!(job instanceof ParameterizedJob)) {
+            return null;
+        }
+        return new ParameterizedJobMixIn() {
+            @Override protected Job asJob() {
+                return job;
+            }
+        }.scheduleRequest(quietPeriod == -1 ? ((ParameterizedJob) job).getQuietPeriod() : quietPeriod, Arrays.asList(actions));
+    }
+
     @CheckForNull Queue.Item scheduleBuild2(int quietPeriod, List<Action> actions) {
+        ScheduleRequest request = scheduleRequest(quietPeriod, actions);
+        if (request == null)
+            return null;
+
+        return Jenkins.get().getQueue().schedule2(request.getTask(), request.getQuietPeriod(), request.getActions()).getItem();
+    }
+
+    private @CheckForNull ScheduleRequest scheduleRequest(int quietPeriod, List<Action> actions) {
         if (!asJob().isBuildable())
             return null;
 
@@ -152,7 +179,7 @@ public abstract class ParameterizedJobMixIn<JobT extends Job<JobT, RunT> & Param
         if (isParameterized() && Util.filter(queueActions, ParametersAction.class).isEmpty()) {
             queueActions.add(new ParametersAction(getDefaultParametersValues()));
         }
-        return Jenkins.get().getQueue().schedule2(asJob(), quietPeriod, queueActions).getItem();
+        return new ScheduleRequest(asJob(), quietPeriod, queueActions);
     }
 
     private List<ParameterValue> getDefaultParametersValues() {
@@ -21,6 +21,9 @@ import java.util.logging.Logger;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import jenkins.model.lazy.BuildIndex;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Convenient base implementation for {@link Permalink}s that satisfy
@@ -74,6 +77,17 @@ public abstract class PeepholePermalink extends Permalink implements Predicate<R
      */
     public abstract boolean apply(Run<?,?> run);
 
+    /**
+     * Checks if a build may satisfy the peep-hole criteria, judging only from its summary.
+     * Builds for which this returns false are skipped without being loaded while searching for the permalink target.
+     *
+     * @return false only if {@link #apply(Run)} is known to be false for the build; true by default
+     */
+    @Restricted(NoExternalUse.class)
+    protected boolean mayApply(@Nonnull RunSummary summary) {
+        return true;
+    }
+
     /** @deprecated No longer used. */
     @Deprecated
     protected File getPermalinkFile(Job<?,?> job) {
@@ -125,11 +139,33 @@ public abstract class PeepholePermalink extends Permalink implements Predicate<R
      */
     private Run<?,?> find(Run<?,?> b) {
         //noinspection StatementWithEmptyBody
-        for ( ; b!=null && !apply(b); b=b.getPreviousBuild())
+        for ( ; b!=null && !apply(b); b=previous(b))
             ;
         return b;
     }
 
+    /**
+     * Like {@link Run#getPreviousBuild}, but does not load builds that their {@link RunSummary} rules out.
+     */
+    private Run<?,?> previous(Run<?,?> b) {
+        Job<?,?> j = b.getParent();
+        BuildIndex index = j.getBuildIndex();
+        if (index == null) {
+            return b.getPreviousBuild();
+        }
+        for (RunSummary e = index.lower(b.getNumber()); e != null; e = index.lower(e.getNumber())) {
+            RunSummary s = e.isComplete() ? e : j.getBuildSummary(e.getNumber());
+            if (s != null && !mayApply(s)) {
+                continue;
+            }
+            Run<?,?> r = j.getBuildByNumber(e.getNumber());
+            if (r != null) {
+                return r;
+            }
+        }
+        return null;
+    }
+
     private static @Nonnull Map<String, Integer> cacheFor(@Nonnull File buildDir) {
         synchronized (caches) {
             Map<String, Integer> cache = caches.get(buildDir);
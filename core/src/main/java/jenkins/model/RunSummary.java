@@ -0,0 +1,234 @@
+package jenkins.model;
+
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.StreamException;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.BallColor;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.XStream2;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import jenkins.model.lazy.BuildIndex;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * What a history view needs to know about a {@link Run}, without loading it.
+ *
+ * <p>
+ * Loading a build record deserializes the whole build, including all its actions,
+ * which is wasteful when all that is shown is its number, result, timestamp and duration.
+ * Summaries are instead taken from the {@link BuildIndex} of the job, or read from the top-level
+ * fields of {@code build.xml} without creating any of the objects in it.
+ * The summary of a build that is still running, or whose record says nothing about its result, has no {@link #getResult};
+ * callers then need to load the build itself.
+ *
+ * @see Job#getBuildSummary(int)
+ * @see Job#getBuildSummaries()
+ * @since TODO
+ */
+public final class RunSummary {
+    private final int number;
+    private final @CheckForNull String id;
+    private final long queueId;
+    private final long timestamp;
+    private final @CheckForNull Result result;
+    private final long duration;
+    private final @CheckForNull String displayName;
+    private final @CheckForNull String builtOn;
+
+    @Restricted(NoExternalUse.class)
+    public RunSummary(int number, @CheckForNull String id, long queueId, long timestamp, @CheckForNull Result result, long duration,
+                      @CheckForNull String displayName, @CheckForNull String builtOn) {
+        this.number = number;
+        // the ID is the number for all builds created since 1.597
+        this.id = Integer.toString(number).equals(id) ? null : id;
+        this.queueId = queueId;
+        this.timestamp = timestamp;
+        this.result = result;
+        this.duration = duration;
+        this.displayName = displayName;
+        this.builtOn = builtOn;
+    }
+
+    /**
+     * Summarizes a build in memory.
+     */
+    public static @Nonnull RunSummary of(@Nonnull Run<?, ?> r) {
+        boolean completed = !r.isBuilding();
+        return new RunSummary(r.getNumber(), r.getId(), r.getQueueId(), r.getTimeInMillis(),
+                completed ? r.getResult() : null, completed ? r.getDuration() : 0,
+                r.hasCustomDisplayName() ? r.getDisplayName() : null,
+                r instanceof AbstractBuild ? ((AbstractBuild<?, ?>) r).getBuiltOnStr() : null);
+    }
+
+    /**
+     * Whether summaries show the builds of a job as the builds would show themselves.
+     * They do not if the job lists its builds in a way of its own,
+     * or if its builds override how they are named or colored, which is judged from the last build.
+     */
+    @Restricted(NoExternalUse.class)
+    public static boolean canStandFor(@Nonnull Job<?, ?> job) {
+        if (Util.isOverridden(Job.class, job.getClass(), "getBuilds")) {
+            return false;
+        }
+        Run<?, ?> last = job.getLastBuild();
+        return last == null
+                || !Util.isOverridden(Run.class, last.getClass(), "getDisplayName") && !Util.isOverridden(Run.class, last.getClass(), "getIconColor");
+    }
+
+    /**
+     * Summarizes a build from its record on disk, skipping over everything else in it.
+     *
+     * @param buildDir the {@linkplain Run#getRootDir root directory} of the build
+     * @return null if the build record does not exist or could not be read
+     */
+    public static @CheckForNull RunSummary read(@Nonnull File buildDir, int number) {
+        File xml = new File(buildDir, "build.xml");
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(xml.toPath()))) {
+            HierarchicalStreamReader reader = XStream2.getDefaultDriver().createReader(in);
+            long queueId = Run.QUEUE_ID_UNKNOWN, timestamp = 0, duration = 0;
+            Result result = null;
+            String displayName = null, builtOn = null;
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                // fields holding objects, such as actions, are skipped by moveUp without being converted
+                switch (reader.getNodeName()) {
+                    case "queueId":
+                        queueId = Long.parseLong(reader.getValue().trim());
+                        break;
+                    case "timestamp":
+                        timestamp = Long.parseLong(reader.getValue().trim());
+                        break;
+                    case "result":
+                        result = Result.fromString(reader.getValue().trim());
+                        break;
+                    case "duration":
+                        duration = Long.parseLong(reader.getValue().trim());
+                        break;
+                    case "displayName":
+                        displayName = Util.fixEmpty(reader.getValue());
+                        break;
+                    case "builtOn":
+                        builtOn = reader.getValue();
+                        break;
+                    default:
+                        break;
+                }
+                reader.moveUp();
+            }
+            reader.close();
+            return new RunSummary(number, null, queueId, timestamp, result, result != null ? duration : 0, displayName, builtOn);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | StreamException | NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Failed to read a summary of " + xml, e);
+            return null;
+        }
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @see Run#getId
+     */
+    public @Nonnull String getId() {
+        return id != null ? id : Integer.toString(number);
+    }
+
+    /**
+     * @see Run#getQueueId
+     */
+    public long getQueueId() {
+        return queueId;
+    }
+
+    /**
+     * @return when the build was scheduled, or 0 if unknown
+     * @see Run#getTimeInMillis
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the result of a completed build, or null if the build is still running or this is not known
+     */
+    public @CheckForNull Result getResult() {
+        return result;
+    }
+
+    /**
+     * Whether this summary tells everything there is to know about a completed build.
+     */
+    public boolean isComplete() {
+        return result != null && timestamp != 0;
+    }
+
+    /**
+     * @return the duration of a completed build, or 0 if the build is still running or this is not known
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @see Run#getDurationString
+     */
+    public @Nonnull String getDurationString() {
+        return Util.getTimeSpanString(duration);
+    }
+
+    /**
+     * @see Run#getDisplayName
+     */
+    public @Nonnull String getDisplayName() {
+        return displayName != null ? displayName : "#" + number;
+    }
+
+    /**
+     * @return the custom display name of the build, if any
+     */
+    public @CheckForNull String getCustomDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return the name of the node an {@link AbstractBuild} was built on, empty for the master, or null if not known
+     * @see AbstractBuild#getBuiltOnStr
+     */
+    public @CheckForNull String getBuiltOnStr() {
+        return builtOn;
+    }
+
+    /**
+     * @return the icon color of a completed build
+     * @throws IllegalStateException if the result is not known
+     */
+    public @Nonnull BallColor getIconColor() {
+        if (result == null) {
+            throw new IllegalStateException("#" + number + " has no known result");
+        }
+        return result.color;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + number + "[" + result + "]";
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(RunSummary.class.getName());
+}
@@ -26,15 +26,37 @@ package jenkins.model;
 
 import com.google.common.annotations.VisibleForTesting;
 import hudson.FilePath;
+import hudson.Functions;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.BuildListener;
+import hudson.model.Computer;
 import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
@@ -64,12 +86,184 @@ public class StandardArtifactManager extends ArtifactManager {
         this.build = build;
     }
 
+    /**
+     * Number of transfers to archive artifacts with, in parallel, checking each file by its digest and skipping files already archived.
+     * Zero or one to archive all artifacts in a single transfer, as usual.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ int PARALLEL_TRANSFERS = SystemProperties.getInteger(StandardArtifactManager.class.getName() + ".parallelTransfers", 0);
+
     @Override public void archive(FilePath workspace, Launcher launcher, BuildListener listener, final Map<String,String> artifacts) throws IOException, InterruptedException {
         File dir = getArtifactsDir();
+        if (PARALLEL_TRANSFERS > 1 && artifacts.size() > 1) {
+            archiveInParallel(workspace, listener, artifacts, dir, PARALLEL_TRANSFERS);
+            return;
+        }
         String description = "transfer of " + artifacts.size() + " files"; // TODO improve when just one file
         workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(artifacts), new FilePath(dir), description, TAR_COMPRESSION);
     }
 
+    /**
+     * Archives artifacts in several transfers running at once, each over its own pipe,
+     * so that compression and the copies use more than one core and connection.
+     * Files already in the build with the same digest, as when archiving again after an interruption, are not transferred again,
+     * and transferred files are checked against the digest taken in the workspace.
+     */
+    private void archiveInParallel(FilePath workspace, BuildListener listener, Map<String,String> artifacts, File dir, int transfers) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Map<String,FileDigest> digests = workspace.act(new DigestFiles(artifacts));
+
+        // largest first, each to the transfer with the least to do so far
+        List<String> paths = new ArrayList<>(artifacts.keySet());
+        paths.sort(Comparator.comparingLong((String path) -> digests.get(path).size).reversed());
+        List<Map<String,String>> chunks = new ArrayList<>();
+        long[] sizes = new long[Math.min(transfers, paths.size())];
+        for (int i = 0; i < sizes.length; i++) {
+            chunks.add(new LinkedHashMap<>());
+        }
+        for (String path : paths) {
+            int smallest = 0;
+            for (int i = 1; i < sizes.length; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            chunks.get(smallest).put(path, artifacts.get(path));
+            sizes[smallest] += digests.get(path).size;
+        }
+
+        List<Future<long[]>> results = new ArrayList<>();
+        for (Map<String,String> chunk : chunks) {
+            results.add(Computer.threadPoolForRemoting.submit(() -> transfer(workspace, dir, chunk, digests)));
+        }
+        long files = 0, bytes = 0, skipped = 0;
+        try {
+            for (Future<long[]> result : results) {
+                long[] r = result.get();
+                files += r[0];
+                bytes += r[1];
+                skipped += r[2];
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (Future<long[]> result : results) {
+                result.cancel(true);
+            }
+        }
+        long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        listener.getLogger().println(Messages.StandardArtifactManager_Archived(files, Functions.humanReadableByteSize(bytes),
+                Util.getTimeSpanString(elapsed), Functions.humanReadableByteSize(bytes * 1000 / elapsed), skipped));
+    }
+
+    /**
+     * Transfers some artifacts which are not archived yet, then checks them.
+     * @return the number of files and bytes transferred, then the number of files skipped
+     */
+    private static long[] transfer(FilePath workspace, File dir, Map<String,String> chunk, Map<String,FileDigest> digests) throws IOException, InterruptedException {
+        Map<String,String> missing = new LinkedHashMap<>();
+        for (Map.Entry<String,String> entry : chunk.entrySet()) {
+            FileDigest expected = digests.get(entry.getKey());
+            File f = new File(dir, entry.getKey());
+            if (expected.sha256 == null || !expected.matches(f)) {
+                missing.put(entry.getKey(), entry.getValue());
+            }
+        }
+        int transferred = missing.size();
+        long bytes = 0;
+        for (String path : missing.keySet()) {
+            bytes += digests.get(path).size;
+        }
+        for (int attempt = 0; !missing.isEmpty(); attempt++) {
+            workspace.copyRecursiveTo(new FilePath.ExplicitlySpecifiedDirScanner(missing), new FilePath(dir), "transfer of " + missing.size() + " files", TAR_COMPRESSION);
+            Map<String,String> corrupt = new LinkedHashMap<>();
+            for (Map.Entry<String,String> entry : missing.entrySet()) {
+                FileDigest expected = digests.get(entry.getKey());
+                if (expected.sha256 != null && !expected.matches(new File(dir, entry.getKey()))) {
+                    corrupt.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!corrupt.isEmpty() && attempt > 0) {
+                throw new IOException("Archived files do not match their digest in the workspace, even after a second transfer: " + corrupt.keySet());
+            }
+            missing = corrupt;
+        }
+        return new long[] {transferred, bytes, chunk.size() - transferred};
+    }
+
+    /**
+     * Size and SHA-256 digest of a file.
+     */
+    static final class FileDigest implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        final long size;
+        /** Null for anything but a regular file, such as a symlink, which is then always transferred. */
+        final @CheckForNull String sha256;
+
+        FileDigest(long size, @CheckForNull String sha256) {
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        static FileDigest of(File f) throws IOException {
+            Path p = f.toPath();
+            if (!Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)) {
+                return new FileDigest(0, null);
+            }
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AssertionError(e);
+            }
+            long size = 0;
+            try (InputStream in = Files.newInputStream(p)) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                    size += n;
+                }
+            }
+            return new FileDigest(size, Util.toHexString(md.digest()));
+        }
+
+        boolean matches(File f) throws IOException {
+            if (!Files.isRegularFile(f.toPath(), LinkOption.NOFOLLOW_LINKS) || f.length() != size) {
+                return false;
+            }
+            return Objects.equals(sha256, of(f).sha256);
+        }
+    }
+
+    /**
+     * Takes the digest of artifacts in the workspace.
+     */
+    static final class DigestFiles extends MasterToSlaveFileCallable<Map<String,FileDigest>> {
+        private static final long serialVersionUID = 1;
+
+        private final Map<String,String> artifacts;
+
+        DigestFiles(Map<String,String> artifacts) {
+            this.artifacts = new LinkedHashMap<>(artifacts);
+        }
+
+        @Override public Map<String,FileDigest> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+            Map<String,FileDigest> digests = new HashMap<>();
+            for (Map.Entry<String,String> entry : artifacts.entrySet()) {
+                digests.put(entry.getKey(), FileDigest.of(new File(workspace, entry.getValue())));
+            }
+            return digests;
+        }
+    }
+
     @Override public final boolean delete() throws IOException, InterruptedException {
         File ad = getArtifactsDir();
         if (!ad.exists()) {
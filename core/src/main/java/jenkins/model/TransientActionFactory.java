@@ -36,10 +36,15 @@ import hudson.model.TopLevelItem;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
 
 /**
  * Allows you to add actions to any kind of object at once.
@@ -119,6 +124,7 @@ public abstract class TransientActionFactory<T> implements ExtensionPoint {
             allFactories.addListener(new ExtensionListListener() {
                 @Override
                 public void onChange() {
+                    generation.incrementAndGet();
                     perJenkinsCache.invalidateAll();
                 }
             });
@@ -126,9 +132,44 @@ public abstract class TransientActionFactory<T> implements ExtensionPoint {
         }
     });
 
+    /** Incremented whenever factories are added or removed, so that {@link RequestCache}s made before get dropped. */
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * What {@link #factoriesFor} returned during one request.
+     * Rendering a page asks for the actions of the same few objects over and over,
+     * and this way each time costs a single lookup rather than finding the extension list and going through two caches.
+     */
+    private static final class RequestCache {
+        private final int generation;
+        private final Map<CacheKey, List<TransientActionFactory<?>>> factories = new HashMap<>();
+        RequestCache(int generation) {
+            this.generation = generation;
+        }
+    }
+
     @Restricted(NoExternalUse.class) // pending a need for it outside Actionable
     public static Iterable<? extends TransientActionFactory<?>> factoriesFor(Class<?> type, Class<? extends Action> actionType) {
-        return cache.getUnchecked(ExtensionList.lookup(TransientActionFactory.class)).getUnchecked(new CacheKey(type, actionType));
+        CacheKey key = new CacheKey(type, actionType);
+        StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null) {
+            return cache.getUnchecked(ExtensionList.lookup(TransientActionFactory.class)).getUnchecked(key);
+        }
+        int current = generation.get();
+        Object attribute = req.getAttribute(RequestCache.class.getName());
+        RequestCache requestCache;
+        if (attribute instanceof RequestCache && ((RequestCache) attribute).generation == current) {
+            requestCache = (RequestCache) attribute;
+        } else {
+            requestCache = new RequestCache(current);
+            req.setAttribute(RequestCache.class.getName(), requestCache);
+        }
+        List<TransientActionFactory<?>> factories = requestCache.factories.get(key);
+        if (factories == null) {
+            factories = cache.getUnchecked(ExtensionList.lookup(TransientActionFactory.class)).getUnchecked(key);
+            requestCache.factories.put(key, factories);
+        }
+        return factories;
     }
 
 }
@@ -26,22 +26,34 @@ package jenkins.model.lazy;
 import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.RunMap;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
 
+import jenkins.model.RunSummary;
+import jenkins.util.ContextResettingExecutorService;
 import jenkins.util.MemoryReductionUtil;
+import jenkins.util.SystemProperties;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 
@@ -83,6 +95,8 @@ import static jenkins.model.lazy.AbstractLazyLoadRunMap.Direction.DESC;
  * Object lock of {@code this} is used to make sure mutation occurs sequentially.
  * That is, ensure that only one thread is actually calling {@link #retrieve(File)} and
  * updating {@link jenkins.model.lazy.AbstractLazyLoadRunMap.Index#byNumber}.
+ * The exception is {@linkplain #PREFETCH_SIZE prefetching}, which calls {@link #retrieve(File)} without the lock
+ * and only takes the lock to publish the record, unless another thread has loaded it meanwhile.
  *
  * @author Kohsuke Kawaguchi
  * @since 1.485
@@ -134,6 +148,30 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
     // copy on write
     private volatile SortedIntList numberOnDisk = new SortedIntList(0);
 
+    /**
+     * Persistent index of {@link #numberOnDisk}, or null if this map keeps none.
+     */
+    private volatile @CheckForNull BuildIndex buildIndex;
+
+    /**
+     * Records currently being loaded by {@link #prefetch}, so that they are not scheduled twice.
+     * Other threads never wait for these, as they may hold locks {@link #retrieve(File)} needs, but load them themselves.
+     */
+    @GuardedBy("this")
+    private final Set<Integer> prefetching = new HashSet<>();
+
+    /**
+     * Bumped whenever loaded records are discarded wholesale, so that outstanding prefetches do not publish stale records.
+     */
+    @GuardedBy("this")
+    private int generation;
+
+    /**
+     * The last record returned by {@link #search}, and in which direction, to detect sequential scans.
+     */
+    private volatile int lastSearched;
+    private volatile Direction lastSearchDirection;
+
     /**
      * Base directory for data.
      * In effect this is treated as a final field, but can't mark it final
@@ -171,6 +209,11 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
      */
     public final void updateBaseDir(File dir) {
         this.dir = dir;
+        BuildIndex bi = buildIndex;
+        File indexFile = getBuildIndexFile();
+        if (bi != null && indexFile != null) {
+            bi.relocate(dir, indexFile);
+        }
     }
     
     /**
@@ -182,11 +225,20 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
      */
     public synchronized void purgeCache() {
         index = new Index();
+        generation++;
         fullyLoaded = false;
         loadNumberOnDisk();
     }
 
     private void loadNumberOnDisk() {
+        File indexFile = BuildIndex.ENABLED ? getBuildIndexFile() : null;
+        BuildIndex bi = indexFile != null ? BuildIndex.load(dir, indexFile) : null;
+        if (bi != null && bi.isUpToDate()) {
+            numberOnDisk = bi.getNumbers();
+            buildIndex = bi;
+            return;
+        }
+
         String[] kids = dir.list();
         if (kids == null) {
             // the job may have just been created
@@ -202,6 +254,64 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
         }
         list.sort();
         numberOnDisk = list;
+        if (bi != null) {
+            bi.retainExactly(list);
+        }
+        buildIndex = bi;
+    }
+
+    /**
+     * Where to keep the {@link BuildIndex} of this map.
+     * The file must not be in {@link #dir}, since the index is validated against its modification time.
+     *
+     * @return null to keep no index, the default
+     */
+    protected @CheckForNull File getBuildIndexFile() {
+        return null;
+    }
+
+    /**
+     * Allows subtype to record what it knows about a build in the {@link BuildIndex}.
+     *
+     * @return null to only record the build number, the default
+     */
+    protected @CheckForNull RunSummary getSummaryOf(R r) {
+        return null;
+    }
+
+    /**
+     * Returns the persistent index of builds of this map, which lets callers learn about builds without loading them.
+     *
+     * @return null if this map keeps no index
+     */
+    @Restricted(NoExternalUse.class)
+    public @CheckForNull BuildIndex getBuildIndex() {
+        return buildIndex;
+    }
+
+    /**
+     * Records what has changed about a build, such as its completion, in the {@link BuildIndex}.
+     */
+    @Restricted(NoExternalUse.class)
+    public void updateBuildIndex(R r) {
+        BuildIndex bi = buildIndex;
+        if (bi != null && numberOnDisk.contains(getNumberOf(r))) {
+            RunSummary s = getSummaryOf(r);
+            bi.put(s != null ? s : BuildIndex.unknown(getNumberOf(r)));
+        }
+    }
+
+    /**
+     * Fills in the {@link BuildIndex} from a build just loaded, in case it was indexed from a directory listing.
+     */
+    private void indexLoaded(R r) {
+        BuildIndex bi = buildIndex;
+        if (bi != null) {
+            RunSummary s = getSummaryOf(r);
+            if (s != null) {
+                bi.update(s);
+            }
+        }
     }
 
     public Comparator<? super Integer> comparator() {
@@ -238,6 +348,8 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
         // to look up keys in SortedMap, various places of Jenkins rely on
         // subMap+firstKey/lastKey combo.
 
+        prefetch(fromKey, DESC, toKey);
+
         R start = search(fromKey, DESC);
         if (start==null)    return EMPTY_SORTED_MAP;
 
@@ -329,8 +441,10 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
                     // TODO could be made more efficient with numberOnDisk.find
                     continue;
                 }
+                readAhead(m, d);
                 R r = getByNumber(m);
                 if (r != null) {
+                    searched(m, d);
                     return r;
                 }
             }
@@ -343,8 +457,10 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
                 if (m > n) {
                     continue;
                 }
+                readAhead(m, d);
                 R r = getByNumber(m);
                 if (r != null) {
+                    searched(m, d);
                     return r;
                 }
             }
@@ -378,10 +494,26 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
                     return v;
                 }
             }
+            // if it is being prefetched, the prefetching thread finds it loaded and discards its own copy
             return load(n, null);
         }
     }
 
+    /**
+     * Gets #N if it is in memory, without loading it otherwise.
+     */
+    protected final @CheckForNull R getIfLoaded(int n) {
+        return unwrap(index.byNumber.get(n));
+    }
+
+    /**
+     * Gets the numbers of all the build records, in the ascending order.
+     * The returned list must not be modified.
+     */
+    protected final SortedIntList getNumbersOnDisk() {
+        return numberOnDisk;
+    }
+
     /**
      * @return the highest recorded build number, or 0 if there are none
      */
@@ -419,6 +551,11 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
             a.sort();
             numberOnDisk = a;
         }
+        BuildIndex bi = buildIndex;
+        if (bi != null) {
+            RunSummary s = getSummaryOf(r);
+            bi.put(s != null ? s : BuildIndex.unknown(n));
+        }
 
         entrySet.clearCache();
 
@@ -449,20 +586,107 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
      *      fully populated map.
      */
     /*package*/ TreeMap<Integer,BuildReference<R>> all() {
-        if (!fullyLoaded) {
+        synchronized (this) {
+            if (!fullyLoaded) {
+                Index copy = copy();
+                for (Integer number : numberOnDisk) {
+                    if (copy.byNumber.containsKey(number))
+                        continue;
+                    // anything still being prefetched gets loaded here too;
+                    // the prefetching thread then finds it loaded and discards its own copy
+                    load(number, copy);
+                }
+                index = copy;
+                fullyLoaded = true;
+            }
+        }
+        return index.byNumber;
+    }
+
+    /**
+     * Starts loading in parallel up to {@link #PREFETCH_SIZE} records that are not yet in memory,
+     * walking the build numbers on disk from {@code n} (inclusive) in the given direction
+     * until {@code limit} (exclusive).
+     */
+    private void prefetch(int n, Direction d, int limit) {
+        int size = PREFETCH_SIZE;
+        if (size <= 0 || dir == null) {
+            return;
+        }
+        SortedIntList numbers = numberOnDisk;
+        int step = d == DESC ? -1 : 1;
+        int idx = d == DESC ? numbers.floor(n) : numbers.ceil(n);
+        synchronized (this) {
+            for (int scheduled = 0; scheduled < size && numbers.isInRange(idx); idx += step) {
+                int m = numbers.get(idx);
+                if (d == DESC ? m <= limit : m >= limit) {
+                    break;
+                }
+                if (isLoaded(m) || !prefetching.add(m)) {
+                    continue;
+                }
+                int gen = generation;
+                try {
+                    Prefetcher.POOL.submit(() -> prefetched(m, gen));
+                } catch (RejectedExecutionException e) {
+                    prefetching.remove(m);
+                    return;
+                }
+                scheduled++;
+            }
+        }
+    }
+
+    /**
+     * Prefetches ahead of {@link #search} when it walks build records one after another,
+     * as {@link RunMap} iterators and {@link #subMap} do.
+     */
+    private void readAhead(int m, Direction d) {
+        if (PREFETCH_SIZE <= 0 || d != lastSearchDirection || isLoaded(m)) {
+            return;
+        }
+        SortedIntList numbers = numberOnDisk;
+        int previous = numbers.find(m) + (d == DESC ? 1 : -1);
+        if (numbers.isInRange(previous) && numbers.get(previous) == lastSearched) {
+            prefetch(m, d, d == DESC ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+        }
+    }
+
+    private void searched(int m, Direction d) {
+        lastSearched = m;
+        lastSearchDirection = d;
+    }
+
+    private void prefetched(int n, int gen) {
+        R r = null;
+        try {
+            r = retrieve(new File(dir, String.valueOf(n)));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + new File(dir, String.valueOf(n)), e);
+        } finally {
             synchronized (this) {
-                if (!fullyLoaded) {
+                // the record may have been deleted or purged meanwhile, or loaded by another thread
+                if (r != null && gen == generation && numberOnDisk.contains(n) && !isLoaded(getNumberOf(r))) {
                     Index copy = copy();
-                    for (Integer number : numberOnDisk) {
-                        if (!copy.byNumber.containsKey(number))
-                            load(number, copy);
-                    }
+                    copy.byNumber.put(getNumberOf(r), createReference(r));
                     index = copy;
-                    fullyLoaded = true;
+                    indexLoaded(r);
                 }
+                prefetching.remove(n);
             }
         }
-        return index.byNumber;
+    }
+
+    /**
+     * Whether #N is in memory or known to be unloadable.
+     */
+    private boolean isLoaded(int n) {
+        Index snapshot = index;
+        if (!snapshot.byNumber.containsKey(n)) {
+            return false;
+        }
+        BuildReference<R> ref = snapshot.byNumber.get(n);
+        return ref == null || ref.get() != null;
     }
 
     /**
@@ -509,6 +733,7 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
 
             if (editInPlace==null)  index = copy;
 
+            indexLoaded(r);
             return r;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Failed to load "+dataDir,e);
@@ -555,6 +780,10 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
         a.removeValue(n);
         numberOnDisk = a;
         this.index = copy;
+        BuildIndex bi = buildIndex;
+        if (bi != null) {
+            bi.remove(n);
+        }
 
         entrySet.clearCache();
 
@@ -572,6 +801,7 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
         }
 
         this.index = index;
+        generation++;
     }
 
     @Override
@@ -590,5 +820,30 @@ public abstract class AbstractLazyLoadRunMap<R> extends AbstractMap<Integer,R> i
 
     private static final SortedMap EMPTY_SORTED_MAP = Collections.unmodifiableSortedMap(new TreeMap());
 
+    /**
+     * Number of build records to read ahead in parallel when a range of builds gets loaded, such as by {@link #subMap}
+     * or by iterating over builds. Zero, the default, disables prefetching.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ int PREFETCH_SIZE = SystemProperties.getInteger(AbstractLazyLoadRunMap.class.getName() + ".prefetchSize", 0);
+
+
+    /**
+     * Bounded pool shared by all maps to parse build records, created on first use.
+     */
+    private static final class Prefetcher {
+        private static final int THREADS = SystemProperties.getInteger(AbstractLazyLoadRunMap.class.getName() + ".prefetchThreads",
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+
+        static final ExecutorService POOL;
+
+        static {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "AbstractLazyLoadRunMap.prefetch"));
+            executor.allowCoreThreadTimeOut(true);
+            POOL = new ContextResettingExecutorService(executor);
+        }
+    }
+
     static final Logger LOGGER = Logger.getLogger(AbstractLazyLoadRunMap.class.getName());
 }
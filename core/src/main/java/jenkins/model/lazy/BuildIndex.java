@@ -0,0 +1,299 @@
+package jenkins.model.lazy;
+
+import hudson.model.Result;
+import hudson.model.Run;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import jenkins.model.RunSummary;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Compact binary index of the build records of one {@link AbstractLazyLoadRunMap},
+ * kept in a file next to its directory.
+ *
+ * <p>
+ * The index lets the map learn which build numbers exist without listing the builds directory,
+ * which is slow on network file systems with many builds, and records the {@link RunSummary} of each build
+ * so that callers can learn about builds without loading them.
+ * The index records the modification time of the builds directory it was written for,
+ * and is only trusted as long as that has not changed, since builds may be added or deleted on disk by other means.
+ * Summaries of builds still on disk are kept even then, as they do not change once a build has completed.
+ *
+ * @see AbstractLazyLoadRunMap#getBuildIndex()
+ */
+@Restricted(NoExternalUse.class)
+public final class BuildIndex {
+
+    @GuardedBy("this")
+    private File dir;
+    @GuardedBy("this")
+    private File file;
+
+    @GuardedBy("this")
+    private final TreeMap<Integer, RunSummary> entries = new TreeMap<>();
+
+    @GuardedBy("this")
+    private boolean saveScheduled;
+
+    /**
+     * Whether the builds directory was not modified since the index was written.
+     */
+    private boolean upToDate;
+
+    private BuildIndex(@Nonnull File dir, @Nonnull File file) {
+        this.dir = dir;
+        this.file = file;
+    }
+
+    /**
+     * Reads the index of the given builds directory.
+     * Unless {@link #isUpToDate}, its numbers then need to be checked against the directory with {@link #retainExactly}.
+     */
+    static @Nonnull BuildIndex load(@Nonnull File dir, @Nonnull File file) {
+        BuildIndex index = new BuildIndex(dir, file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                LOGGER.log(Level.FINE, "Ignoring {0} written in an unknown format", file);
+                return index;
+            }
+            long lastModified = in.readLong();
+            int size = in.readInt();
+            Map<Integer, RunSummary> entries = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                int number = in.readInt();
+                String id = readOptionalUTF(in);
+                long queueId = in.readLong();
+                long timestamp = in.readLong();
+                String result = readOptionalUTF(in);
+                long duration = in.readLong();
+                String displayName = readOptionalUTF(in);
+                String builtOn = readOptionalUTF(in);
+                entries.put(number, new RunSummary(number, id, queueId, timestamp, result != null ? Result.fromString(result) : null, duration,
+                        displayName, builtOn));
+            }
+            synchronized (index) {
+                index.entries.putAll(entries);
+            }
+            index.upToDate = lastModified != 0 && lastModified == dir.lastModified();
+        } catch (NoSuchFileException e) {
+            // not written yet
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read " + file, e);
+        }
+        return index;
+    }
+
+    boolean isUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * Follows the builds directory to its new location, such as after a job rename.
+     */
+    synchronized void relocate(@Nonnull File dir, @Nonnull File file) {
+        this.dir = dir;
+        this.file = file;
+    }
+
+    /**
+     * Makes the index hold exactly the given build numbers, keeping what is known about those already in it.
+     */
+    synchronized void retainExactly(@Nonnull SortedIntList numbers) {
+        TreeMap<Integer, RunSummary> r = new TreeMap<>();
+        for (int n : numbers) {
+            RunSummary s = entries.get(n);
+            r.put(n, s != null ? s : unknown(n));
+        }
+        entries.clear();
+        entries.putAll(r);
+        scheduleSave();
+    }
+
+    /**
+     * @return build numbers in the ascending order
+     */
+    synchronized @Nonnull SortedIntList getNumbers() {
+        SortedIntList r = new SortedIntList(entries.size());
+        for (int n : entries.keySet()) {
+            r.add(n);
+        }
+        return r;
+    }
+
+    /**
+     * Records a new build, or what has become known about an existing build.
+     */
+    synchronized void put(@Nonnull RunSummary s) {
+        RunSummary old = entries.put(s.getNumber(), s);
+        if (old == null || !old.isComplete()) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * A summary knowing nothing but the build number.
+     */
+    static @Nonnull RunSummary unknown(int number) {
+        return new RunSummary(number, null, Run.QUEUE_ID_UNKNOWN, 0, null, 0, null, null);
+    }
+
+    synchronized void remove(int number) {
+        if (entries.remove(number) != null) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Records the summary of a build read some other way, if the index lacks it.
+     */
+    @Restricted(NoExternalUse.class)
+    public synchronized void update(@Nonnull RunSummary s) {
+        RunSummary old = entries.get(s.getNumber());
+        if (old != null && !old.isComplete() && s.isComplete()) {
+            entries.put(s.getNumber(), s);
+            scheduleSave();
+        }
+    }
+
+    /**
+     * @return the summary of a build, which may lack anything but its number; or null if there is no such build
+     */
+    public synchronized @CheckForNull RunSummary get(int number) {
+        return entries.get(number);
+    }
+
+    /**
+     * @return the summary of the build right before the given number, if any
+     */
+    public synchronized @CheckForNull RunSummary lower(int number) {
+        Map.Entry<Integer, RunSummary> e = entries.lowerEntry(number);
+        return e != null ? e.getValue() : null;
+    }
+
+    /**
+     * @return all summaries in the ascending order of build numbers
+     */
+    public synchronized @Nonnull List<RunSummary> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    @GuardedBy("this")
+    private void scheduleSave() {
+        if (!saveScheduled) {
+            saveScheduled = true;
+            Timer.get().schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the index, if the builds directory has settled down.
+     * The recorded modification time could otherwise miss a change made within the resolution of the file system timestamps.
+     */
+    void save() {
+        File file;
+        long lastModified;
+        List<RunSummary> snapshot;
+        synchronized (this) {
+            file = this.file;
+            lastModified = dir.lastModified();
+            if (lastModified == 0) {
+                // nothing on disk to index, e.g. the job was deleted meanwhile
+                saveScheduled = false;
+                return;
+            }
+            if (System.currentTimeMillis() - lastModified < MTIME_RESOLUTION) {
+                Timer.get().schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+                return;
+            }
+            saveScheduled = false;
+            snapshot = new ArrayList<>(entries.values());
+        }
+        Path target = file.toPath();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(lastModified);
+                out.writeInt(snapshot.size());
+                for (RunSummary e : snapshot) {
+                    out.writeInt(e.getNumber());
+                    writeOptionalUTF(out, Integer.toString(e.getNumber()).equals(e.getId()) ? null : e.getId());
+                    out.writeLong(e.getQueueId());
+                    out.writeLong(e.getTimestamp());
+                    writeOptionalUTF(out, e.getResult() != null ? e.getResult().toString() : null);
+                    out.writeLong(e.getDuration());
+                    writeOptionalUTF(out, e.getCustomDisplayName());
+                    writeOptionalUTF(out, e.getBuiltOnStr());
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write " + file, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, null, e);
+                }
+            }
+        }
+    }
+
+    private static @CheckForNull String readOptionalUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeOptionalUTF(DataOutputStream out, @CheckForNull String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    /**
+     * Whether build indices are used at all.
+     * Off by default; once on, index files are kept up to date as builds come and go, and used on the next startup.
+     */
+    static /* Script Console modifiable */ boolean ENABLED = SystemProperties.getBoolean(BuildIndex.class.getName() + ".enabled");
+
+    /**
+     * Milliseconds to wait after a change before writing the index, so that a series of changes causes a single write.
+     */
+    static /* Script Console modifiable */ long SAVE_DELAY = SystemProperties.getLong(BuildIndex.class.getName() + ".saveDelay", TimeUnit.SECONDS.toMillis(5));
+
+    /**
+     * Coarsest resolution of directory modification times we expect from a file system.
+     */
+    private static final long MTIME_RESOLUTION = TimeUnit.SECONDS.toMillis(2);
+
+    private static final int MAGIC = 0x4a424958; // JBIX
+    private static final byte VERSION = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(BuildIndex.class.getName());
+}
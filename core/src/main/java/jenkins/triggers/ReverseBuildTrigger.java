@@ -45,6 +45,8 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
 import hudson.model.listeners.RunListener;
+import hudson.model.queue.ScheduleRequest;
+import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.Tasks;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
@@ -282,6 +284,10 @@ public final class ReverseBuildTrigger extends Trigger<Job> implements Dependenc
                 }
                 triggers = new ArrayList<>(_triggers);
             }
+            // schedule all downstream builds in one go rather than taking the queue lock for each of them;
+            // ParameterizedJobMixIn.scheduleBuild2 would bypass any override in the jobs just the same
+            List<ScheduleRequest> requests = new ArrayList<>();
+            List<String> names = new ArrayList<>();
             for (final ReverseBuildTrigger trigger : triggers) {
                 if (trigger.shouldTrigger(r, listener)) {
                     // Make SpotBugs happy.
@@ -293,13 +299,23 @@ public final class ReverseBuildTrigger extends Trigger<Job> implements Dependenc
                         continue;
                     }
                     String name = ModelHyperlinkNote.encodeTo(trigger.job) + " #" + trigger.job.getNextBuildNumber();
-                    if (ParameterizedJobMixIn.scheduleBuild2(trigger.job, -1, new CauseAction(new Cause.UpstreamCause(r))) != null) {
-                        listener.getLogger().println(hudson.tasks.Messages.BuildTrigger_Triggering(name));
+                    ScheduleRequest request = ParameterizedJobMixIn.scheduleRequest(trigger.job, -1, new CauseAction(new Cause.UpstreamCause(r)));
+                    if (request != null) {
+                        requests.add(request);
+                        names.add(name);
                     } else {
                         listener.getLogger().println(hudson.tasks.Messages.BuildTrigger_InQueue(name));
                     }
                 }
             }
+            List<ScheduleResult> results = Jenkins.get().getQueue().scheduleAll(requests);
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isAccepted()) {
+                    listener.getLogger().println(hudson.tasks.Messages.BuildTrigger_Triggering(names.get(i)));
+                } else {
+                    listener.getLogger().println(hudson.tasks.Messages.BuildTrigger_InQueue(names.get(i)));
+                }
+            }
         }
     }
 
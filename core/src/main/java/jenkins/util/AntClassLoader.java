@@ -49,8 +49,10 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.jar.Attributes;
@@ -96,6 +98,11 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
          */
         private String resourceName;
 
+        /**
+         * The classpath elements which may have the resource.
+         */
+        private final List<File> components;
+
         /**
          * The index of the next classpath element to search.
          */
@@ -116,6 +123,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
          */
         ResourceEnumeration(String name) {
             this.resourceName = name;
+            this.components = componentsFor(name);
             this.pathElementsIndex = 0;
             findNextResource();
         }
@@ -153,9 +161,9 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
          */
         private void findNextResource() {
             URL url = null;
-            while ((pathElementsIndex < pathComponents.size()) && (url == null)) {
+            while ((pathElementsIndex < components.size()) && (url == null)) {
                 try {
-                    File pathComponent = pathComponents.get(pathElementsIndex);
+                    File pathComponent = components.get(pathElementsIndex);
                     url = getResourceURL(pathComponent, this.resourceName);
                     pathElementsIndex++;
                 } catch (BuildException e) {
@@ -226,6 +234,25 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
      */
     private Hashtable jarFiles = new Hashtable();
 
+    /**
+     * Whether to look for a class or resource only in those jars which have entries in its directory.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ boolean INDEX_PACKAGES = SystemProperties.getBoolean(AntClassLoader.class.getName() + ".indexPackages", true);
+
+    /**
+     * Stands for {@link #packageIndex} when the classpath cannot be indexed.
+     */
+    private static final Map<String, List<File>> UNINDEXED = Collections.unmodifiableMap(new HashMap<>());
+
+    /**
+     * For each directory in the jars of {@link #pathComponents}, the jars with entries in it, in classpath order.
+     * Null until needed again after the classpath changes; {@link #UNINDEXED} if it includes directories.
+     */
+    private volatile Map<String, List<File>> packageIndex;
+
+    private final Object packageIndexLock = new Object();
+
     /** Static map of jar file/time to manifest class-path entries */
     private static Map/*<String,String>*/ pathMap = Collections.synchronizedMap(new HashMap());
 
@@ -363,6 +390,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
      */
     public void setClassPath(Path classpath) {
         pathComponents.clear();
+        packageIndex = null;
         if (classpath != null) {
             Path actualClasspath = classpath.concatSystemClasspath("ignore");
             String[] pathElements = actualClasspath.list();
@@ -475,6 +503,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
             return;
         }
         pathComponents.add(file);
+        packageIndex = null;
     }
 
     /**
@@ -490,6 +519,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
     protected void addPathFile(File pathComponent) throws IOException {
         if (!pathComponents.contains(pathComponent)) {
             pathComponents.add(pathComponent);
+            packageIndex = null;
         }
         if (pathComponent.isDirectory()) {
             return;
@@ -743,7 +773,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
     private InputStream loadResource(String name) {
         // we need to search the components of the path to see if we can
         // find the class we want.
-        for (File pathComponent : pathComponents) {
+        for (File pathComponent : componentsFor(name)) {
             InputStream stream = getResourceStream(pathComponent, name);
             if (stream != null) {
                 return stream;
@@ -886,7 +916,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         } else {
             // try and load from this loader if the parent either didn't find
             // it or wasn't consulted.
-            url = getUrl(pathComponents, name);
+            url = getUrl(componentsFor(name), name);
         }
         if (url == null && !isParentFirst(name)) {
             // this loader was first but it didn't find it - try the parent
@@ -925,6 +955,93 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         return url;
     }
 
+    /**
+     * Finds the classpath elements which may contain a class or resource,
+     * looking it up by directory rather than going through each jar in turn.
+     *
+     * @param name The name of the resource, such as {@code org/example/Plugin.class}.
+     * @return the candidates, in classpath order
+     */
+    @Restricted(NoExternalUse.class)
+    protected List<File> componentsFor(String name) {
+        Map<String, List<File>> index = getPackageIndex();
+        if (index == UNINDEXED) {
+            return pathComponents;
+        }
+        List<File> components = index.get(directoryOf(name));
+        return components != null ? components : Collections.emptyList();
+    }
+
+    /**
+     * Lists the directories which the jars of this loader have entries in.
+     *
+     * @return null if that is not known, as when the classpath includes directories
+     */
+    @Restricted(NoExternalUse.class)
+    @CheckForNull
+    public Set<String> getIndexedPackages() {
+        Map<String, List<File>> index = getPackageIndex();
+        return index == UNINDEXED ? null : Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * The directory of a resource, as {@code org/example} for {@code org/example/Plugin.class}
+     * and also for {@code org/example/Plugin/}, which a jar may have an entry for.
+     */
+    @Restricted(NoExternalUse.class)
+    public static String directoryOf(String name) {
+        int end = name.endsWith("/") ? name.length() - 1 : name.length();
+        int slash = name.lastIndexOf('/', end - 1);
+        return slash < 0 ? "" : name.substring(0, slash);
+    }
+
+    private Map<String, List<File>> getPackageIndex() {
+        Map<String, List<File>> index = packageIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (packageIndexLock) {
+            index = packageIndex;
+            if (index == null) {
+                index = buildPackageIndex();
+                packageIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private Map<String, List<File>> buildPackageIndex() {
+        if (!INDEX_PACKAGES) {
+            return UNINDEXED;
+        }
+        Map<String, List<File>> index = new HashMap<>();
+        for (File pathComponent : new ArrayList<>(pathComponents)) {
+            if (!pathComponent.isFile()) {
+                return UNINDEXED;
+            }
+            try {
+                JarFile jarFile = (JarFile) jarFiles.get(pathComponent);
+                if (jarFile == null) {
+                    jarFile = new JarFile(pathComponent);
+                    jarFiles.put(pathComponent, jarFile);
+                    // potential race-condition
+                    jarFile = (JarFile) jarFiles.get(pathComponent);
+                }
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    List<File> components = index.computeIfAbsent(directoryOf(entries.nextElement().getName()), k -> new ArrayList<>(1));
+                    if (components.isEmpty() || components.get(components.size() - 1) != pathComponent) {
+                        components.add(pathComponent);
+                    }
+                }
+            } catch (IOException e) {
+                log("Cannot index " + pathComponent + ": " + e, Project.MSG_VERBOSE);
+                return UNINDEXED;
+            }
+        }
+        return index;
+    }
+
     /**
      * Finds all the resources with the given name. A resource is some
      * data (images, audio, text, etc) that can be accessed by class
@@ -1369,7 +1486,7 @@ public class AntClassLoader extends ClassLoader implements SubBuildListener {
         // we need to search the components of the path to see if
         // we can find the class we want.
         String classFilename = getClassFilename(name);
-        for (File pathComponent : pathComponents) {
+        for (File pathComponent : componentsFor(classFilename)) {
             try (final InputStream stream = getResourceStream(pathComponent, classFilename)) {
                 if (stream != null) {
                     log("Loaded from " + pathComponent + " "
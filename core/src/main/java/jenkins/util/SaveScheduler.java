@@ -0,0 +1,286 @@
+package jenkins.util;
+
+import hudson.BulkChange;
+import hudson.init.InitMilestone;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.util.ClassLoaderSanityThreadFactory;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import jenkins.model.Jenkins;
+import jenkins.security.ImpersonatingScheduledExecutorService;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Optionally defers {@link Saveable#save}, so that an object saved many times in a short while is written once.
+ *
+ * <p>
+ * Implementations opt in by checking {@link #defer} right after {@link BulkChange#contains}:
+ *
+ * <pre>
+ * public synchronized void save() throws IOException {
+ *     if (BulkChange.contains(this) || SaveScheduler.defer(this, getRootDir())) {
+ *         return;
+ *     }
+ *     getConfigFile().write(this);
+ *     SaveableListener.fireOnChange(this, getConfigFile());
+ * }
+ * </pre>
+ *
+ * The object is then saved again from a background thread up to {@link #DELAY} milliseconds later,
+ * and this time actually written, so {@link SaveableListener}s are notified as usual (once per write rather than once per call).
+ * Since failures can no longer be reported to the caller, they are logged.
+ *
+ * <p>
+ * Saves are only deferred when {@link #ENABLED}, and while Jenkins is fully started,
+ * so nothing is deferred while loading, reloading or shutting down.
+ * Pending saves are written before {@link Jenkins#reload} and when Jenkins stops.
+ * Call {@link #cancel(File)} before deleting the files of an object, so that saves pending for it and for whatever else is kept under it are dropped,
+ * and {@link #flush(Saveable)} before reading them back.
+ * A deferred write which already started when its object gets cancelled is dropped as well,
+ * provided that {@link Saveable#save} and the deletion synchronize on the object, as in the example,
+ * and so is one whose location existed when the save was deferred but does not anymore.
+ *
+ * @since TODO
+ */
+public final class SaveScheduler {
+
+    /**
+     * Whether saves get deferred at all.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ boolean ENABLED = SystemProperties.getBoolean(SaveScheduler.class.getName() + ".enabled");
+
+    /**
+     * How long to wait for further saves of an object before writing it, in milliseconds.
+     */
+    @Restricted(NoExternalUse.class)
+    public static /* Script Console modifiable */ long DELAY = SystemProperties.getLong(SaveScheduler.class.getName() + ".delay", 200L);
+
+    /**
+     * How many files may be written at the same time.
+     */
+    private static final int THREADS = SystemProperties.getInteger(SaveScheduler.class.getName() + ".threads", 4);
+
+    private static final class Pending {
+        final Future<?> future;
+        /** Where the object is kept, if known. */
+        final @CheckForNull File location;
+        /** Whether {@link #location} existed when the save was deferred, so that it not existing anymore means the object got deleted. */
+        final boolean existed;
+
+        Pending(Future<?> future, @CheckForNull File location) {
+            this.future = future;
+            this.location = location;
+            this.existed = location != null && location.isDirectory();
+        }
+    }
+
+    @GuardedBy("pending")
+    private static final Map<Saveable, Pending> pending = new IdentityHashMap<>();
+
+    /**
+     * Objects whose deferred write has started.
+     */
+    @GuardedBy("pending")
+    private static final Map<Saveable, Pending> writing = new IdentityHashMap<>();
+
+    /**
+     * Objects whose deferred writes are to be dropped even if already started, until they get saved again.
+     */
+    @GuardedBy("pending")
+    private static final Set<Saveable> cancelled = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * The object being saved for real by the current thread.
+     */
+    private static final ThreadLocal<Saveable> saving = new ThreadLocal<>();
+
+    /**
+     * Initialized lazily since it may be created and shut down many times when running the test suite, like {@link Timer}.
+     */
+    @GuardedBy("pending")
+    private static ScheduledExecutorService executorService;
+
+    /**
+     * Checks whether a save should be deferred.
+     * @param s the object being saved
+     * @return true if it will be saved later, in which case {@link Saveable#save} should return without writing anything;
+     *         false if it should be written right away
+     */
+    public static boolean defer(@Nonnull Saveable s) {
+        return defer(s, null);
+    }
+
+    /**
+     * Checks whether a save should be deferred.
+     * @param s the object being saved
+     * @param location the directory in which the object is kept, so that {@link #cancel(File)} finds it
+     * @return true if it will be saved later, or if it is the deferred write of an object which got {@linkplain #cancel cancelled} meanwhile,
+     *         in which case {@link Saveable#save} should return without writing anything;
+     *         false if it should be written right away
+     */
+    public static boolean defer(@Nonnull Saveable s, @CheckForNull File location) {
+        if (saving.get() == s) {
+            // the deferred write itself, which the deletion may have been waiting on
+            Pending p;
+            synchronized (pending) {
+                if (cancelled.contains(s)) {
+                    return true;
+                }
+                p = writing.get(s);
+            }
+            // deleted without being cancelled, for example along with a parent kept elsewhere
+            return p != null && p.existed && !p.location.isDirectory();
+        }
+        if (!ENABLED) {
+            return false;
+        }
+        Jenkins j = Jenkins.getInstanceOrNull();
+        if (j == null || j.isTerminating() || j.getInitLevel() != InitMilestone.COMPLETED) {
+            return false;
+        }
+        synchronized (pending) {
+            cancelled.remove(s);
+            if (!pending.containsKey(s)) {
+                if (executorService == null) {
+                    executorService = new ImpersonatingScheduledExecutorService(new ErrorLoggingScheduledThreadPoolExecutor(THREADS,
+                            new NamingThreadFactory(new ClassLoaderSanityThreadFactory(new DaemonThreadFactory()), "SaveScheduler")), ACL.SYSTEM);
+                }
+                pending.put(s, new Pending(executorService.schedule(() -> write(s), DELAY, TimeUnit.MILLISECONDS), location));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes an object now if a save of it is pending.
+     */
+    public static void flush(@Nonnull Saveable s) {
+        write(s);
+    }
+
+    /**
+     * Writes all objects whose save is pending, from the calling thread.
+     */
+    public static void flush() {
+        List<Saveable> toWrite;
+        synchronized (pending) {
+            toWrite = new ArrayList<>(pending.keySet());
+        }
+        for (Saveable s : toWrite) {
+            write(s);
+        }
+    }
+
+    /**
+     * Forgets about a pending save, for example because the object is being deleted.
+     */
+    public static void cancel(@Nonnull Saveable s) {
+        Pending p;
+        synchronized (pending) {
+            p = pending.remove(s);
+            cancelled.add(s);
+        }
+        if (p != null) {
+            p.future.cancel(false);
+        }
+    }
+
+    /**
+     * Forgets about pending saves of everything kept in a directory, for example because it is being deleted.
+     * Only applies to objects whose location was given to {@link #defer(Saveable, File)}.
+     * @param root such as the root directory of an item, which includes those of its builds and child items
+     */
+    public static void cancel(@Nonnull File root) {
+        Path r = root.toPath().toAbsolutePath().normalize();
+        List<Future<?>> toCancel = new ArrayList<>();
+        synchronized (pending) {
+            for (Iterator<Map.Entry<Saveable, Pending>> it = pending.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Saveable, Pending> e = it.next();
+                if (isIn(e.getValue().location, r)) {
+                    it.remove();
+                    cancelled.add(e.getKey());
+                    toCancel.add(e.getValue().future);
+                }
+            }
+            for (Map.Entry<Saveable, Pending> e : writing.entrySet()) {
+                if (isIn(e.getValue().location, r)) {
+                    cancelled.add(e.getKey());
+                }
+            }
+        }
+        for (Future<?> f : toCancel) {
+            f.cancel(false);
+        }
+    }
+
+    private static boolean isIn(@CheckForNull File location, Path root) {
+        return location != null && location.toPath().toAbsolutePath().normalize().startsWith(root);
+    }
+
+    /**
+     * Writes everything pending and stops the background threads.
+     */
+    @Restricted(NoExternalUse.class)
+    public static void shutdown() {
+        flush();
+        synchronized (pending) {
+            if (executorService != null) {
+                executorService.shutdown();
+                executorService = null;
+            }
+        }
+    }
+
+    private static void write(Saveable s) {
+        Pending p;
+        synchronized (pending) {
+            p = pending.remove(s);
+            if (p == null) {
+                // already written, or cancelled
+                return;
+            }
+            writing.put(s, p);
+        }
+        // in case this is a flush rather than the scheduled task
+        p.future.cancel(false);
+        Saveable previous = saving.get();
+        saving.set(s);
+        try {
+            s.save();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to save " + s, e);
+        } finally {
+            saving.set(previous);
+            synchronized (pending) {
+                writing.remove(s);
+            }
+        }
+    }
+
+    private SaveScheduler() {}
+
+    private static final Logger LOGGER = Logger.getLogger(SaveScheduler.class.getName());
+}
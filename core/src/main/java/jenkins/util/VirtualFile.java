@@ -384,6 +384,15 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
         return null;
     }
 
+    /**
+     * Gets the file on the local disk this stands for, if any, so that it can be read by more efficient means than {@link #open}.
+     * @return null unless this is a file on the master which {@link #open} would read
+     */
+    @Restricted(NoExternalUse.class)
+    public @CheckForNull File toLocalFile() throws IOException {
+        return null;
+    }
+
     /**
      * Determine if the implementation supports the {@link #isDescendant(String)} method
      *
@@ -531,6 +540,9 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
                 }
                 return f.canRead();
             }
+            @Override public File toLocalFile() throws IOException {
+                return isIllegalSymlink() ? null : f;
+            }
             @Override public InputStream open() throws IOException {
                 if (isIllegalSymlink()) {
                     throw new FileNotFoundException(f.getPath());
@@ -759,6 +771,9 @@ public abstract class VirtualFile implements Comparable<VirtualFile>, Serializab
                     throw new IOException(x);
                 }
             }
+            @Override public File toLocalFile() throws IOException {
+                return f.isRemote() ? null : new File(f.getRemote());
+            }
             @Override public InputStream open() throws IOException {
                 try {
                     return f.read();
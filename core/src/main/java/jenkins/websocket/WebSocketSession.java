@@ -147,4 +147,15 @@ public abstract class WebSocketSession {
         }
     }
 
+    /**
+     * Closes the connection with a given status, such as 1011 if something went wrong on this side.
+     */
+    protected final void close(int statusCode, String reason) {
+        try {
+            session.getClass().getMethod("close", int.class, String.class).invoke(session, statusCode, reason);
+        } catch (Exception x) {
+            throw new RuntimeException(x);
+        }
+    }
+
 }
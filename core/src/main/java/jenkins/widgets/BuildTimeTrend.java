@@ -26,9 +26,11 @@ package jenkins.widgets;
 
 import hudson.model.AbstractBuild;
 import hudson.model.BallColor;
+import hudson.model.Job;
 import hudson.model.Node;
 import hudson.model.Run;
 import jenkins.model.Jenkins;
+import jenkins.model.RunSummary;
 import net.sf.json.JSONObject;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.DoNotUse;
@@ -36,6 +38,59 @@ import org.kohsuke.accmod.restrictions.DoNotUse;
 @Restricted(DoNotUse.class) // only for buildTimeTrend.jelly
 public class BuildTimeTrend extends RunListProgressiveRendering {
 
+    private Job<?,?> job;
+
+    /**
+     * Lists the builds of this job from their {@link RunSummary}, rather than from {@link #setBuilds},
+     * unless {@linkplain RunSummary#canStandFor those cannot stand for them}.
+     */
+    public void setJob(Job<?,?> job) {
+        if (RunSummary.canStandFor(job)) {
+            this.job = job;
+        } else {
+            setBuilds(job.getBuilds());
+        }
+    }
+
+    @Override protected void compute() throws Exception {
+        if (job == null) {
+            super.compute();
+            return;
+        }
+        for (RunSummary summary : job.getBuildSummaries()) {
+            if (canceled()) {
+                return;
+            }
+            JSONObject element = new JSONObject();
+            if (summary.isComplete()) {
+                calculate(summary, element);
+            } else {
+                // still running, or an odd record; only the build itself can tell
+                Run<?,?> build = job.getBuildByNumber(summary.getNumber());
+                if (build == null) {
+                    continue;
+                }
+                calculate(build, element);
+            }
+            add(element);
+        }
+    }
+
+    private void calculate(RunSummary summary, JSONObject element) {
+        BallColor iconColor = summary.getIconColor();
+        element.put("iconColorOrdinal", iconColor.ordinal());
+        element.put("iconColorDescription", iconColor.getDescription());
+        element.put("buildStatusUrl", iconColor.getImage());
+        element.put("number", summary.getNumber());
+        element.put("displayName", summary.getDisplayName());
+        element.put("duration", summary.getDuration());
+        element.put("durationString", summary.getDurationString());
+        String ns = summary.getBuiltOnStr();
+        if (ns != null) {
+            calculateBuiltOn(ns.isEmpty() ? Jenkins.get() : Jenkins.get().getNode(ns), ns, element);
+        }
+    }
+
     @Override protected void calculate(Run<?,?> build, JSONObject element) {
         BallColor iconColor = build.getIconColor();
         element.put("iconColorOrdinal", iconColor.ordinal());
@@ -47,18 +102,20 @@ public class BuildTimeTrend extends RunListProgressiveRendering {
         element.put("durationString", build.getDurationString());
         if (build instanceof AbstractBuild) {
             AbstractBuild<?,?> b = (AbstractBuild) build;
-            Node n = b.getBuiltOn();
-            if (n == null) {
-                String ns = b.getBuiltOnStr();
-                if (ns != null && !ns.isEmpty()) {
-                    element.put("builtOnStr", ns);
-                }
-            } else if (n != Jenkins.get()) {
-                element.put("builtOn", n.getNodeName());
-                element.put("builtOnStr", n.getDisplayName());
-            } else {
-                element.put("builtOnStr", hudson.model.Messages.Hudson_Computer_DisplayName());
+            calculateBuiltOn(b.getBuiltOn(), b.getBuiltOnStr(), element);
+        }
+    }
+
+    private static void calculateBuiltOn(Node n, String ns, JSONObject element) {
+        if (n == null) {
+            if (ns != null && !ns.isEmpty()) {
+                element.put("builtOnStr", ns);
             }
+        } else if (n != Jenkins.get()) {
+            element.put("builtOn", n.getNodeName());
+            element.put("builtOnStr", n.getDisplayName());
+        } else {
+            element.put("builtOnStr", hudson.model.Messages.Hudson_Computer_DisplayName());
         }
     }
 
@@ -49,6 +49,7 @@ public abstract class RunListProgressiveRendering extends ProgressiveRendering {
     private static final double MAX_LIKELY_RUNS = 20;
     private final List<JSONObject> results = new ArrayList<>();
     private Iterable<? extends Run<?,?>> builds;
+    private double decay = 1;
 
     /** Jelly cannot call a constructor with arguments. */
     public void setBuilds(Iterable<? extends Run<?,?>> builds) {
@@ -56,19 +57,25 @@ public abstract class RunListProgressiveRendering extends ProgressiveRendering {
     }
 
     @Override protected void compute() throws Exception {
-        double decay = 1;
         for (Run<?,?> build : builds) {
             if (canceled()) {
                 return;
             }
             JSONObject element = new JSONObject();
             calculate(build, element);
-            synchronized (this) {
-                results.add(element);
-            }
-            decay *= (1 - 1 / MAX_LIKELY_RUNS);
-            progress(1 - decay);
+            add(element);
+        }
+    }
+
+    /**
+     * Sends one more element to the browser.
+     */
+    protected final void add(JSONObject element) {
+        synchronized (this) {
+            results.add(element);
         }
+        decay *= (1 - 1 / MAX_LIKELY_RUNS);
+        progress(1 - decay);
     }
 
     @Override protected synchronized JSON data() {
@@ -0,0 +1,79 @@
+package hudson;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class PluginClassIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File jar(String name, String... entries) throws Exception {
+        File jar = new File(tmp.getRoot(), name);
+        try (OutputStream os = Files.newOutputStream(jar.toPath()); JarOutputStream out = new JarOutputStream(os)) {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    public void index() throws Exception {
+        List<File> paths = Arrays.asList(
+                jar("plugin.jar", "org/example/", "org/example/Plugin.class", "org/example/Plugin/config.jelly", "META-INF/annotations/hudson.Extension"),
+                jar("lib.jar", "com/library/Util.class"));
+        PluginClassIndex index = PluginClassIndex.load(tmp.getRoot(), paths);
+        assertNotNull(index);
+        assertTrue(index.mayContainClass("org.example.Plugin"));
+        assertTrue(index.mayContainClass("com.library.Util"));
+        assertTrue(index.mayContain("org/example/Plugin/config.jelly"));
+        assertTrue(index.mayContain("META-INF/annotations/hudson.Extension"));
+        assertTrue(index.mayContain("org/example"));
+        assertFalse(index.mayContainClass("org.example.Other"));
+        assertFalse(index.mayContain("org/example/Plugin/index.jelly"));
+        assertFalse(index.mayContain("META-INF/annotations/hudson.init.Initializer"));
+        assertEquals(Arrays.asList("META-INF/annotations", "com/library", "org", "org/example", "org/example/Plugin"), index.getPackages());
+
+        File file = new File(tmp.getRoot(), PluginClassIndex.FILE_NAME);
+        assertTrue(file.isFile());
+        // read back rather than built again
+        long written = file.lastModified();
+        file.setLastModified(written - 10000);
+        PluginClassIndex loaded = PluginClassIndex.load(tmp.getRoot(), paths);
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.getPackages(), loaded.getPackages());
+        assertEquals(written - 10000, file.lastModified());
+
+        // built again once a jar changes
+        paths = Arrays.asList(paths.get(0), jar("lib.jar", "com/library/Util.class", "com/library/Other.class"));
+        paths.get(1).setLastModified(written + 10000);
+        loaded = PluginClassIndex.load(tmp.getRoot(), paths);
+        assertTrue(loaded.mayContainClass("com.library.Other"));
+
+        // or when the index got corrupted
+        byte[] data = Files.readAllBytes(file.toPath());
+        data[data.length - 12] ^= 1;
+        Files.write(file.toPath(), data);
+        loaded = PluginClassIndex.load(tmp.getRoot(), paths);
+        assertTrue(loaded.mayContainClass("com.library.Other"));
+        assertTrue(loaded.mayContainClass("org.example.Plugin"));
+    }
+
+    @Test
+    public void classesDirectory() throws Exception {
+        assertNull(PluginClassIndex.load(tmp.getRoot(), Collections.singletonList(tmp.newFolder("classes"))));
+    }
+}
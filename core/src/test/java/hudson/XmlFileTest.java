@@ -5,17 +5,27 @@ import hudson.util.XStream2;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import jenkins.model.Jenkins;
+import org.apache.commons.io.FileUtils;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xml.sax.SAXParseException;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 public class XmlFileTest {
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void canReadXml1_0Test() throws IOException {
         URL configUrl = getClass().getResource("/hudson/config_1_0.xml");
@@ -75,4 +85,49 @@ public class XmlFileTest {
             assertThat(n.getLabelString(), is("LESS_TERMCAP_mb=\u001B[01;31m"));
         }
     }
+
+    @Test
+    public void streamingRead() throws IOException {
+        XmlFile.STREAMING = true;
+        try {
+            for (String config : new String[] {"config_1_0.xml", "config_1_1.xml", "config_1_1_with_special_chars.xml", "config_1_0_with_special_chars.xml"}) {
+                XStream2 xs = new XStream2();
+                xs.alias("hudson", Jenkins.class);
+                Node n = (Node) new XmlFile(xs, new File(getClass().getResource("/hudson/" + config).getFile())).read();
+                assertThat(config, n.getNumExecutors(), is(2));
+                assertThat(config, n.getMode().toString(), is("NORMAL"));
+            }
+        } finally {
+            XmlFile.STREAMING = false;
+        }
+    }
+
+    public static class Data {
+        String name;
+        List<String> values = new ArrayList<>();
+    }
+
+    @Test
+    public void writeLargeFile() throws Exception {
+        Data d = new Data();
+        d.name = "large \u00e9";
+        for (int i = 0; i < 10000; i++) {
+            d.values.add("value #" + i);
+        }
+        XStream2 xs = new XStream2();
+        File f = tmp.newFile();
+        new XmlFile(xs, f).write(d);
+        assertEquals("<?xml version='1.1' encoding='UTF-8'?>\n" + xs.toXML(d), FileUtils.readFileToString(f, StandardCharsets.UTF_8));
+        XmlFile.STREAMING = true;
+        try {
+            Data read = (Data) new XmlFile(xs, f).read();
+            assertEquals(d.name, read.name);
+            assertEquals(d.values, read.values);
+            read = new Data();
+            new XmlFile(xs, f).unmarshal(read);
+            assertEquals(d.values, read.values);
+        } finally {
+            XmlFile.STREAMING = false;
+        }
+    }
 }
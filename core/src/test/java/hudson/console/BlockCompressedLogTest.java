@@ -0,0 +1,150 @@
+package hudson.console;
+
+import hudson.Functions;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class BlockCompressedLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private int blockSize;
+
+    @Before
+    public void smallBlocks() {
+        blockSize = BlockCompressedLog.BLOCK_SIZE;
+        BlockCompressedLog.BLOCK_SIZE = 1024;
+    }
+
+    @After
+    public void restoreBlocks() {
+        BlockCompressedLog.BLOCK_SIZE = blockSize;
+    }
+
+    private static byte[] content(int lines) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            b.append("line ").append(i).append(" of some build output\n");
+        }
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(File log, long offset) throws Exception {
+        try (InputStream in = BlockCompressedLog.open(log, offset)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] tail(byte[] content, long offset) {
+        return Arrays.copyOfRange(content, (int) Math.min(offset, content.length), content.length);
+    }
+
+    @Test
+    public void randomAccess() throws Exception {
+        byte[] content = content(1000);
+        File log = new File(tmp.getRoot(), BlockCompressedLog.FILE_NAME);
+        try (OutputStream out = BlockCompressedLog.write(log)) {
+            Random r = new Random(0);
+            for (int i = 0; i < content.length; ) {
+                int n = Math.min(r.nextInt(3000), content.length - i);
+                out.write(content, i, n);
+                i += n;
+            }
+        }
+        assertTrue(log.length() < content.length / 2);
+        assertEquals(content.length, BlockCompressedLog.length(log));
+        Random r = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            long offset = r.nextInt(content.length);
+            assertArrayEquals(tail(content, offset), read(log, offset));
+        }
+        assertArrayEquals(content, read(log, 0));
+        assertArrayEquals(tail(content, 1024), read(log, 1024));
+        assertArrayEquals(new byte[0], read(log, content.length));
+        assertArrayEquals(new byte[0], read(log, content.length + 100));
+    }
+
+    @Test
+    public void partialBlocks() throws Exception {
+        File log = new File(tmp.getRoot(), BlockCompressedLog.FILE_NAME);
+        try (OutputStream out = BlockCompressedLog.write(log)) {
+            out.write("first\n".getBytes(StandardCharsets.UTF_8));
+            long end = System.currentTimeMillis() + 10000;
+            // written once the output is idle
+            while (BlockCompressedLog.length(log) == 0) {
+                assertTrue("flushed", System.currentTimeMillis() < end);
+                Thread.sleep(100);
+            }
+            assertEquals("first\n", new String(read(log, 0), StandardCharsets.UTF_8));
+            out.write("second\n".getBytes(StandardCharsets.UTF_8));
+        }
+        // appending, as a resumed build does
+        try (OutputStream out = BlockCompressedLog.write(log)) {
+            out.write("third\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("first\nsecond\nthird\n", new String(read(log, 0), StandardCharsets.UTF_8));
+        assertEquals("cond\nthird\n", new String(read(log, 8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void withoutOffsets() throws Exception {
+        byte[] content = content(200);
+        File log = new File(tmp.getRoot(), BlockCompressedLog.FILE_NAME);
+        try (OutputStream out = BlockCompressedLog.write(log)) {
+            out.write(content);
+        }
+        File offsets = new File(tmp.getRoot(), BlockCompressedLog.FILE_NAME + "-offsets");
+        // offsets lagging behind
+        byte[] entries = Files.readAllBytes(offsets.toPath());
+        Files.write(offsets.toPath(), Arrays.copyOf(entries, 2 * Long.BYTES + 3));
+        assertArrayEquals(tail(content, 3000), read(log, 3000));
+        // or missing altogether, with a block cut short
+        Files.delete(offsets.toPath());
+        byte[] blocks = Files.readAllBytes(log.toPath());
+        Files.write(log.toPath(), Arrays.copyOf(blocks, blocks.length - 1));
+        long length = BlockCompressedLog.length(log);
+        assertTrue(length < content.length);
+        assertEquals(0, length % BlockCompressedLog.BLOCK_SIZE);
+        assertArrayEquals(Arrays.copyOfRange(content, 100, (int) length), read(log, 100));
+    }
+
+    @Test
+    public void compress() throws Exception {
+        int stride = LineIndex.STRIDE;
+        LineIndex.STRIDE = 10;
+        try {
+            byte[] content = content(100);
+            File dir = tmp.newFolder();
+            File plain = new File(dir, "log");
+            Files.write(plain.toPath(), content);
+            File log = BlockCompressedLog.compress(plain);
+            assertFalse(plain.exists());
+            assertEquals(new File(dir, BlockCompressedLog.FILE_NAME), log);
+            assertArrayEquals(content, read(log, 0));
+            LineIndex index = LineIndex.load(log);
+            assertNotNull(index);
+            assertEquals(100, index.countLines());
+            try (InputStream in = index.openLines(42, 44)) {
+                assertEquals("line 42 of some build output\nline 43 of some build output\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+            }
+            assertEquals(Arrays.asList("[...truncated " + Functions.humanReadableByteSize(index.offsetOf(98) - 2) + "...]", "line 99 of some build output"),
+                    index.tail(2, StandardCharsets.UTF_8));
+        } finally {
+            LineIndex.STRIDE = stride;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package hudson.console;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class LineIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private int stride;
+
+    @Before
+    public void smallStride() {
+        stride = LineIndex.STRIDE;
+        LineIndex.STRIDE = 3;
+    }
+
+    @After
+    public void restoreStride() {
+        LineIndex.STRIDE = stride;
+    }
+
+    private File write(String content) throws Exception {
+        File log = new File(tmp.newFolder(), "log");
+        try (OutputStream out = LineIndex.record(log, Files.newOutputStream(log.toPath()))) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            // in pieces which do not line up with lines
+            for (int i = 0; i < bytes.length; i += 5) {
+                if (i % 2 == 0) {
+                    out.write(bytes, i, Math.min(5, bytes.length - i));
+                } else {
+                    for (int j = i; j < Math.min(i + 5, bytes.length); j++) {
+                        out.write(bytes[j]);
+                    }
+                }
+            }
+        }
+        return log;
+    }
+
+    private static String read(InputStream in) throws Exception {
+        try (InputStream i = in) {
+            return IOUtils.toString(i, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void offsets() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        File log = write(content.toString());
+        LineIndex index = LineIndex.load(log);
+        assertNotNull(index);
+        assertEquals(20, index.countLines());
+        assertEquals(0, index.offsetOf(0));
+        assertEquals("line 0\n".length(), index.offsetOf(1));
+        assertEquals(content.indexOf("line 7\n"), index.offsetOf(7));
+        assertEquals(content.indexOf("line 9\n"), index.offsetOf(9));
+        assertEquals(content.length(), index.offsetOf(20));
+        assertEquals(content.length(), index.offsetOf(100));
+
+        assertEquals("line 5\nline 6\nline 7\n", read(index.openLines(5, 8)));
+        assertEquals("line 18\nline 19\n", read(index.openLines(18, Long.MAX_VALUE)));
+        assertEquals("", read(index.openLines(30, 40)));
+        assertEquals("line 5\nline 6\nline 7\n", read(LineIndex.lines(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)), 5, 8)));
+    }
+
+    @Test
+    public void tail() throws Exception {
+        LineIndex index = LineIndex.load(write("one\r\ntwo\nthree\nfour\nfive"));
+        assertEquals(5, index.countLines());
+        assertEquals(Arrays.asList("one", "two", "three", "four", "five"), index.tail(5, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("one", "two", "three", "four", "five"), index.tail(10, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("[...truncated 7 B...]", "four", "five"), index.tail(3, StandardCharsets.UTF_8));
+
+        index = LineIndex.load(write("one\ntwo\n"));
+        assertEquals(2, index.countLines());
+        assertEquals(Arrays.asList("one", "two"), index.tail(2, StandardCharsets.UTF_8));
+
+        index = LineIndex.load(write(""));
+        assertEquals(1, index.countLines());
+        assertEquals(Collections.singletonList(""), index.tail(2, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void notIndexedWhenAppending() throws Exception {
+        File log = tmp.newFile("log");
+        Files.write(log.toPath(), "earlier\n".getBytes(StandardCharsets.UTF_8));
+        OutputStream out = Files.newOutputStream(log.toPath(), StandardOpenOption.APPEND);
+        assertSame(out, LineIndex.record(log, out));
+        out.close();
+        assertNull(LineIndex.load(log));
+    }
+}
@@ -0,0 +1,46 @@
+package hudson.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineTransformationOutputStreamTest {
+
+    @Test
+    public void lines() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LineTransformationOutputStream lines = new LineTransformationOutputStream.Delegating(out) {
+            @Override
+            protected void eol(byte[] b, int len) throws IOException {
+                out.write('>');
+                out.write(b, 0, len);
+            }
+        }) {
+            lines.write("one\ntwo\nthr".getBytes(StandardCharsets.UTF_8));
+            lines.write("ee\nfour".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(">one\n>two\n>three\n>four", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void overriddenWriteByte() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LineTransformationOutputStream upper = new LineTransformationOutputStream.Delegating(out) {
+            @Override
+            public void write(int b) throws IOException {
+                super.write(Character.toUpperCase(b));
+            }
+
+            @Override
+            protected void eol(byte[] b, int len) throws IOException {
+                out.write(b, 0, len);
+            }
+        }) {
+            upper.write("one\ntwo".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("ONE\nTWO", out.toString("UTF-8"));
+    }
+}
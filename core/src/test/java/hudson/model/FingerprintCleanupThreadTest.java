@@ -26,6 +26,8 @@ package hudson.model;
 import org.junit.Test;
 
 import javax.annotation.Nonnull;
+import jenkins.fingerprints.FileFingerprintStorage;
+import jenkins.fingerprints.FingerprintStorage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -139,6 +141,16 @@ public class FingerprintCleanupThreadTest {
             return tempDirectory.toFile();
         }
 
+        @Override
+        protected FingerprintStorage getStorage() {
+            return new FileFingerprintStorage() {
+                @Override
+                public void iterateAndCleanupFingerprints(@Nonnull TaskListener taskListener) {
+                    cleanUpFiles(taskListener);
+                }
+            };
+        }
+
         @Override
         protected Fingerprint loadFingerprint(File fingerprintFile) throws IOException {
             return fingerprintToLoad;
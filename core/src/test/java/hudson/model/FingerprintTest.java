@@ -25,8 +25,12 @@ package hudson.model;
 
 import hudson.Util;
 import hudson.model.Fingerprint.RangeSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import jenkins.model.FingerprintFacet;
+import org.apache.commons.io.FileUtils;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -251,6 +255,26 @@ public class FingerprintTest {
         TestFacet facet = (TestFacet) f2.facets.get(0);
         assertEquals(f2, facet.getFingerprint());
     }
+
+    @Test public void streamRoundTrip() throws Exception {
+        Fingerprint f = new Fingerprint(new Fingerprint.BuildPtr("foo", 13), "stuff&more.jar", SOME_MD5);
+        f.addWithoutSaving("some", 1);
+        f.addWithoutSaving("other", 6);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        f.writeTo(out);
+        File xml = new File(tmp.getRoot(), "fp.xml");
+        f.save(xml);
+        assertEquals("same as the file", FileUtils.readFileToString(xml, StandardCharsets.UTF_8), out.toString("UTF-8"));
+        Fingerprint f2 = Fingerprint.read(new ByteArrayInputStream(out.toByteArray()), "test");
+        assertEquals(f.toString(), f2.toString());
+        f.facets.setOwner(Saveable.NOOP);
+        f.facets.add(new TestFacet(f, 123, "val"));
+        out.reset();
+        f.writeTo(out);
+        f2 = Fingerprint.read(new ByteArrayInputStream(out.toByteArray()), "test");
+        assertEquals(f.toString(), f2.toString());
+        assertEquals(f2, f2.facets.get(0).getFingerprint());
+    }
     private static byte[] toByteArray(String md5sum) {
         byte[] data = new byte[16];
         for( int i=0; i<md5sum.length(); i+=2 )
@@ -17,7 +17,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.core.Is.is;
@@ -184,4 +191,71 @@ public class AtomicFileWriterTest {
 
         assertThat(Files.getPosixFilePermissions(filePath), equalTo(DEFAULT_GIVEN_PERMISSIONS));
     }
+
+    @Test
+    public void groupCommit() throws Exception {
+        boolean groupCommit = AtomicFileWriter.GROUP_COMMIT;
+        long window = AtomicFileWriter.GROUP_COMMIT_WINDOW;
+        AtomicFileWriter.GROUP_COMMIT = true;
+        AtomicFileWriter.GROUP_COMMIT_WINDOW = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            long commits = GroupCommit.getCommitCount();
+            final File dir = tmp.newFolder();
+            CyclicBarrier barrier = new CyclicBarrier(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final File f = new File(dir, "file" + i);
+                futures.add(executor.submit(() -> {
+                    AtomicFileWriter w = new AtomicFileWriter(f.toPath(), StandardCharsets.UTF_8);
+                    try {
+                        w.write(f.getName());
+                        barrier.await();
+                        w.commit();
+                    } finally {
+                        w.abort();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            for (int i = 0; i < 8; i++) {
+                assertEquals("file" + i, FileUtils.readFileToString(new File(dir, "file" + i), StandardCharsets.UTF_8));
+            }
+            assertEquals("temporary files are gone", 8, dir.list().length);
+            assertEquals(commits + 8, GroupCommit.getCommitCount());
+            assertTrue(GroupCommit.getMaxBatchSize() > 1);
+        } finally {
+            executor.shutdownNow();
+            AtomicFileWriter.GROUP_COMMIT = groupCommit;
+            AtomicFileWriter.GROUP_COMMIT_WINDOW = window;
+        }
+    }
+
+    @Test
+    public void groupCommitAlone() throws Exception {
+        boolean groupCommit = AtomicFileWriter.GROUP_COMMIT;
+        long window = AtomicFileWriter.GROUP_COMMIT_WINDOW;
+        AtomicFileWriter.GROUP_COMMIT = true;
+        AtomicFileWriter.GROUP_COMMIT_WINDOW = TimeUnit.MINUTES.toMillis(1);
+        try {
+            File f = tmp.newFile();
+            long start = System.nanoTime();
+            AtomicFileWriter w = new AtomicFileWriter(f.toPath(), StandardCharsets.UTF_8);
+            try {
+                w.write("alone");
+                w.commit();
+            } finally {
+                w.abort();
+            }
+            // with no other commit in progress, there is nobody to wait for
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+            assertEquals("alone", FileUtils.readFileToString(f, StandardCharsets.UTF_8));
+        } finally {
+            AtomicFileWriter.GROUP_COMMIT = groupCommit;
+            AtomicFileWriter.GROUP_COMMIT_WINDOW = window;
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package jenkins.fingerprints;
+
+import hudson.model.Fingerprint;
+import hudson.model.TaskListener;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class EmbeddedFingerprintStorageTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private long flushDelay;
+    private long compactionThreshold;
+
+    @Before
+    public void saveSettings() {
+        flushDelay = EmbeddedFingerprintStorage.FLUSH_DELAY;
+        compactionThreshold = EmbeddedFingerprintStorage.COMPACTION_THRESHOLD;
+        // only written when the test says so
+        EmbeddedFingerprintStorage.FLUSH_DELAY = TimeUnit.HOURS.toMillis(1);
+    }
+
+    @After
+    public void restoreSettings() {
+        EmbeddedFingerprintStorage.FLUSH_DELAY = flushDelay;
+        EmbeddedFingerprintStorage.COMPACTION_THRESHOLD = compactionThreshold;
+    }
+
+    private static final String A = "069484c9e963cc615c51278327da8eab";
+    private static final String B = "ffeeddccbbaa99887766554433221100";
+
+    private static Fingerprint fingerprint(String id, String job, String ranges) throws Exception {
+        String xml = "<?xml version='1.1' encoding='UTF-8'?>\n" +
+                "<fingerprint>\n" +
+                "  <timestamp>2013-05-21 19:20:03.534 UTC</timestamp>\n" +
+                "  <md5sum>" + id + "</md5sum>\n" +
+                "  <fileName>" + id + ".jar</fileName>\n" +
+                "  <usages><entry><string>" + job + "</string><ranges>" + ranges + "</ranges></entry></usages>\n" +
+                "  <facets/>\n" +
+                "</fingerprint>";
+        return Fingerprint.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), id);
+    }
+
+    private EmbeddedFingerprintStorage open() {
+        return new EmbeddedFingerprintStorage(tmp.getRoot());
+    }
+
+    @Test
+    public void saveLoadAndReopen() throws Exception {
+        EmbeddedFingerprintStorage s = open();
+        assertNull(s.load(A));
+        Fingerprint a = fingerprint(A, "job", "1-3");
+        s.save(a);
+        // served before being written
+        assertEquals(a.toString(), s.load(A).toString());
+        s.save(fingerprint(B, "other", "5"));
+        s.save(fingerprint(A, "job", "1-4"));
+        s.close();
+
+        s = open();
+        assertEquals(fingerprint(A, "job", "1-4").toString(), s.load(A).toString());
+        assertEquals(fingerprint(B, "other", "5").toString(), s.load(B).toString());
+        assertTrue(s.isReady());
+        // so listeners are not told about a file which does not exist
+        assertNull(s.getFile(A));
+    }
+
+    @Test
+    public void delete() throws Exception {
+        EmbeddedFingerprintStorage s = open();
+        s.save(fingerprint(A, "job", "1"));
+        s.save(fingerprint(B, "job", "2"));
+        s.flush();
+        s.delete(A);
+        assertNull(s.load(A));
+        s.close();
+
+        s = open();
+        assertNull(s.load(A));
+        assertNotNull(s.load(B));
+    }
+
+    @Test
+    public void incompleteRecordsAreDiscarded() throws Exception {
+        EmbeddedFingerprintStorage s = open();
+        s.save(fingerprint(A, "job", "1"));
+        s.flush();
+        File db = new File(tmp.getRoot(), EmbeddedFingerprintStorage.FILE_NAME);
+        long complete = db.length();
+        s.save(fingerprint(B, "job", "2"));
+        s.close();
+        try (RandomAccessFile raf = new RandomAccessFile(db, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        s = open();
+        assertNotNull(s.load(A));
+        assertNull(s.load(B));
+        assertEquals(complete, db.length());
+        s.save(fingerprint(B, "job", "3"));
+        s.close();
+        assertEquals(fingerprint(B, "job", "3").toString(), open().load(B).toString());
+    }
+
+    @Test
+    public void migration() throws Exception {
+        fingerprint(A, "job", "1-3").save(FileFingerprintStorage.getFingerprintFile(tmp.getRoot(), A));
+        File b = FileFingerprintStorage.getFingerprintFile(tmp.getRoot(), B);
+        fingerprint(B, "job", "7").save(b);
+
+        EmbeddedFingerprintStorage s = open();
+        assertEquals(fingerprint(A, "job", "1-3").toString(), s.load(A).toString());
+        File a = FileFingerprintStorage.getFingerprintFile(tmp.getRoot(), A);
+        assertTrue("deleted only once written", a.exists());
+        s.flush();
+        assertFalse(a.exists());
+
+        s.migrateAll(TaskListener.NULL);
+        assertFalse(b.exists());
+        assertFalse(new File(tmp.getRoot(), FileFingerprintStorage.FINGERPRINTS_DIR_NAME).exists());
+        s.close();
+
+        s = open();
+        assertEquals(fingerprint(A, "job", "1-3").toString(), s.load(A).toString());
+        assertEquals(fingerprint(B, "job", "7").toString(), s.load(B).toString());
+    }
+
+    @Test
+    public void compaction() throws Exception {
+        EmbeddedFingerprintStorage.COMPACTION_THRESHOLD = 0;
+        EmbeddedFingerprintStorage s = open();
+        for (int i = 1; i <= 100; i++) {
+            s.save(fingerprint(A, "job", "1-" + i));
+            s.flush();
+        }
+        s.save(fingerprint(B, "job", "1"));
+        s.delete(B);
+        File db = new File(tmp.getRoot(), EmbeddedFingerprintStorage.FILE_NAME);
+        s.compactIfNeeded(TaskListener.NULL);
+        long compacted = db.length();
+        assertTrue(compacted < 1000);
+        assertEquals(fingerprint(A, "job", "1-100").toString(), s.load(A).toString());
+        s.save(fingerprint(B, "job", "2"));
+        s.close();
+        assertTrue(db.length() > compacted);
+
+        s = open();
+        assertEquals(fingerprint(A, "job", "1-100").toString(), s.load(A).toString());
+        assertEquals(fingerprint(B, "job", "2").toString(), s.load(B).toString());
+        assertFalse(new File(db.getPath() + ".tmp").exists());
+        assertEquals(db.length(), FileUtils.sizeOf(tmp.getRoot()));
+    }
+
+    @Test
+    public void ids() {
+        assertEquals(A, EmbeddedFingerprintStorage.toId(EmbeddedFingerprintStorage.hi(A), EmbeddedFingerprintStorage.lo(A)));
+        assertEquals(B, EmbeddedFingerprintStorage.toId(EmbeddedFingerprintStorage.hi(B), EmbeddedFingerprintStorage.lo(B)));
+    }
+
+    @Test
+    public void table() {
+        EmbeddedFingerprintStorage.Table t = new EmbeddedFingerprintStorage.Table();
+        Map<Long, Long> expected = new HashMap<>();
+        Random r = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            // few distinct keys colliding on the low bits, so that there are long runs to remove from
+            long key = r.nextInt(500) << 20;
+            if (r.nextBoolean()) {
+                Long old = expected.put(key, (long) i + 1);
+                assertEquals(old == null ? -1 : 1, t.put(~key, key, i + 1, 1));
+            } else {
+                Long old = expected.remove(key);
+                assertEquals(old == null ? -1 : 1, t.remove(~key, key));
+            }
+        }
+        assertEquals(expected.size(), t.size);
+        for (Map.Entry<Long, Long> e : expected.entrySet()) {
+            int slot = t.find(~e.getKey(), e.getKey());
+            assertTrue(slot >= 0);
+            assertEquals((long) e.getValue(), t.offsets[slot]);
+        }
+        assertEquals(2 * expected.size(), t.keys().length);
+    }
+}
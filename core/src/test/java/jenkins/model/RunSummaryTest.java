@@ -0,0 +1,81 @@
+package jenkins.model;
+
+import hudson.model.Result;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class RunSummaryTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readSkipsEverythingElse() throws Exception {
+        File dir = tmp.newFolder("12");
+        FileUtils.writeStringToFile(new File(dir, "build.xml"),
+                "<?xml version='1.1' encoding='UTF-8'?>\n" +
+                "<build>\n" +
+                "  <actions>\n" +
+                "    <hudson.model.CauseAction>\n" +
+                "      <causeBag class=\"linked-hash-map\"><entry><no.such.Cause/><int>1</int></entry></causeBag>\n" +
+                "    </hudson.model.CauseAction>\n" +
+                "    <result>not this one</result>\n" +
+                "  </actions>\n" +
+                "  <queueId>345</queueId>\n" +
+                "  <timestamp>1546300800000</timestamp>\n" +
+                "  <startTime>1546300800100</startTime>\n" +
+                "  <result>UNSTABLE</result>\n" +
+                "  <duration>61000</duration>\n" +
+                "  <charset>UTF-8</charset>\n" +
+                "  <keepLog>false</keepLog>\n" +
+                "  <displayName>release 1.0</displayName>\n" +
+                "  <builtOn>agent1</builtOn>\n" +
+                "  <workspace>/ws</workspace>\n" +
+                "</build>\n", StandardCharsets.UTF_8);
+        RunSummary s = RunSummary.read(dir, 12);
+        assertNotNull(s);
+        assertEquals(12, s.getNumber());
+        assertEquals("12", s.getId());
+        assertEquals(345, s.getQueueId());
+        assertEquals(1546300800000L, s.getTimestamp());
+        assertEquals(Result.UNSTABLE, s.getResult());
+        assertEquals(61000, s.getDuration());
+        assertEquals("release 1.0", s.getDisplayName());
+        assertEquals("agent1", s.getBuiltOnStr());
+        assertTrue(s.isComplete());
+    }
+
+    @Test
+    public void readRunningBuild() throws Exception {
+        File dir = tmp.newFolder("3");
+        FileUtils.writeStringToFile(new File(dir, "build.xml"),
+                "<?xml version='1.1' encoding='UTF-8'?>\n" +
+                "<build>\n" +
+                "  <actions/>\n" +
+                "  <queueId>7</queueId>\n" +
+                "  <timestamp>1546300800000</timestamp>\n" +
+                "  <startTime>1546300800100</startTime>\n" +
+                "  <duration>0</duration>\n" +
+                "</build>\n", StandardCharsets.UTF_8);
+        RunSummary s = RunSummary.read(dir, 3);
+        assertNotNull(s);
+        assertNull(s.getResult());
+        assertFalse(s.isComplete());
+        assertEquals("#3", s.getDisplayName());
+        assertNull(s.getBuiltOnStr());
+    }
+
+    @Test
+    public void readMissingOrBroken() throws Exception {
+        assertNull(RunSummary.read(tmp.newFolder("1"), 1));
+        File dir = tmp.newFolder("2");
+        FileUtils.writeStringToFile(new File(dir, "build.xml"), "<build><result>SUCC", StandardCharsets.UTF_8);
+        assertNull(RunSummary.read(dir, 2));
+    }
+}
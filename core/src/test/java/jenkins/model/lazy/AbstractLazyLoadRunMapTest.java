@@ -408,4 +408,80 @@ public class AbstractLazyLoadRunMapTest {
         assertSame(second, first);
     }
 
+    @Test
+    public void prefetch() throws Exception {
+        Map<Integer, AtomicInteger> loadCount = new HashMap<>();
+        for (int i = 1; i <= 20; i++) {
+            localBuilder.add(i);
+            loadCount.put(i, new AtomicInteger());
+        }
+        FakeMap m = new FakeMap(localBuilder.getDir()) {
+            @Override
+            protected Build retrieve(File dir) throws IOException {
+                Build b = super.retrieve(dir);
+                loadCount.get(b.n).incrementAndGet();
+                return b;
+            }
+        };
+        int prefetchSize = AbstractLazyLoadRunMap.PREFETCH_SIZE;
+        AbstractLazyLoadRunMap.PREFETCH_SIZE = 4;
+        try {
+            assertEquals("[15, 14, 13, 12, 11]", m.subMap(15, 10).keySet().toString());
+            int n = 20;
+            for (Entry<Integer, Build> e : m.entrySet()) {
+                assertEquals(n--, e.getKey().intValue());
+                e.getValue().asserts(e.getKey());
+            }
+            assertEquals(0, n);
+            assertEquals(20, m.getLoadedBuilds().size());
+            for (Map.Entry<Integer, AtomicInteger> e : loadCount.entrySet()) {
+                // a record still being prefetched when searched for is loaded again rather than waited for
+                assertTrue("#" + e.getKey() + " loaded at most twice", e.getValue().get() <= 2);
+                assertSame(m.getByNumber(e.getKey()), m.getByNumber(e.getKey()));
+            }
+        } finally {
+            AbstractLazyLoadRunMap.PREFETCH_SIZE = prefetchSize;
+        }
+    }
+
+    @Test
+    public void allWhilePrefetching() throws Exception {
+        for (int i = 1; i <= 20; i++) {
+            localBuilder.add(i);
+        }
+        Thread caller = Thread.currentThread();
+        Semaphore started = new Semaphore(0);
+        Semaphore proceed = new Semaphore(0);
+        FakeMap m = new FakeMap(localBuilder.getDir()) {
+            @Override
+            protected Build retrieve(File dir) throws IOException {
+                if (Thread.currentThread() != caller) {
+                    started.release();
+                    proceed.acquireUninterruptibly();
+                }
+                return super.retrieve(dir);
+            }
+        };
+        int prefetchSize = AbstractLazyLoadRunMap.PREFETCH_SIZE;
+        AbstractLazyLoadRunMap.PREFETCH_SIZE = 4;
+        try {
+            // the prefetches are stuck, so this only completes if it loads the records itself rather than waiting for them
+            assertEquals("[15, 14, 13, 12, 11]", m.subMap(15, 10).keySet().toString());
+            started.acquire();
+            synchronized (m) {
+                assertEquals(20, m.entrySet().size());
+            }
+            proceed.release(4);
+            int n = 20;
+            for (Entry<Integer, Build> e : m.entrySet()) {
+                assertEquals(n--, e.getKey().intValue());
+                e.getValue().asserts(e.getKey());
+            }
+            assertEquals(0, n);
+        } finally {
+            proceed.release(4);
+            AbstractLazyLoadRunMap.PREFETCH_SIZE = prefetchSize;
+        }
+    }
+
 }
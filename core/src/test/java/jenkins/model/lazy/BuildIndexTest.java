@@ -0,0 +1,107 @@
+package jenkins.model.lazy;
+
+import hudson.model.Result;
+import java.io.File;
+import jenkins.model.RunSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class BuildIndexTest {
+
+    @Rule
+    public FakeMapBuilder builder = new FakeMapBuilder();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Before
+    public void enable() {
+        BuildIndex.ENABLED = true;
+    }
+
+    @After
+    public void disable() {
+        BuildIndex.ENABLED = false;
+    }
+
+    private FakeMap make() {
+        File indexFile = new File(tmp.getRoot(), "builds.index");
+        return new FakeMap(builder.getDir()) {
+            @Override
+            protected File getBuildIndexFile() {
+                return indexFile;
+            }
+        };
+    }
+
+    /**
+     * Saves the index of the given map, pretending the builds directory was last modified long enough ago.
+     */
+    private long save(FakeMap m) {
+        long lastModified = System.currentTimeMillis() - 60000;
+        assertTrue(builder.getDir().setLastModified(lastModified));
+        m.getBuildIndex().save();
+        return lastModified;
+    }
+
+    @Test
+    public void numbersFromUpToDateIndex() throws Exception {
+        builder.add(1).add(3).add(5);
+        FakeMap m = make();
+        assertEquals("[1, 3, 5]", m.getBuildIndex().getNumbers().toString());
+        long lastModified = save(m);
+
+        // builds added behind our back are noticed through the directory modification time
+        builder.add(7);
+        assertEquals(7, make().maxNumberOnDisk());
+
+        // so it must be the index that is used when that did not change
+        assertTrue(builder.getDir().setLastModified(lastModified));
+        m = make();
+        assertEquals(5, m.maxNumberOnDisk());
+        assertFalse(m.runExists(7));
+        assertEquals(5, m.newestBuild().n);
+    }
+
+    @Test
+    public void putAndRemove() throws Exception {
+        builder.add(1).add(3);
+        FakeMap m = make();
+        m.put(new Build(4));
+        assertEquals("[1, 3, 4]", m.getBuildIndex().getNumbers().toString());
+        m.removeValue(m.getByNumber(1));
+        assertEquals("[3, 4]", m.getBuildIndex().getNumbers().toString());
+        assertNull(m.getBuildIndex().lower(3));
+        assertEquals(3, m.getBuildIndex().lower(4).getNumber());
+    }
+
+    @Test
+    public void entriesSurviveRelisting() throws Exception {
+        builder.add(1).add(3);
+        FakeMap m = make();
+        m.getBuildIndex().put(new RunSummary(3, "2013-01-01_00-00-00", 17, 1000, Result.UNSTABLE, 42, "release", "agent1"));
+        save(m);
+
+        builder.add(5);
+        m = make();
+        assertEquals("[1, 3, 5]", m.getBuildIndex().getNumbers().toString());
+        RunSummary s = m.getBuildIndex().get(3);
+        assertEquals("2013-01-01_00-00-00", s.getId());
+        assertEquals(17, s.getQueueId());
+        assertEquals(1000, s.getTimestamp());
+        assertEquals(Result.UNSTABLE, s.getResult());
+        assertEquals(42, s.getDuration());
+        assertEquals("release", s.getDisplayName());
+        assertEquals("agent1", s.getBuiltOnStr());
+        s = m.getBuildIndex().get(5);
+        assertEquals("5", s.getId());
+        assertEquals("#5", s.getDisplayName());
+        assertNull(s.getResult());
+        assertFalse(s.isComplete());
+    }
+}
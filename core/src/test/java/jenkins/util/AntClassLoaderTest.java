@@ -0,0 +1,91 @@
+package jenkins.util;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class AntClassLoaderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File jar(String name, String... entries) throws Exception {
+        File jar = new File(tmp.getRoot(), name);
+        try (OutputStream os = Files.newOutputStream(jar.toPath()); JarOutputStream out = new JarOutputStream(os)) {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.write((name + ":" + entry).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static String read(URL url) throws Exception {
+        return IOUtils.toString(url, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void packageIndex() throws Exception {
+        try (AntWithFindResourceClassLoader loader = new AntWithFindResourceClassLoader(null, false)) {
+            loader.addPathFiles(Arrays.asList(
+                    jar("a.jar", "org/a/x.txt", "shared/s.txt"),
+                    jar("b.jar", "org/b/y.txt", "shared/s.txt", "top.txt")));
+            assertEquals(new HashSet<>(Arrays.asList("", "org/a", "org/b", "shared")), loader.getIndexedPackages());
+            assertEquals("a.jar:org/a/x.txt", read(loader.getResource("org/a/x.txt")));
+            assertEquals("b.jar:org/b/y.txt", read(loader.getResource("org/b/y.txt")));
+            assertEquals("b.jar:top.txt", read(loader.getResource("top.txt")));
+            // the first one in classpath order
+            assertEquals("a.jar:shared/s.txt", read(loader.getResource("shared/s.txt")));
+            List<String> all = new ArrayList<>();
+            for (URL url : Collections.list(loader.findResources("shared/s.txt"))) {
+                all.add(read(url));
+            }
+            assertEquals(Arrays.asList("a.jar:shared/s.txt", "b.jar:shared/s.txt"), all);
+            assertNull(loader.getResource("org/a/missing.txt"));
+            assertNull(loader.getResource("org/c/missing.txt"));
+            assertNull(loader.findResource("org/c/missing.txt"));
+
+            // the index follows the classpath
+            loader.addPathFiles(Collections.singletonList(jar("c.jar", "org/c/z.txt")));
+            assertEquals("c.jar:org/c/z.txt", read(loader.getResource("org/c/z.txt")));
+            assertTrue(loader.getIndexedPackages().contains("org/c"));
+        }
+    }
+
+    @Test
+    public void classesDirectory() throws Exception {
+        File classes = tmp.newFolder("classes");
+        Files.createDirectories(new File(classes, "org/d").toPath());
+        Files.write(new File(classes, "org/d/w.txt").toPath(), "w".getBytes(StandardCharsets.UTF_8));
+        try (AntWithFindResourceClassLoader loader = new AntWithFindResourceClassLoader(null, false)) {
+            loader.addPathFiles(Arrays.asList(jar("a.jar", "org/a/x.txt"), classes));
+            assertNull(loader.getIndexedPackages());
+            assertEquals("w", read(loader.getResource("org/d/w.txt")));
+            assertEquals("a.jar:org/a/x.txt", read(loader.getResource("org/a/x.txt")));
+        }
+    }
+
+    @Test
+    public void directoryOf() {
+        assertEquals("org/example", AntClassLoader.directoryOf("org/example/Plugin.class"));
+        assertEquals("org/example", AntClassLoader.directoryOf("org/example/Plugin/"));
+        assertEquals("", AntClassLoader.directoryOf("org/"));
+        assertEquals("", AntClassLoader.directoryOf("top.txt"));
+    }
+}
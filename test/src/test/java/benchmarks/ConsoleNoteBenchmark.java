@@ -0,0 +1,53 @@
+package benchmarks;
+
+import hudson.console.ConsoleAnnotationOutputStream;
+import hudson.console.ConsoleAnnotator;
+import hudson.console.HyperlinkNote;
+import hudson.console.PlainTextConsoleOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Measures rendering a log with a {@link HyperlinkNote} on every line, as HTML and as plain text.
+ * Run with {@link org.openjdk.jmh.profile.GCProfiler} ({@code -prof gc}) to compare what gets allocated for each line as well.
+ */
+@JmhBenchmark
+public class ConsoleNoteBenchmark {
+    public static class LogState extends JmhBenchmarkState {
+        /** Number of different links, from a few items mentioned over and over to every line linking somewhere else. */
+        @Param({"10", "10000"})
+        public int links;
+
+        byte[] log;
+
+        @Override
+        public void setup() throws Exception {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int i = 0; i < 10000; i++) {
+                int n = i % links;
+                out.write(("[" + i + "] Building " + HyperlinkNote.encodeTo("/job/p" + n + "/", "p" + n) + " on " + HyperlinkNote.encodeTo("/computer/agent" + n % 7 + "/", "agent" + n % 7) + " and some more output\n").getBytes(StandardCharsets.UTF_8));
+            }
+            log = out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public void annotate(LogState state) throws Exception {
+        try (ConsoleAnnotationOutputStream<Object> out = new ConsoleAnnotationOutputStream<>(new NullWriter(), ConsoleAnnotator.initial(null), null, StandardCharsets.UTF_8)) {
+            out.write(state.log);
+        }
+    }
+
+    @Benchmark
+    public void strip(LogState state) throws Exception {
+        try (PlainTextConsoleOutputStream out = new PlainTextConsoleOutputStream(new NullOutputStream())) {
+            out.write(state.log);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package benchmarks;
+
+import hudson.PluginManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.apache.commons.io.FileUtils;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures starting Jenkins with many plugins, which depend on one another at random but always the same way,
+ * loaded either each as soon as those it depends on are loaded, or one after another with {@link PluginManager#SERIAL_PLUGIN_LOAD}.
+ * Plugins get exploded by the first startup of a trial, so that the ones measured afterwards are like restarts.
+ */
+@JmhBenchmark
+public class PluginStartupBenchmark {
+    @State(Scope.Benchmark)
+    public static class PluginsState {
+        @Param({"300"})
+        public int plugins;
+
+        @Param({"false", "true"})
+        public boolean serial;
+
+        /** Number of resources in the jar of each plugin. */
+        @Param({"50"})
+        public int resources;
+
+        File home;
+
+        @Setup(Level.Trial)
+        public void createPlugins() throws IOException {
+            home = Files.createTempDirectory("plugin-startup").toFile();
+            File dir = new File(home, "plugins");
+            if (!dir.mkdirs()) {
+                throw new IOException("Could not create " + dir);
+            }
+            Random random = new Random(plugins);
+            for (int i = 0; i < plugins; i++) {
+                List<String> dependencies = new ArrayList<>();
+                for (int j = i == 0 ? 0 : random.nextInt(4); j > 0; j--) {
+                    String dependency = name(random.nextInt(i)) + ":1.0";
+                    if (!dependencies.contains(dependency)) {
+                        dependencies.add(dependency);
+                    }
+                }
+                writePlugin(new File(dir, name(i) + ".jpi"), name(i), dependencies);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteHome() throws IOException {
+            FileUtils.deleteDirectory(home);
+        }
+
+        private static String name(int i) {
+            return "synthetic-" + i;
+        }
+
+        private void writePlugin(File jpi, String name, List<String> dependencies) throws IOException {
+            Manifest manifest = new Manifest();
+            Attributes attributes = manifest.getMainAttributes();
+            attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            attributes.putValue("Short-Name", name);
+            attributes.putValue("Long-Name", "Synthetic plugin " + name);
+            attributes.putValue("Plugin-Version", "1.0");
+            // recent enough not to imply dependencies on detached plugins
+            attributes.putValue("Jenkins-Version", "2.200");
+            if (!dependencies.isEmpty()) {
+                attributes.putValue("Plugin-Dependencies", String.join(",", dependencies));
+            }
+            try (OutputStream os = Files.newOutputStream(jpi.toPath());
+                 JarOutputStream plugin = new JarOutputStream(os, manifest)) {
+                plugin.putNextEntry(new ZipEntry("WEB-INF/lib/" + name + ".jar"));
+                JarOutputStream jar = new JarOutputStream(plugin);
+                for (int i = 0; i < resources; i++) {
+                    jar.putNextEntry(new ZipEntry(name.replace('-', '/') + "/Resource" + i + ".properties"));
+                    jar.write(("index=" + i + "\n").getBytes(StandardCharsets.UTF_8));
+                    jar.closeEntry();
+                }
+                // finishes the inner jar without closing the plugin it is written to
+                jar.finish();
+                plugin.closeEntry();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void startup(PluginsState state) throws Throwable {
+        boolean serial = PluginManager.SERIAL_PLUGIN_LOAD;
+        PluginManager.SERIAL_PLUGIN_LOAD = state.serial;
+        try {
+            JenkinsRule r = new JenkinsRule().with(() -> state.home);
+            r.useLocalPluginManager = true;
+            r.apply(new Statement() {
+                @Override
+                public void evaluate() {
+                    int loaded = r.jenkins.getPluginManager().getPlugins().size();
+                    if (loaded != state.plugins) {
+                        throw new AssertionError("Loaded " + loaded + " of " + state.plugins + " plugins");
+                    }
+                }
+            }, Description.createTestDescription(PluginStartupBenchmark.class, "startup")).evaluate();
+        } finally {
+            PluginManager.SERIAL_PLUGIN_LOAD = serial;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Label;
+import hudson.model.Queue;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Measures {@link Queue#maintain()} with many buildable items that none of the parked executors can take,
+ * which is the case where every item is checked against every {@link Queue.JobOffer} on each cycle.
+ */
+@JmhBenchmark
+public class QueueMaintenanceBenchmark {
+    public static class QueueState extends JmhBenchmarkState {
+        @Param({"100", "1000"})
+        public int items;
+
+        @Param({"10", "100"})
+        public int executors;
+
+        @Override
+        public void setup() throws Exception {
+            Jenkins jenkins = getJenkins();
+            jenkins.setNumExecutors(executors);
+            Label missing = Label.get("missing");
+            for (int i = 0; i < items; i++) {
+                FreeStyleProject p = jenkins.createProject(FreeStyleProject.class, "p" + i);
+                p.setAssignedLabel(missing);
+                jenkins.getQueue().schedule2(p, 0);
+            }
+            jenkins.getQueue().maintain();
+        }
+    }
+
+    @Benchmark
+    public void maintain(QueueState state) {
+        state.getJenkins().getQueue().maintain();
+    }
+}
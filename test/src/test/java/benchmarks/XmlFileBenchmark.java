@@ -0,0 +1,62 @@
+package benchmarks;
+
+import hudson.XmlFile;
+import hudson.model.FreeStyleProject;
+import hudson.model.Items;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.tasks.Shell;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Measures reading and writing a job configuration through {@link XmlFile}, with and without {@link XmlFile#STREAMING}.
+ * Run with {@link org.openjdk.jmh.profile.GCProfiler} ({@code -prof gc}) to compare what gets allocated for each file as well.
+ */
+@JmhBenchmark
+public class XmlFileBenchmark {
+    public static class ConfigState extends JmhBenchmarkState {
+        @Param({"false", "true"})
+        public boolean streaming;
+
+        /** Number of build steps and parameters, to get files from a few kilobytes to a few hundred. */
+        @Param({"10", "1000"})
+        public int size;
+
+        FreeStyleProject project;
+        XmlFile file;
+
+        @Override
+        public void setup() throws Exception {
+            XmlFile.STREAMING = streaming;
+            project = getJenkins().createProject(FreeStyleProject.class, "p");
+            List<ParameterDefinition> parameters = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                project.getBuildersList().add(new Shell("echo step " + i + " of a longer script\nmake -j4 target" + i));
+                parameters.add(new StringParameterDefinition("PARAM" + i, "default value " + i, "what parameter " + i + " is for"));
+            }
+            project.addProperty(new ParametersDefinitionProperty(parameters));
+            file = project.getConfigFile();
+        }
+
+        @Override
+        public void tearDown() {
+            XmlFile.STREAMING = false;
+        }
+    }
+
+    @Benchmark
+    public Object read(ConfigState state) throws Exception {
+        return new XmlFile(Items.XSTREAM, state.file.getFile()).read();
+    }
+
+    @Benchmark
+    public void write(ConfigState state) throws Exception {
+        state.file.write(state.project);
+    }
+}
@@ -11,7 +11,8 @@ import hudson.model.Descriptor;
 import hudson.model.Describable;
 import hudson.util.DescriptorList;
 import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Collection;
 
@@ -207,6 +208,24 @@ public class ExtensionListTest {
         assertEquals("toyota",list.get(2).name);
     }
 
+    @Test
+    public void iterationUsesSnapshot() {
+        ExtensionList<Car> list = j.jenkins.getExtensionList(Car.class);
+        Iterator<Car> it = list.iterator();
+        Car tesla = new Car("tesla");
+        list.add(tesla);
+        List<String> names = new ArrayList<>();
+        it.forEachRemaining(c -> names.add(c.name));
+        assertEquals(Arrays.asList("honda", "mazda", "toyota"), names);
+        names.clear();
+        for (Car c : list) {
+            names.add(c.name);
+        }
+        assertEquals(Arrays.asList("honda", "mazda", "toyota", "tesla"), names);
+        assertTrue(list.remove(tesla));
+        assertEquals(3, list.size());
+    }
+
     @Issue("JENKINS-39520")
     @Test
     public void removeAll() {
@@ -0,0 +1,97 @@
+package hudson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plugins are loaded each as soon as those it depends on are, so a failure must still only affect its dependents.
+ */
+public class PluginManagerParallelLoadTest {
+
+    private final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final JenkinsRule r = new JenkinsRule().with(this::home);
+
+    {
+        r.useLocalPluginManager = true;
+    }
+
+    @Rule
+    public RuleChain chain = RuleChain.outerRule(tmp).around(r);
+
+    private File home() throws IOException {
+        File home = tmp.newFolder("home");
+        File plugins = new File(home, "plugins");
+        assertTrue(plugins.mkdirs());
+        plugin(plugins, "base", "2.200");
+        // requires a newer Jenkins, so fails while being loaded
+        plugin(plugins, "broken", "99999.0");
+        plugin(plugins, "needs-base", "2.200", "base:1.0");
+        plugin(plugins, "needs-broken", "2.200", "broken:1.0");
+        plugin(plugins, "needs-needs-broken", "2.200", "needs-broken:1.0", "base:1.0");
+        plugin(plugins, "optional-broken", "2.200", "broken:1.0;resolution:=optional", "base:1.0");
+        return home;
+    }
+
+    private static void plugin(File dir, String name, String jenkinsVersion, String... dependencies) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Short-Name", name);
+        attributes.putValue("Long-Name", name);
+        attributes.putValue("Plugin-Version", "1.0");
+        attributes.putValue("Jenkins-Version", jenkinsVersion);
+        if (dependencies.length > 0) {
+            attributes.putValue("Plugin-Dependencies", String.join(",", dependencies));
+        }
+        try (OutputStream os = Files.newOutputStream(new File(dir, name + ".jpi").toPath());
+             JarOutputStream plugin = new JarOutputStream(os, manifest)) {
+            plugin.putNextEntry(new ZipEntry("WEB-INF/lib/" + name + ".jar"));
+            JarOutputStream jar = new JarOutputStream(plugin);
+            jar.putNextEntry(new ZipEntry(name.replace('-', '/') + "/plugin.properties"));
+            jar.write(("name=" + name + "\n").getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+            // finishes the inner jar without closing the plugin it is written to
+            jar.finish();
+            plugin.closeEntry();
+        }
+    }
+
+    @Test
+    public void failureOnlySkipsDependents() {
+        assertFalse(PluginManager.SERIAL_PLUGIN_LOAD);
+        PluginManager pm = r.jenkins.getPluginManager();
+        for (String name : new String[] {"base", "needs-base", "optional-broken"}) {
+            PluginWrapper p = pm.getPlugin(name);
+            assertNotNull(name, p);
+            assertTrue(name, p.isActive());
+        }
+        List<String> failed = new ArrayList<>();
+        for (PluginManager.FailedPlugin p : pm.getFailedPlugins()) {
+            failed.add(p.name);
+            assertNull(p.name, pm.getPlugin(p.name));
+        }
+        assertThat(failed, containsInAnyOrder("broken", "needs-broken", "needs-needs-broken"));
+    }
+}
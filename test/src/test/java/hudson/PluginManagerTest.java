@@ -215,6 +215,23 @@ public class PluginManagerTest {
         assertNotNull(r.jenkins.getDescriptorByType(c));
     }
 
+    @Test public void uberClassLoaderForgetsMissesOnDynamicLoad() throws Exception {
+        ClassLoader uberClassLoader = r.jenkins.getPluginManager().uberClassLoader;
+        assertNull(uberClassLoader.getResource("htmlpublisher/HtmlPublisher.class"));
+        try {
+            uberClassLoader.loadClass("htmlpublisher.HtmlPublisher");
+            fail();
+        } catch (ClassNotFoundException x) {
+            // not yet installed
+        }
+        URL res = getClass().getClassLoader().getResource("plugins/htmlpublisher.jpi");
+        File f = new File(r.jenkins.getRootDir(), "plugins/htmlpublisher.jpi");
+        FileUtils.copyURLToFile(res, f);
+        r.jenkins.pluginManager.dynamicLoad(f);
+        assertNotNull(uberClassLoader.getResource("htmlpublisher/HtmlPublisher.class"));
+        assertNotNull(uberClassLoader.loadClass("htmlpublisher.HtmlPublisher"));
+    }
+
     @Test public void prevalidateConfig() throws Exception {
         assumeFalse("TODO: Implement this test on Windows", Functions.isWindows());
         PersistedList<UpdateSite> sites = r.jenkins.getUpdateCenter().getSites();
@@ -0,0 +1,202 @@
+package hudson.console;
+
+import com.gargoylesoftware.htmlunit.Page;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.util.OneShotEvent;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ConsoleTailTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    @Before
+    public void enable() {
+        ConsoleTail.ENABLED = true;
+    }
+
+    @After
+    public void disable() {
+        ConsoleTail.ENABLED = false;
+    }
+
+    @Test
+    public void onlyWebSockets() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        FreeStyleBuild b = r.buildAndAssertSuccess(p);
+        JenkinsRule.WebClient wc = r.createWebClient();
+        wc.setThrowExceptionOnFailingStatusCode(false);
+        Page page = wc.goTo(b.getUrl() + "consoleStream?start=0", null);
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, page.getWebResponse().getStatusCode());
+
+        ConsoleTail.ENABLED = false;
+        page = wc.goTo(b.getUrl() + "consoleStream?start=0", null);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, page.getWebResponse().getStatusCode());
+    }
+
+    @Test
+    public void streamsToEveryViewer() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        OneShotEvent proceed = new OneShotEvent();
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException {
+                listener.getLogger().println("first line");
+                proceed.block();
+                listener.getLogger().println("last line");
+                return true;
+            }
+        });
+        FreeStyleBuild b = p.scheduleBuild2(0).waitForStart();
+        r.waitForMessage("first line", b);
+        String origin = ConsoleTail.originOf(r.getURL().toString());
+        try (Client first = new Client(b, 0, origin);
+             Client second = new Client(b, 0, origin);
+             Client late = new Client(b, b.getLogText().length(), origin)) {
+            assertEquals(101, first.status);
+            assertEquals(101, second.status);
+            assertEquals(101, late.status);
+            proceed.signal();
+            r.assertBuildStatusSuccess(r.waitForCompletion(b));
+            for (Client c : new Client[] {first, second, late}) {
+                c.readAll();
+                assertEquals(1000, c.closeCode);
+                assertThat(c.html.toString(), containsString("last line"));
+                assertEquals(b.getLogText().length(), c.offset);
+            }
+            assertThat(first.html.toString(), containsString("first line"));
+            assertThat(second.html.toString(), containsString("first line"));
+            // starting where it left off polling, it gets nothing twice
+            assertThat(late.html.toString(), not(containsString("first line")));
+        }
+    }
+
+    @Test
+    public void otherOrigins() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        FreeStyleBuild b = r.buildAndAssertSuccess(p);
+        try (Client c = new Client(b, 0, "https://attacker.example")) {
+            assertEquals(HttpURLConnection.HTTP_FORBIDDEN, c.status);
+        }
+        try (Client c = new Client(b, 0, "null")) {
+            assertEquals(HttpURLConnection.HTTP_FORBIDDEN, c.status);
+        }
+    }
+
+    /**
+     * Just enough of a WebSocket client to read what the server sends.
+     */
+    private final class Client implements Closeable {
+        private final Socket socket;
+        private final DataInputStream in;
+        final int status;
+        final StringBuilder html = new StringBuilder();
+        long offset = -1;
+        int closeCode = -1;
+
+        Client(FreeStyleBuild b, long start, String origin) throws IOException {
+            URL url = new URL(r.getURL(), b.getUrl() + "consoleStream?start=" + start);
+            socket = new Socket(url.getHost(), url.getPort());
+            socket.setSoTimeout(60000);
+            byte[] key = new byte[16];
+            new Random().nextBytes(key);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + url.getFile() + " HTTP/1.1\r\n" +
+                    "Host: " + url.getHost() + ":" + url.getPort() + "\r\n" +
+                    "Upgrade: websocket\r\n" +
+                    "Connection: Upgrade\r\n" +
+                    "Sec-WebSocket-Key: " + Base64.getEncoder().encodeToString(key) + "\r\n" +
+                    "Sec-WebSocket-Version: 13\r\n" +
+                    "Origin: " + origin + "\r\n" +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            status = Integer.parseInt(readLine().split(" ")[1]);
+            while (!readLine().isEmpty()) {
+                // skip headers
+            }
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c == -1) {
+                    throw new IOException("unexpected end of stream");
+                }
+                if (c != '\r') {
+                    line.write(c);
+                }
+            }
+            return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Reads messages until the server closes the connection.
+         */
+        void readAll() throws IOException {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int b0 = in.readUnsignedByte();
+                int b1 = in.readUnsignedByte();
+                long len = b1 & 0x7F;
+                if (len == 126) {
+                    len = in.readUnsignedShort();
+                } else if (len == 127) {
+                    len = in.readLong();
+                }
+                byte[] payload = new byte[(int) len];
+                in.readFully(payload);
+                switch (b0 & 0x0F) {
+                case 0: // continuation
+                case 1: // text
+                    message.write(payload);
+                    if ((b0 & 0x80) != 0) {
+                        String text = new String(message.toByteArray(), StandardCharsets.UTF_8);
+                        message.reset();
+                        int nl = text.indexOf('\n');
+                        offset = Long.parseLong(text.substring(0, nl));
+                        html.append(text.substring(nl + 1));
+                    }
+                    break;
+                case 8: // close
+                    closeCode = payload.length >= 2 ? (payload[0] & 0xFF) << 8 | payload[1] & 0xFF : 1005;
+                    return;
+                default: // pings
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
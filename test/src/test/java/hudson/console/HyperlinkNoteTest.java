@@ -25,6 +25,7 @@
 package hudson.console;
 
 import hudson.model.FreeStyleProject;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -37,6 +38,8 @@ import org.jvnet.hudson.test.JenkinsRule;
 
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
 
 public class HyperlinkNoteTest {
@@ -73,6 +76,32 @@ public class HyperlinkNoteTest {
                 containsString(">" + noteTextSanitized + "</a>")));
     }
 
+    @Test
+    public void repeatedNotes() throws Exception {
+        String url = r.getURL().toString()+"test";
+        String link = HyperlinkNote.encodeTo(url, "link");
+        String input = "a " + link + " b " + link + "\n" + link + " c\n";
+        assertEquals("a <a href='" + url + "'>link</a> b <a href='" + url + "'>link</a>\n<a href='" + url + "'>link</a> c\n", annotate(input));
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (PlainTextConsoleOutputStream out = new PlainTextConsoleOutputStream(plain)) {
+            out.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("a link b link\nlink c\n", plain.toString("UTF-8"));
+
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        int first = ConsoleNote.findPreamble(bytes, 0, bytes.length);
+        int len = ConsoleNote.encodedLength(bytes, first, bytes.length);
+        assertEquals(link.length() - "link".length(), len);
+        int second = ConsoleNote.findPreamble(bytes, first + len, bytes.length - first - len);
+        assertEquals(-1, ConsoleNote.encodedLength(bytes, second, second + len - 1));
+        ConsoleNote note = ConsoleNote.readFrom(bytes, first, len);
+        ConsoleNote again = ConsoleNote.readFrom(bytes, second, len);
+        // notes may keep state while annotating, so each gets its own
+        assertNotSame(note, again);
+        assertEquals(HyperlinkNote.class, again.getClass());
+    }
+
     private static String annotate(String text) throws IOException {
         StringWriter writer = new StringWriter();
         try (ConsoleAnnotationOutputStream out = new ConsoleAnnotationOutputStream(writer, null, null, StandardCharsets.UTF_8)) {
@@ -25,6 +25,7 @@ package hudson.model;
 
 import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.UnexpectedPage;
+import com.gargoylesoftware.htmlunit.WebRequest;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import hudson.*;
 import hudson.tasks.ArtifactArchiver;
@@ -176,6 +177,55 @@ public class DirectoryBrowserSupportTest {
         zipfile.delete();
     }
 
+    @Test
+    public void rangesAndEntityTags() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setScm(new SingleFileSCM("artifact.bin", "0123456789abcdef"));
+        p.getPublishersList().add(new ArtifactArchiver("*", "", true));
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+        URL url = new URL(j.getURL(), b.getUrl() + "artifact/artifact.bin");
+        JenkinsRule.WebClient wc = j.createWebClient();
+        wc.setThrowExceptionOnFailingStatusCode(false);
+
+        Page page = wc.getPage(new WebRequest(url));
+        assertEquals(HttpURLConnection.HTTP_OK, page.getWebResponse().getStatusCode());
+        assertEquals("0123456789abcdef", page.getWebResponse().getContentAsString());
+        assertEquals("bytes", page.getWebResponse().getResponseHeaderValue("Accept-Ranges"));
+        String etag = page.getWebResponse().getResponseHeaderValue("ETag");
+        assertNotNull(etag);
+
+        WebRequest req = new WebRequest(url);
+        req.setAdditionalHeader("If-None-Match", etag);
+        page = wc.getPage(req);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, page.getWebResponse().getStatusCode());
+
+        req = new WebRequest(url);
+        req.setAdditionalHeader("Range", "bytes=4-7");
+        page = wc.getPage(req);
+        assertEquals(HttpURLConnection.HTTP_PARTIAL, page.getWebResponse().getStatusCode());
+        assertEquals("bytes 4-7/16", page.getWebResponse().getResponseHeaderValue("Content-Range"));
+        assertEquals("4567", page.getWebResponse().getContentAsString());
+
+        req = new WebRequest(url);
+        req.setAdditionalHeader("Range", "bytes=-3");
+        page = wc.getPage(req);
+        assertEquals("def", page.getWebResponse().getContentAsString());
+
+        // the whole file if it changed since the range was asked for
+        req = new WebRequest(url);
+        req.setAdditionalHeader("Range", "bytes=4-");
+        req.setAdditionalHeader("If-Range", "W/\"0-0\"");
+        page = wc.getPage(req);
+        assertEquals(HttpURLConnection.HTTP_OK, page.getWebResponse().getStatusCode());
+        assertEquals("0123456789abcdef", page.getWebResponse().getContentAsString());
+
+        req = new WebRequest(url);
+        req.setAdditionalHeader("Range", "bytes=16-");
+        page = wc.getPage(req);
+        assertEquals(416, page.getWebResponse().getStatusCode());
+        assertEquals("bytes */16", page.getWebResponse().getResponseHeaderValue("Content-Range"));
+    }
+
     @Issue("SECURITY-95")
     @Test
     public void contentSecurityPolicy() throws Exception {
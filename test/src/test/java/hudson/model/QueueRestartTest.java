@@ -29,10 +29,16 @@ import org.junit.Test;
 import org.junit.runners.model.Statement;
 import org.jvnet.hudson.test.RestartableJenkinsRule;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class QueueRestartTest {
@@ -77,10 +83,71 @@ public class QueueRestartTest {
         });
     }
 
+    private long p2Id, p3Id;
+
+    @Test
+    public void replayJournalOnCrash() {
+        j.addStepWithDirtyShutdown(new Statement() {
+            @Override public void evaluate() throws Throwable {
+                Queue.Saver.DELAY_SECONDS = -1; // Only the journal records the changes made after the explicit save
+                Queue.Journal.ENABLED = true;
+                Queue q = j.j.jenkins.getQueue();
+                FreeStyleProject p1 = createWaitingProject("p1");
+                FreeStyleProject p2 = createWaitingProject("p2");
+                FreeStyleProject p3 = createWaitingProject("p3");
+                p1.scheduleBuild2(0);
+                q.save();
+                File journal = Queue.getQueueJournalFile();
+                assertFalse("queue.journal was not compacted", journal.exists());
+
+                p2.scheduleBuild2(0);
+                p3.scheduleBuild2(0);
+                q.cancel(p1);
+                // let the items settle, so nothing is journaled after the partial record
+                q.maintain();
+                p2Id = q.getItem(p2).getId();
+                p3Id = q.getItem(p3).getId();
+                assertTrue("queue.journal does not exist", journal.exists());
+
+                // crash in the middle of appending another record
+                try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journal, true))) {
+                    out.writeByte(1);
+                    out.writeInt(42);
+                }
+            }
+        });
+        j.addStep(new Statement() {
+            @Override public void evaluate() {
+                try {
+                    Queue q = j.j.jenkins.getQueue();
+                    assertEquals(2, q.getItems().length);
+                    assertNull(q.getItem(j.j.jenkins.getItemByFullName("p1", FreeStyleProject.class)));
+                    Queue.Item i2 = q.getItem(j.j.jenkins.getItemByFullName("p2", FreeStyleProject.class));
+                    Queue.Item i3 = q.getItem(j.j.jenkins.getItemByFullName("p3", FreeStyleProject.class));
+                    assertNotNull(i2);
+                    assertNotNull(i3);
+                    assertEquals(p2Id, i2.getId());
+                    assertEquals(p3Id, i3.getId());
+                    // loading compacted the replayed journal into queue.xml
+                    assertFalse("queue.journal was not compacted", Queue.getQueueJournalFile().exists());
+                    assertTrue("queue.xml does not exist", q.getXMLQueueFile().exists());
+                } finally {
+                    Queue.Journal.ENABLED = false;
+                }
+            }
+        });
+    }
+
     private void assertBuildIsScheduled() {
         assertEquals(1, j.j.jenkins.getQueue().getItems().length);
     }
 
+    private FreeStyleProject createWaitingProject(String name) throws IOException {
+        FreeStyleProject p = j.j.createFreeStyleProject(name);
+        p.setAssignedLabel(Label.get("waitforit"));
+        return p;
+    }
+
     private void scheduleSomeBuild() throws IOException {
         FreeStyleProject p = j.j.createFreeStyleProject();
         p.setAssignedLabel(Label.get("waitforit"));
@@ -54,6 +54,7 @@ import hudson.model.listeners.SaveableListener;
 import hudson.model.queue.CauseOfBlockage;
 import hudson.model.queue.QueueTaskDispatcher;
 import hudson.model.queue.QueueTaskFuture;
+import hudson.model.queue.ScheduleRequest;
 import hudson.model.queue.ScheduleResult;
 import hudson.model.queue.SubTask;
 import hudson.security.ACL;
@@ -1046,6 +1047,126 @@ public class QueueTest {
         }
     }
 
+    @Test
+    public void nodeLevelCausesOfBlockageEvaluatedOncePerComputer() throws Exception {
+        r.jenkins.setNumExecutors(4);
+        FreeStyleProject p = r.createFreeStyleProject();
+        Queue q = r.jenkins.getQueue();
+        q.schedule2(p, 0);
+        q.maintain();
+        assertTrue(q.getItem(p) instanceof Queue.BuildableItem);
+
+        CountingQueueTaskDispatcher dispatcher = ExtensionList.lookupSingleton(CountingQueueTaskDispatcher.class);
+        dispatcher.calls.set(0);
+        q.maintain();
+        // a concurrent periodic maintenance may add one more call, but never one per executor
+        assertThat(dispatcher.calls.get(), lessThan(r.jenkins.getNumExecutors()));
+        assertTrue(q.getItem(p) instanceof Queue.BuildableItem);
+    }
+
+    @TestExtension("nodeLevelCausesOfBlockageEvaluatedOncePerComputer")
+    public static class CountingQueueTaskDispatcher extends QueueTaskDispatcher {
+        final AtomicInteger calls = new AtomicInteger();
+        @Override
+        public CauseOfBlockage canTake(Node node, Queue.BuildableItem item) {
+            calls.incrementAndGet();
+            return CauseOfBlockage.fromMessage(Messages._Queue_Unknown());
+        }
+    }
+
+    @Test
+    public void snapshotVersionOnlyChangesWithQueueContents() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        Queue q = r.jenkins.getQueue();
+        long initial = q.getSnapshotVersion();
+        q.schedule2(p, 1000);
+        long scheduled = q.getSnapshotVersion();
+        assertThat(initial, lessThan(scheduled));
+        assertSame(q.getItem(p), q.getItem(q.getItem(p).getId()));
+        assertEquals(1, q.getItems(p).size());
+
+        q.maintain();
+        assertEquals(scheduled, q.getSnapshotVersion());
+
+        q.cancel(p);
+        assertThat(scheduled, lessThan(q.getSnapshotVersion()));
+        assertFalse(q.contains(p));
+        assertTrue(q.getItems(p).isEmpty());
+    }
+
+    @Test
+    public void scheduleAll() throws Exception {
+        FreeStyleProject p1 = r.createFreeStyleProject();
+        FreeStyleProject p2 = r.createFreeStyleProject();
+        Queue q = r.jenkins.getQueue();
+        List<ScheduleResult> results = q.scheduleAll(Arrays.asList(
+                new ScheduleRequest(p1, 1000, new CauseAction(new Cause.UserIdCause())),
+                new ScheduleRequest(p2, 1000),
+                new ScheduleRequest(p1, 1000, new CauseAction(new Cause.RemoteCause("host", "note")))));
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertTrue(results.get(1).isCreated());
+        assertFalse(results.get(2).isCreated());
+        assertSame(results.get(0).getItem(), results.get(2).getItem());
+        assertEquals(2, q.getItems().length);
+        // the duplicate request was folded into the first item
+        assertEquals(2, q.getItem(p1).getAction(CauseAction.class).getCauses().size());
+    }
+
+    @Test
+    public void journalRecordsChangesSinceLastSave() throws Exception {
+        FreeStyleProject p1 = r.createFreeStyleProject("p1");
+        FreeStyleProject p2 = r.createFreeStyleProject("p2");
+        Queue q = r.jenkins.getQueue();
+        q.save();
+        File journal = Queue.getQueueJournalFile();
+        assertFalse(journal.exists());
+
+        Queue.Journal.ENABLED = true;
+        try {
+            q.schedule2(p1, 1000);
+            q.schedule2(p2, 1000);
+            q.cancel(p2);
+            List<Object> items = Queue.Journal.replay(journal, Collections.emptyList());
+            assertEquals(1, items.size());
+            assertEquals(p1, ((Queue.Item) items.get(0)).task);
+            assertEquals(q.getItem(p1).getId(), ((Queue.Item) items.get(0)).getId());
+
+            q.save();
+            assertFalse(journal.exists());
+        } finally {
+            Queue.Journal.ENABLED = false;
+        }
+    }
+
+    @Test
+    public void journalStopsAfterFailedAppendUntilSaved() throws Exception {
+        FreeStyleProject p1 = r.createFreeStyleProject("p1");
+        FreeStyleProject p2 = r.createFreeStyleProject("p2");
+        Queue q = r.jenkins.getQueue();
+        q.save();
+        File journal = Queue.getQueueJournalFile();
+        // cannot be opened for appending
+        assertTrue(journal.mkdir());
+
+        Queue.Journal.ENABLED = true;
+        try {
+            q.schedule2(p1, 1000);
+            // the failure schedules a save, which discards the journal
+            while (journal.exists()) {
+                Thread.sleep(100);
+            }
+            assertNotNull(q.getItem(p1));
+
+            q.schedule2(p2, 1000);
+            List<Object> items = Queue.Journal.replay(journal, Collections.emptyList());
+            assertEquals(1, items.size());
+            assertEquals(p2, ((Queue.Item) items.get(0)).task);
+        } finally {
+            Queue.Journal.ENABLED = false;
+        }
+    }
+
     @Test
     public void testGetCauseOfBlockageForNonConcurrentFreestyle() throws Exception {
         Queue queue = r.getInstance().getQueue();
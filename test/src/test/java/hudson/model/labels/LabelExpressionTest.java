@@ -36,6 +36,8 @@ import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.FreeStyleProject.DescriptorImpl;
 import hudson.model.Label;
+import hudson.model.LabelFinder;
+import hudson.model.Node;
 import hudson.model.Node.Mode;
 import hudson.slaves.DumbSlave;
 import hudson.slaves.RetentionStrategy;
@@ -45,10 +47,14 @@ import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.SequenceLock;
 import org.jvnet.hudson.test.TestBuilder;
+import org.jvnet.hudson.test.TestExtension;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
@@ -134,6 +140,50 @@ public class LabelExpressionTest {
         assertSame(j.jenkins,b.getBuiltOn());
     }
 
+    @Test
+    public void getNodesMatchesEveryOperator() throws Exception {
+        DumbSlave w32 = j.createSlave("w32", "win 32bit", null);
+        DumbSlave w64 = j.createSlave("w64", "win 64bit", null);
+        DumbSlave l32 = j.createSlave("l32", "linux 32bit", null);
+        for (String expr : new String[] {"win", "!win", "win&&32bit", "win||32bit", "win->32bit", "win<->32bit",
+                "!(win||linux)", "(win&&!64bit)||linux", "nonexistent", "!nonexistent", "w64||l32"}) {
+            Label l = Label.parseExpression(expr);
+            Set<Node> expected = new HashSet<>();
+            for (Node n : Arrays.asList(j.jenkins, w32, w64, l32)) {
+                if (l.matches(n)) {
+                    expected.add(n);
+                }
+            }
+            assertEquals(expr, expected, j.jenkins.getLabel(expr).getNodes());
+        }
+
+        w64.setLabelString("linux 64bit");
+        assertEquals(Collections.singleton(w64), j.jenkins.getLabel("linux&&64bit").getNodes());
+    }
+
+    @Test
+    public void getNodesAfterLabelFinderChanges() throws Exception {
+        DumbSlave s = j.createOnlineSlave();
+        Label l = j.jenkins.getLabel("dynamic");
+        assertEquals(Collections.emptySet(), l.getNodes());
+        DynamicLabelFinder.node = s.getNodeName();
+        // nothing about the node changes, but its labels are looked up again as it goes offline
+        s.toComputer().disconnect(null).get();
+        while (!l.getNodes().contains(s)) {
+            Thread.sleep(100);
+        }
+    }
+
+    @TestExtension("getNodesAfterLabelFinderChanges")
+    public static class DynamicLabelFinder extends LabelFinder {
+        static volatile String node;
+
+        @Override
+        public Collection<LabelAtom> findLabels(Node node) {
+            return node.getNodeName().equals(DynamicLabelFinder.node) ? Collections.singleton(new LabelAtom("dynamic")) : Collections.emptySet();
+        }
+    }
+
     /**
      * Make sure we can reset the label of an existing slave.
      */
@@ -39,9 +39,12 @@ import static hudson.tasks.LogRotatorTest.build;
 import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import hudson.model.Run;
 import hudson.remoting.VirtualChannel;
@@ -49,6 +52,7 @@ import hudson.slaves.DumbSlave;
 import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.StandardArtifactManager;
 import jenkins.util.VirtualFile;
+import org.apache.commons.lang.StringUtils;
 import org.hamcrest.Matchers;
 import org.jenkinsci.plugins.structs.describable.DescribableModel;
 
@@ -386,6 +390,39 @@ public class ArtifactArchiverTest {
         assertEquals("8", artifact.getLength());
     }
 
+    @Test
+    public void parallelTransfers() throws Exception {
+        int transfers = StandardArtifactManager.PARALLEL_TRANSFERS;
+        StandardArtifactManager.PARALLEL_TRANSFERS = 3;
+        try {
+            FreeStyleProject project = j.createFreeStyleProject();
+            project.setAssignedNode(j.createOnlineSlave());
+            project.getBuildersList().add(new TestBuilder() {
+                public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                    Map<String, String> files = new TreeMap<>();
+                    for (int i = 0; i < 5; i++) {
+                        build.getWorkspace().child("dir/f" + i).write(StringUtils.repeat("content " + i + "\n", 1000 * i), "UTF-8");
+                        files.put("dir/f" + i, "dir/f" + i);
+                    }
+                    build.pickArtifactManager().archive(build.getWorkspace(), launcher, listener, files);
+                    // as when archiving again after an interruption
+                    new File(build.getArtifactsDir(), "dir/f4").delete();
+                    build.pickArtifactManager().archive(build.getWorkspace(), launcher, listener, files);
+                    return true;
+                }
+            });
+            FreeStyleBuild b = j.buildAndAssertSuccess(project);
+            j.assertLogContains("Archived 5 files", b);
+            j.assertLogContains("Archived 1 files", b);
+            j.assertLogContains("4 files were already there", b);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(StringUtils.repeat("content " + i + "\n", 1000 * i), Util.loadFile(new File(b.getArtifactsDir(), "dir/f" + i), StandardCharsets.UTF_8));
+            }
+        } finally {
+            StandardArtifactManager.PARALLEL_TRANSFERS = transfers;
+        }
+    }
+
     private static class RemoveReadPermission extends MasterToSlaveFileCallable<Object> {
         @Override
         public Object invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
@@ -38,8 +38,11 @@ import hudson.model.FreeStyleProject;
 import hudson.model.DependencyGraph;
 import hudson.model.DependencyGraph.Dependency;
 import hudson.model.Item;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
 import hudson.model.Result;
 import hudson.model.Run;
+import hudson.model.StringParameterDefinition;
 import hudson.model.TaskListener;
 import hudson.model.User;
 import hudson.security.ACL;
@@ -147,6 +150,29 @@ public class BuildTriggerTest {
         doTriggerTest(true, Result.UNSTABLE, Result.FAILURE);
     }
 
+    @Test
+    public void fanOut() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject("upstream");
+        FreeStyleProject d1 = j.createFreeStyleProject("d1");
+        FreeStyleProject d2 = j.createFreeStyleProject("d2");
+        FreeStyleProject d3 = j.createFreeStyleProject("d3");
+        d3.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("PARAM", "default", "")));
+        p.getPublishersList().add(new BuildTrigger("d1, d2, d3", false));
+        j.jenkins.rebuildDependencyGraph();
+        FreeStyleBuild b = j.buildAndAssertSuccess(p);
+        j.waitUntilNoActivity();
+        for (FreeStyleProject d : new FreeStyleProject[] {d1, d2, d3}) {
+            FreeStyleBuild db = d.getLastBuild();
+            assertNotNull(d.getName(), db);
+            Cause.UpstreamCause cause = db.getCause(Cause.UpstreamCause.class);
+            assertNotNull(d.getName(), cause);
+            assertEquals(b.getNumber(), cause.getUpstreamBuild());
+            j.assertLogContains(d.getName(), b);
+        }
+        // scheduled with the default parameter values, as by the job itself
+        assertEquals("default", d3.getLastBuild().getAction(ParametersAction.class).getParameter("PARAM").getValue());
+    }
+
     private void doMavenTriggerTest(boolean evenWhenUnstable) throws Exception {
         File problematic = new File(System.getProperty("user.home"), ".m2/repository/org/apache/maven/plugins/maven-surefire-plugin/2.4.3/maven-surefire-plugin-2.4.3.pom");
         if (problematic.isFile()) {
@@ -42,6 +42,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.*;
@@ -131,6 +132,26 @@ public class FingerprinterTest {
         assertEquals(action.getRecords().keySet(), ImmutableSet.of(singleFiles2[0], singleFiles[0]));
     }
 
+    @Test public void sameContentsRecordedOnce() throws Exception {
+        FreeStyleProject project = createFreeStyleProjectWithFingerprints(new String[] {"abcdef", "abcdef", "ghijkl"}, new String[] {"a.txt", "b.txt", "c.txt"});
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+        j.assertLogContains("Recorded 2 fingerprints of 3 files", build);
+
+        Map<String, String> records = build.getAction(Fingerprinter.FingerprintAction.class).getRecords();
+        assertEquals(ImmutableSet.of("a.txt", "b.txt", "c.txt"), records.keySet());
+        assertEquals(records.get("a.txt"), records.get("b.txt"));
+        Fingerprint f = j.jenkins._getFingerprint(records.get("a.txt"));
+        assertNotNull(f);
+        assertEquals("a.txt", f.getFileName());
+        assertEquals(build, f.getOriginal().getRun());
+        assertTrue(f.getRangeSet(project).includes(1));
+
+        build = j.buildAndAssertSuccess(project);
+        assertTrue(f.getRangeSet(project).includes(2));
+        assertEquals("a.txt", f.getFileName());
+        assertEquals(1, f.getOriginal().getNumber());
+    }
+
     @Test public void multipleUpstreamDependencies() throws Exception {
         FreeStyleProject upstream = createFreeStyleProjectWithFingerprints(singleContents, singleFiles);
         FreeStyleProject upstream2 = createFreeStyleProjectWithFingerprints(singleContents2, singleFiles2);
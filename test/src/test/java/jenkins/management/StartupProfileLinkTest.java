@@ -0,0 +1,68 @@
+package jenkins.management;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import hudson.init.InitMilestone;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.stream.Collectors;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+
+public class StartupProfileLinkTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    @Test
+    public void recorded() throws Exception {
+        List<StartupProfile> profiles = StartupProfile.load();
+        assertEquals(1, profiles.size());
+        StartupProfile profile = profiles.get(0);
+        assertThat(profile.getTasks(), greaterThan(0));
+        assertThat(profile.getPhases().stream().map(p -> p.name).collect(Collectors.toList()), hasItem(InitMilestone.COMPLETED.toString()));
+        assertThat(profile.getCriticalPath(), not(empty()));
+        long previousEnd = 0;
+        for (StartupProfile.Entry e : profile.getCriticalPath()) {
+            assertThat(e.start, greaterThanOrEqualTo(previousEnd));
+            previousEnd = e.start + e.duration;
+        }
+        assertThat(profile.getSlowest(), not(empty()));
+
+        JenkinsRule.WebClient wc = r.createWebClient();
+        HtmlPage page = wc.goTo("startup-profile/");
+        assertThat(page.getWebResponse().getContentAsString(), containsString(profile.getCriticalPath().get(0).name));
+        JSONObject json = wc.getJSON("startup-profile/api/json?depth=1").getJSONObject();
+        assertEquals(1, json.getJSONArray("profiles").size());
+
+        // reloading is not recorded
+        r.jenkins.reload();
+        assertEquals(1, StartupProfile.load().size());
+    }
+
+    @Test
+    public void onlyForSystemRead() throws Exception {
+        r.jenkins.setSecurityRealm(r.createDummySecurityRealm());
+        r.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy().grant(Jenkins.READ).everywhere().to("user"));
+        JenkinsRule.WebClient wc = r.createWebClient().login("user");
+        wc.setThrowExceptionOnFailingStatusCode(false);
+        Page page = wc.goTo("startup-profile/api/json", null);
+        assertEquals(HttpURLConnection.HTTP_FORBIDDEN, page.getWebResponse().getStatusCode());
+    }
+
+    @Test
+    public void changes() {
+        StartupProfile before = StartupProfile.load().get(0);
+        StartupProfile after = new StartupProfile(System.currentTimeMillis(), 1000, 1, before.getPhases(), before.getCriticalPath(), before.getSlowest());
+        assertThat(after.changesSince(before), empty());
+        assertThat(after.changesSince(null), empty());
+    }
+}
@@ -0,0 +1,119 @@
+package jenkins.model;
+
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.tasks.ArtifactArchiver;
+import hudson.util.StreamTaskListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class DeduplicatingArtifactManagerFactoryTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    @Before
+    public void configure() {
+        assumeFalse(Functions.isWindows());
+        ArtifactManagerConfiguration.get().getArtifactManagerFactories().add(new DeduplicatingArtifactManagerFactory());
+    }
+
+    @Test
+    public void deduplicated() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                FilePath ws = build.getWorkspace();
+                ws.child("lib.jar").write("same every time", "UTF-8");
+                ws.child("build.txt").write("build #" + build.getNumber(), "UTF-8");
+                return true;
+            }
+        });
+        p.getPublishersList().add(new ArtifactArchiver("lib.jar,build.txt"));
+        FreeStyleBuild b1 = r.buildAndAssertSuccess(p);
+        assertTrue(b1.getArtifactManager() instanceof DeduplicatingArtifactManagerFactory.DeduplicatingArtifactManager);
+        FreeStyleBuild b2 = r.buildAndAssertSuccess(p);
+        r.assertLogContains("Linked 1 unchanged artifacts", b2);
+
+        File lib1 = new File(b1.getArtifactsDir(), "lib.jar");
+        File lib2 = new File(b2.getArtifactsDir(), "lib.jar");
+        // hard links to the same file
+        assertTrue(Files.isSameFile(lib1.toPath(), lib2.toPath()));
+        assertEquals("same every time", IOUtils.toString(b2.getArtifactManager().root().child("lib.jar").open(), StandardCharsets.UTF_8));
+        assertEquals("build #2", IOUtils.toString(b2.getArtifactManager().root().child("build.txt").open(), StandardCharsets.UTF_8));
+
+        File store = DeduplicatingArtifactManagerFactory.getStore();
+        assertEquals(3, count(store));
+        b1.delete();
+        reclaim();
+        // only just unlinked, so a build could be about to link to it again
+        assertEquals(3, count(store));
+        long gracePeriod = DeduplicatingArtifactManagerFactory.Reclaimer.GRACE_PERIOD;
+        DeduplicatingArtifactManagerFactory.Reclaimer.GRACE_PERIOD = 0;
+        try {
+            reclaim();
+            // build.txt of #1 only
+            assertEquals(2, count(store));
+            b2.delete();
+            reclaim();
+            assertEquals(0, count(store));
+        } finally {
+            DeduplicatingArtifactManagerFactory.Reclaimer.GRACE_PERIOD = gracePeriod;
+        }
+    }
+
+    @Test
+    public void modifiedInStore() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                build.getWorkspace().child("lib.jar").write("same every time", "UTF-8");
+                return true;
+            }
+        });
+        p.getPublishersList().add(new ArtifactArchiver("lib.jar"));
+        FreeStyleBuild b1 = r.buildAndAssertSuccess(p);
+        File lib1 = new File(b1.getArtifactsDir(), "lib.jar");
+        // in place, so through the link to the store, keeping the length
+        Files.write(lib1.toPath(), "SAME EVERY TIME".getBytes(StandardCharsets.UTF_8));
+        FreeStyleBuild b2 = r.buildAndAssertSuccess(p);
+        r.assertLogNotContains("Linked", b2);
+        File lib2 = new File(b2.getArtifactsDir(), "lib.jar");
+        assertFalse(Files.isSameFile(lib1.toPath(), lib2.toPath()));
+        assertEquals("same every time", IOUtils.toString(b2.getArtifactManager().root().child("lib.jar").open(), StandardCharsets.UTF_8));
+    }
+
+    private void reclaim() throws Exception {
+        r.jenkins.getExtensionList(DeduplicatingArtifactManagerFactory.Reclaimer.class).get(0).execute(StreamTaskListener.fromStdout());
+    }
+
+    private static int count(File store) {
+        int n = 0;
+        File[] prefixes = store.listFiles();
+        if (prefixes != null) {
+            for (File prefix : prefixes) {
+                String[] blobs = prefix.list();
+                n += blobs == null ? 0 : blobs.length;
+            }
+        }
+        return n;
+    }
+}
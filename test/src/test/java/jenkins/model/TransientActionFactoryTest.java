@@ -24,6 +24,7 @@
 
 package jenkins.model;
 
+import hudson.ExtensionList;
 import hudson.Util;
 import hudson.model.AbstractItem;
 import hudson.model.AbstractProject;
@@ -37,6 +38,7 @@ import hudson.model.queue.FoldableAction;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -185,6 +187,33 @@ public class TransientActionFactoryTest {
         }
     }
 
+    @Test
+    public void factoriesCachedPerRequest() throws Exception {
+        r.executeOnServer(() -> {
+            Iterable<? extends TransientActionFactory<?>> factories = TransientActionFactory.factoriesFor(FreeStyleProject.class, MyAction.class);
+            assertSame(factories, TransientActionFactory.factoriesFor(FreeStyleProject.class, MyAction.class));
+            TransientActionFactory<FreeStyleProject> added = new TransientActionFactory<FreeStyleProject>() {
+                @Override public Class<FreeStyleProject> type() {return FreeStyleProject.class;}
+                @Override public Class<MyAction> actionType() {return MyAction.class;}
+                @Override public Collection<? extends MyAction> createFor(FreeStyleProject p) {
+                    return Collections.singleton(new MyAction());
+                }
+            };
+            @SuppressWarnings("rawtypes")
+            ExtensionList<TransientActionFactory> all = ExtensionList.lookup(TransientActionFactory.class);
+            all.add(added);
+            try {
+                // adding a factory is noticed within the same request
+                List<TransientActionFactory<?>> found = new ArrayList<>();
+                TransientActionFactory.factoriesFor(FreeStyleProject.class, MyAction.class).forEach(found::add);
+                assertTrue(found.contains(added));
+            } finally {
+                all.remove(added);
+            }
+            return null;
+        });
+    }
+
     private static class MyProminentProjectAction extends InvisibleAction implements ProminentProjectAction {
 
         private String allocation;
@@ -0,0 +1,126 @@
+package jenkins.util;
+
+import hudson.XmlFile;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockFolder;
+import org.jvnet.hudson.test.TestExtension;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.*;
+
+public class SaveSchedulerTest {
+
+    @Rule
+    public JenkinsRule r = new JenkinsRule();
+
+    private long delay;
+
+    @Before
+    public void enable() {
+        SaveScheduler.ENABLED = true;
+        delay = SaveScheduler.DELAY;
+    }
+
+    @After
+    public void disable() {
+        SaveScheduler.ENABLED = false;
+        SaveScheduler.DELAY = delay;
+    }
+
+    @Test
+    public void coalesced() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        SaveScheduler.flush();
+        SaveScheduler.DELAY = TimeUnit.HOURS.toMillis(1);
+        Counter counter = r.jenkins.getExtensionList(SaveableListener.class).get(Counter.class);
+        counter.count.set(0);
+        for (int i = 1; i <= 10; i++) {
+            p.setDescription("edit #" + i);
+        }
+        File config = p.getConfigFile().getFile();
+        assertThat(FileUtils.readFileToString(config), not(containsString("edit #")));
+        assertEquals(0, counter.count.get());
+
+        SaveScheduler.flush();
+        assertThat(FileUtils.readFileToString(config), containsString("edit #10"));
+        assertEquals(1, counter.count.get());
+        SaveScheduler.flush();
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test
+    public void writtenInBackground() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        SaveScheduler.DELAY = 10;
+        p.setDescription("later");
+        File config = p.getConfigFile().getFile();
+        long end = System.currentTimeMillis() + 10000;
+        while (!FileUtils.readFileToString(config).contains("later")) {
+            assertTrue("written", System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void cancelledOnDelete() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject();
+        FreeStyleBuild b = r.buildAndAssertSuccess(p);
+        SaveScheduler.flush();
+        SaveScheduler.DELAY = TimeUnit.HOURS.toMillis(1);
+        b.setDescription("gone");
+        File dir = b.getRootDir();
+        b.delete();
+        SaveScheduler.flush();
+        assertFalse(dir.exists());
+    }
+
+    @Test
+    public void cancelledWithParent() throws Exception {
+        MockFolder d = r.createFolder("d");
+        FreeStyleProject p = d.createProject(FreeStyleProject.class, "p");
+        FreeStyleBuild b = r.buildAndAssertSuccess(p);
+        SaveScheduler.flush();
+        SaveScheduler.DELAY = TimeUnit.HOURS.toMillis(1);
+        b.setDescription("gone");
+        p.setDescription("gone");
+        File dir = d.getRootDir();
+        d.delete();
+        SaveScheduler.flush();
+        assertFalse(dir.exists());
+    }
+
+    @Test
+    public void flushedBeforeReload() throws Exception {
+        FreeStyleProject p = r.createFreeStyleProject("p");
+        SaveScheduler.flush();
+        SaveScheduler.DELAY = TimeUnit.HOURS.toMillis(1);
+        p.setDescription("kept");
+        r.jenkins.reload();
+        assertEquals("kept", r.jenkins.getItemByFullName("p", FreeStyleProject.class).getDescription());
+    }
+
+    @TestExtension
+    public static class Counter extends SaveableListener {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof FreeStyleProject) {
+                count.incrementAndGet();
+            }
+        }
+    }
+}